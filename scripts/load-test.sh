@@ -0,0 +1,79 @@
+#!/bin/bash
+
+# 转换接口压测脚本（对比平台线程池与虚拟线程的吞吐量）
+# 依赖: wrk (https://github.com/wg/wrk)、python3
+#
+# 使用方法: ./scripts/load-test.sh <configName> <sourceFile> [connections] [duration]
+# 示例: ./scripts/load-test.sh bank_a_payment test-data/sample-json-source.json 2000 60s
+#
+# 对比步骤:
+#   1. VIRTUAL_THREADS_ENABLED=false 启动应用，运行本脚本
+#   2. VIRTUAL_THREADS_ENABLED=true 启动应用（需要Java 21及以上运行时），运行本脚本
+#   3. 比较两次输出的 Requests/sec 和延迟分位数
+# 配置中包含自定义函数、字典等需要访问数据库的规则时，差异更明显
+#
+# 可选环境变量:
+#   BASE_URL  服务地址（默认 http://localhost:8080）
+#   THREADS   wrk线程数（默认CPU核数）
+#   TIMEOUT   单个请求超时时间（默认 10s）
+
+set -e
+
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+NC='\033[0m' # No Color
+
+if [ -z "$1" ] || [ -z "$2" ]; then
+    echo -e "${RED}错误: 请提供配置名称和源报文文件${NC}"
+    echo "使用方法: $0 <configName> <sourceFile> [connections] [duration]"
+    exit 1
+fi
+
+if ! command -v wrk >/dev/null 2>&1; then
+    echo -e "${RED}错误: 未找到wrk，请先安装${NC}"
+    exit 1
+fi
+
+CONFIG_NAME=$1
+SOURCE_FILE=$2
+CONNECTIONS=${3:-2000}
+DURATION=${4:-60s}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+THREADS=${THREADS:-$(nproc 2>/dev/null || echo 4)}
+TIMEOUT=${TIMEOUT:-10s}
+
+# 2000个连接需要足够的文件描述符
+ulimit -n $((CONNECTIONS + 1024)) 2>/dev/null || true
+
+WORK_DIR=$(mktemp -d)
+trap 'rm -rf "$WORK_DIR"' EXIT
+
+# 生成请求体
+python3 - "$CONFIG_NAME" "$SOURCE_FILE" > "$WORK_DIR/body.json" <<'PY'
+import json, sys
+with open(sys.argv[2], encoding="utf-8") as f:
+    print(json.dumps({"configName": sys.argv[1], "sourceData": f.read()}, ensure_ascii=False))
+PY
+
+cat > "$WORK_DIR/post.lua" <<LUA
+local f = io.open("$WORK_DIR/body.json", "rb")
+wrk.method = "POST"
+wrk.body = f:read("*a")
+f:close()
+wrk.headers["Content-Type"] = "application/json"
+
+function done(summary, latency, requests)
+    io.write(string.format("P50: %.2fms  P90: %.2fms  P99: %.2fms\n",
+        latency:percentile(50) / 1000, latency:percentile(90) / 1000, latency:percentile(99) / 1000))
+    io.write(string.format("错误: connect %d, read %d, write %d, status %d, timeout %d\n",
+        summary.errors.connect, summary.errors.read, summary.errors.write, summary.errors.status, summary.errors.timeout))
+end
+LUA
+
+echo -e "${GREEN}开始压测${NC}"
+echo "接口: ${BASE_URL}/api/v2/transform/by-name"
+echo "配置: ${CONFIG_NAME}，报文: ${SOURCE_FILE}"
+echo "连接数: ${CONNECTIONS}，线程数: ${THREADS}，持续时间: ${DURATION}"
+
+wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" --timeout "$TIMEOUT" --latency \
+    -s "$WORK_DIR/post.lua" "${BASE_URL}/api/v2/transform/by-name"
@@ -0,0 +1,186 @@
+package com.kai.benchmark;
+
+import com.kai.enums.MappingType;
+import com.kai.enums.TransformType;
+import com.kai.model.MappingConfig;
+import com.kai.model.MappingRule;
+import com.kai.script.GroovySandbox;
+import com.kai.script.GroovyScriptCache;
+import com.kai.service.TransformationEngine;
+import com.kai.strategy.TransformStrategy;
+import com.kai.strategy.impl.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试公共方法
+ * 不启动Spring容器，直接组装转换引擎和不依赖数据库的策略
+ */
+public final class BenchmarkSupport {
+    
+    /**
+     * 测试数据目录，默认为项目根目录下的 test-data
+     */
+    private static final String TEST_DATA_DIR = System.getProperty("benchmark.testData", "test-data");
+    
+    private BenchmarkSupport() {
+    }
+    
+    /**
+     * 创建所有策略实例（字典策略只使用内联字典，函数策略只使用内置函数）
+     */
+    public static List<TransformStrategy> createStrategies() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GroovyScriptCache scriptCache = new GroovyScriptCache(meterRegistry, 500, 1000);
+        GroovySandbox sandbox = createSandbox(scriptCache, meterRegistry);
+        List<TransformStrategy> strategies = new ArrayList<>();
+        strategies.add(new DirectStrategy());
+        strategies.add(new FixedStrategy());
+        strategies.add(new FunctionStrategy());
+        strategies.add(new DictionaryStrategy());
+        strategies.add(new GroovyStrategy(scriptCache, sandbox, true));
+        strategies.add(new ExpressionStrategy(sandbox));
+        strategies.add(new CustomMethodStrategy());
+        return strategies;
+    }
+    
+    /**
+     * 按application.yml的默认配置创建脚本执行环境（独立线程池、1秒超时），与线上的脚本执行开销一致
+     */
+    private static GroovySandbox createSandbox(GroovyScriptCache scriptCache, MeterRegistry meterRegistry) {
+        GroovySandbox sandbox = new GroovySandbox();
+        ReflectionTestUtils.setField(sandbox, "scriptCache", scriptCache);
+        ReflectionTestUtils.setField(sandbox, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(sandbox, "isolated", true);
+        ReflectionTestUtils.setField(sandbox, "timeoutMillis", 1000L);
+        ReflectionTestUtils.setField(sandbox, "poolSize", 0);
+        ReflectionTestUtils.setField(sandbox, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(sandbox, "maxConcurrentPerRule", 0);
+        ReflectionTestUtils.setField(sandbox, "failureThreshold", 5);
+        ReflectionTestUtils.setField(sandbox, "openSeconds", 30L);
+        sandbox.init();
+        return sandbox;
+    }
+    
+    public static TransformationEngine createEngine() {
+        return new TransformationEngine(createStrategies());
+    }
+    
+    /**
+     * 读取 test-data 目录下的样例报文
+     */
+    public static String readTestData(String fileName) {
+        Path path = Paths.get(TEST_DATA_DIR, fileName);
+        try {
+            return Files.readString(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("读取测试数据失败: " + path.toAbsolutePath()
+                    + "，请在项目根目录运行或通过 -Dbenchmark.testData 指定目录", e);
+        }
+    }
+    
+    /**
+     * 用户信息样例（sample-json-source.json / sample-xml-source.xml）的映射配置
+     * 覆盖DIRECT、FUNCTION、DICTIONARY、FIXED、GROOVY和多对1映射；
+     * XML样例解析后不包含根元素，两种样例可以共用同一组源路径
+     */
+    public static MappingConfig userConfig(String sourceProtocol, String targetProtocol) {
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol(sourceProtocol);
+        config.setTargetProtocol(targetProtocol);
+        if ("XML".equals(targetProtocol)) {
+            config.setXmlRootElementName("Customer");
+        }
+        
+        List<MappingRule> rules = new ArrayList<>();
+        rules.add(rule("$.name", "customer.name", TransformType.DIRECT, null));
+        rules.add(rule("$.age", "customer.age", TransformType.FUNCTION, Map.of("function", "toInt")));
+        rules.add(rule("$.gender", "customer.gender", TransformType.DICTIONARY,
+                Map.of("dictionary", Map.of("male", "男", "female", "女"))));
+        rules.add(rule("$.email", "customer.contact.email", TransformType.DIRECT, null));
+        rules.add(rule("$.phone", "customer.contact.phone", TransformType.DIRECT, null));
+        rules.add(rule("$.address.city", "customer.address.city", TransformType.DIRECT, null));
+        rules.add(rule("$.address.street", "customer.address.street", TransformType.DIRECT, null));
+        rules.add(rule("$.status", "customer.status", TransformType.FUNCTION, Map.of("function", "upperCase")));
+        rules.add(rule("$.createTime", "customer.createTime", TransformType.GROOVY,
+                Map.of("groovyScript", "input?.toString()?.replace(' ', 'T')")));
+        rules.add(rule(null, "customer.channel", TransformType.FIXED, Map.of("fixedValue", "BENCH")));
+        
+        MappingRule fullAddress = rule("$.address.province", "customer.address.full", TransformType.GROOVY,
+                Map.of("groovyScript", "(input as List).join('')"));
+        fullAddress.setMappingType(MappingType.MANY_TO_ONE);
+        fullAddress.setAdditionalSources(List.of("$.address.district", "$.address.street"));
+        rules.add(fullAddress);
+        
+        config.setRules(rules);
+        return config;
+    }
+    
+    /**
+     * 生成合成报文：fieldCount个标量字段 + recordCount条明细记录
+     */
+    public static String syntheticJson(int fieldCount, int recordCount) {
+        StringBuilder builder = new StringBuilder(64 * (fieldCount + recordCount * 4));
+        builder.append("{\"header\":{");
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("\"field").append(i).append("\":\"value").append(i).append('"');
+        }
+        builder.append("},\"records\":[");
+        for (int i = 0; i < recordCount; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"account\":\"62220000").append(i)
+                    .append("\",\"amount\":").append(i * 10 + 0.5)
+                    .append(",\"currency\":\"CNY\",\"memo\":\"record-").append(i).append("\"}");
+        }
+        builder.append("]}");
+        return builder.toString();
+    }
+    
+    /**
+     * 合成报文对应的映射配置：每个标量字段一条DIRECT规则，明细列表一条规则
+     */
+    public static MappingConfig syntheticConfig(int fieldCount, String targetProtocol) {
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol(targetProtocol);
+        if ("XML".equals(targetProtocol)) {
+            config.setXmlRootElementName("Message");
+        }
+        
+        List<MappingRule> rules = new ArrayList<>(fieldCount + 1);
+        for (int i = 0; i < fieldCount; i++) {
+            rules.add(rule("$.header.field" + i, "head.group" + (i % 10) + ".f" + i, TransformType.DIRECT, null));
+        }
+        rules.add(rule("$.records[*]", "body.list", TransformType.DIRECT, null));
+        config.setRules(rules);
+        return config;
+    }
+    
+    public static MappingRule rule(String sourcePath, String targetPath, TransformType transformType,
+                                   Map<String, Object> transformConfig) {
+        MappingRule rule = new MappingRule();
+        rule.setSourcePath(sourcePath);
+        rule.setTargetPath(targetPath);
+        rule.setTransformType(transformType);
+        if (transformConfig != null) {
+            rule.setTransformConfig(new HashMap<>(transformConfig));
+        }
+        return rule;
+    }
+}
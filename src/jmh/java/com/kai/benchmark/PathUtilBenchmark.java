@@ -0,0 +1,65 @@
+package com.kai.benchmark;
+
+import com.kai.util.CompiledPath;
+import com.kai.util.PathUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PathUtil 路径读写基准测试
+ * 对比按字符串路径读写（查找缓存的解析结果）与直接使用编译好的路径
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathUtilBenchmark {
+    
+    @Param({"customer.name", "message.body.account.detail.amount"})
+    public String path;
+    
+    private CompiledPath compiledPath;
+    
+    private Map<String, Object> populated;
+    
+    @Setup
+    public void setUp() {
+        compiledPath = CompiledPath.compile(path);
+        populated = new HashMap<>();
+        PathUtil.setDeepValue(populated, path, "value");
+    }
+    
+    @Benchmark
+    public Map<String, Object> setDeepValue() {
+        Map<String, Object> target = new HashMap<>();
+        PathUtil.setDeepValue(target, path, "value");
+        return target;
+    }
+    
+    @Benchmark
+    public Map<String, Object> setDeepValueCompiled() {
+        Map<String, Object> target = new HashMap<>();
+        compiledPath.set(target, "value");
+        return target;
+    }
+    
+    @Benchmark
+    public Object getDeepValue() {
+        return PathUtil.getDeepValue(populated, path);
+    }
+    
+    @Benchmark
+    public Object getDeepValueCompiled() {
+        return compiledPath.get(populated);
+    }
+    
+    @Benchmark
+    public String[] parsePath() {
+        return PathUtil.parsePath(path);
+    }
+}
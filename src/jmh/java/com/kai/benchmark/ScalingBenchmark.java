@@ -0,0 +1,64 @@
+package com.kai.benchmark;
+
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.service.StreamingTransformationEngine;
+import com.kai.service.TransformationEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规则数量与报文大小的扩展性基准测试
+ * 建议配合 -prof gc 观察每条报文的内存分配
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScalingBenchmark {
+    
+    @Param({"10", "50", "200"})
+    public int ruleCount;
+    
+    @Param({"10", "1000", "10000"})
+    public int recordCount;
+    
+    @Param({"JSON", "XML"})
+    public String targetProtocol;
+    
+    private TransformationEngine engine;
+    
+    private StreamingTransformationEngine streamingEngine;
+    
+    private CompiledMappingPlan plan;
+    
+    private String source;
+    
+    private byte[] sourceBytes;
+    
+    @Setup
+    public void setUp() {
+        engine = BenchmarkSupport.createEngine();
+        streamingEngine = new StreamingTransformationEngine();
+        plan = engine.compile(BenchmarkSupport.syntheticConfig(ruleCount, targetProtocol));
+        source = BenchmarkSupport.syntheticJson(ruleCount, recordCount);
+        sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Benchmark
+    public String transform() throws Exception {
+        return engine.transform(source, plan);
+    }
+    
+    @Benchmark
+    public int streamingTransform() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(sourceBytes.length);
+        streamingEngine.transform(new ByteArrayInputStream(sourceBytes), output, plan, "JSON");
+        return output.size();
+    }
+}
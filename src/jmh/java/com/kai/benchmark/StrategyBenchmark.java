@@ -0,0 +1,89 @@
+package com.kai.benchmark;
+
+import com.kai.script.SimpleGroovyExpression;
+import com.kai.strategy.TransformStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 单个转换策略基准测试
+ * bound：编译阶段绑定后的转换函数（引擎实际使用的方式）；transform：每次调用都解析规则配置
+ * GROOVY使用多语句脚本，经脚本线程池执行；SIMPLE_GROOVY使用单行三元表达式，按简单表达式直接求值
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrategyBenchmark {
+    
+    @Param({"DIRECT", "FIXED", "FUNCTION", "DICTIONARY", "GROOVY", "SIMPLE_GROOVY", "EXPRESSION", "CUSTOM_METHOD"})
+    public String transformType;
+    
+    private TransformStrategy strategy;
+    
+    private Map<String, Object> ruleConfig;
+    
+    private Function<Object, Object> boundTransformer;
+    
+    private Object sourceValue;
+    
+    @Setup
+    public void setUp() {
+        List<TransformStrategy> strategies = BenchmarkSupport.createStrategies();
+        String strategyType = "SIMPLE_GROOVY".equals(transformType) ? "GROOVY" : transformType;
+        strategy = strategies.stream()
+                .filter(s -> s.getType().equals(strategyType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("未知的转换类型: " + transformType));
+        
+        ruleConfig = new HashMap<>();
+        sourceValue = "active";
+        switch (transformType) {
+            case "FIXED":
+                ruleConfig.put("fixedValue", "FIXED_VALUE");
+                break;
+            case "FUNCTION":
+                ruleConfig.put("function", "upperCase");
+                break;
+            case "DICTIONARY":
+                ruleConfig.put("dictionary", Map.of("active", "有效", "inactive", "无效", "locked", "锁定"));
+                break;
+            case "GROOVY":
+                ruleConfig.put("groovyScript", "def code = input == 'active' ? 'A' : 'I'\nreturn code");
+                break;
+            case "SIMPLE_GROOVY":
+                ruleConfig.put("groovyScript", "input == 'active' ? 'A' : 'I'");
+                break;
+            case "EXPRESSION":
+                ruleConfig.put("expression", "input == 'active' ? 'A' : 'I'");
+                break;
+            case "CUSTOM_METHOD":
+                ruleConfig.put("className", "com.kai.util.StringUtil");
+                ruleConfig.put("methodName", "toUpperCase");
+                break;
+            default:
+                break;
+        }
+        if ("GROOVY".equals(transformType) && SimpleGroovyExpression.parse((String) ruleConfig.get("groovyScript")) != null) {
+            throw new IllegalStateException("GROOVY用例的脚本会按简单表达式执行，无法测量脚本执行开销");
+        }
+        boundTransformer = strategy.bind(ruleConfig);
+    }
+    
+    @Benchmark
+    public Object bound() {
+        return boundTransformer.apply(sourceValue);
+    }
+    
+    @Benchmark
+    public Object transform() {
+        return strategy.transform(sourceValue, ruleConfig);
+    }
+}
@@ -0,0 +1,79 @@
+package com.kai.benchmark;
+
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.model.MappingConfig;
+import com.kai.service.TransformationEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 转换引擎端到端基准测试（使用 test-data 下的样例报文）
+ * 
+ * 运行：mvn -Pbenchmark -DskipTests test-compile exec:exec -Djmh.args="TransformationEngineBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformationEngineBenchmark {
+    
+    private TransformationEngine engine;
+    
+    private String jsonSource;
+    
+    private String xmlSource;
+    
+    private MappingConfig jsonToJsonConfig;
+    
+    private CompiledMappingPlan jsonToJsonPlan;
+    
+    private CompiledMappingPlan xmlToJsonPlan;
+    
+    private CompiledMappingPlan jsonToXmlPlan;
+    
+    private CompiledMappingPlan xmlToXmlPlan;
+    
+    @Setup
+    public void setUp() {
+        engine = BenchmarkSupport.createEngine();
+        jsonSource = BenchmarkSupport.readTestData("sample-json-source.json");
+        xmlSource = BenchmarkSupport.readTestData("sample-xml-source.xml");
+        
+        jsonToJsonConfig = BenchmarkSupport.userConfig("JSON", "JSON");
+        jsonToJsonPlan = engine.compile(jsonToJsonConfig);
+        xmlToJsonPlan = engine.compile(BenchmarkSupport.userConfig("XML", "JSON"));
+        jsonToXmlPlan = engine.compile(BenchmarkSupport.userConfig("JSON", "XML"));
+        xmlToXmlPlan = engine.compile(BenchmarkSupport.userConfig("XML", "XML"));
+    }
+    
+    @Benchmark
+    public String jsonToJson() throws Exception {
+        return engine.transform(jsonSource, jsonToJsonPlan);
+    }
+    
+    @Benchmark
+    public String xmlToJson() throws Exception {
+        return engine.transform(xmlSource, xmlToJsonPlan);
+    }
+    
+    @Benchmark
+    public String jsonToXml() throws Exception {
+        return engine.transform(jsonSource, jsonToXmlPlan);
+    }
+    
+    @Benchmark
+    public String xmlToXml() throws Exception {
+        return engine.transform(xmlSource, xmlToXmlPlan);
+    }
+    
+    /**
+     * 每次调用都重新编译配置（/api/v2/transform 直接传入配置时的开销）
+     */
+    @Benchmark
+    public String jsonToJsonWithCompile() throws Exception {
+        return engine.transform(jsonSource, jsonToJsonConfig);
+    }
+}
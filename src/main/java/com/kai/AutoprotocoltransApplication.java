@@ -3,9 +3,11 @@ package com.kai;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("com.kai.mapper")
+@EnableScheduling
 public class AutoprotocoltransApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,38 @@
+package com.kai.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+
+/**
+ * 请求线程模型配置
+ *
+ * 通过 spring.threads.virtual.enabled 开启后，Tomcat请求、@Async和定时任务都运行在虚拟线程上，
+ * 转换过程中的数据库查询（自定义函数、字典、配置加载）阻塞时不再占用平台线程。
+ * 虚拟线程需要Java 21及以上运行时，低版本运行时忽略该配置，继续使用 server.tomcat.threads.max 大小的平台线程池
+ */
+@Slf4j
+@Configuration
+public class ThreadingConfig {
+    
+    @Autowired
+    private Environment environment;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void logThreadingModel() {
+        boolean configured = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("请求处理使用虚拟线程");
+        } else if (configured) {
+            log.warn("已配置spring.threads.virtual.enabled，但当前Java版本{}不支持虚拟线程（需要Java 21及以上），请求处理使用平台线程池，最大线程数: {}",
+                    JavaVersion.getJavaVersion(), environment.getProperty("server.tomcat.threads.max", "200"));
+        } else {
+            log.info("请求处理使用平台线程池，最大线程数: {}", environment.getProperty("server.tomcat.threads.max", "200"));
+        }
+    }
+}
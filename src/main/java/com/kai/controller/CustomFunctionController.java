@@ -96,7 +96,7 @@ public class CustomFunctionController {
     public ResponseEntity<Map<String, Object>> deleteFunction(@PathVariable Long id) {
         Map<String, Object> result = new HashMap<>();
         try {
-            boolean success = customFunctionService.removeById(id);
+            boolean success = customFunctionService.deleteFunction(id);
             result.put("success", success);
             result.put("message", success ? "删除成功" : "删除失败");
         } catch (Exception e) {
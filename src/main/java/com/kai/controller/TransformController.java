@@ -1,23 +1,33 @@
 package com.kai.controller;
 
+import com.kai.dto.BatchTransformResponse;
 import com.kai.dto.TransformResponse;
+import com.kai.engine.CompiledMappingPlan;
 import com.kai.model.MappingConfig;
-import com.kai.service.MappingConfigV2Service;
-import com.kai.model.MappingConfigV2;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.kai.service.BatchTransformService;
+import com.kai.service.MappingConfigRegistry;
+import com.kai.service.StreamingTransformationEngine;
 import com.kai.service.TransformationEngine;
 import com.kai.util.MessageConverterUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * 转换控制器（新版本，使用MappingConfig）
  */
+@Slf4j
 @RestController
 @RequestMapping("/api/v2/transform")
 @CrossOrigin(origins = "*")
@@ -27,9 +37,13 @@ public class TransformController {
     private TransformationEngine transformationEngine;
     
     @Autowired
-    private MappingConfigV2Service configService;
+    private MappingConfigRegistry configRegistry;
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private StreamingTransformationEngine streamingEngine;
+    
+    @Autowired
+    private BatchTransformService batchTransformService;
     
     /**
      * 执行转换（使用MappingConfig配置对象）
@@ -79,23 +93,54 @@ public class TransformController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            // 从数据库加载配置（根据配置名称查找当前版本的配置）
-            LambdaQueryWrapper<MappingConfigV2> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(MappingConfigV2::getName, configName);
-            wrapper.eq(MappingConfigV2::getIsCurrent, true);
-            wrapper.last("LIMIT 1");
-            MappingConfigV2 configEntity = configService.getOne(wrapper);
-            
-            if (configEntity == null) {
+            // 从内存注册表获取当前版本的已编译配置，稳定状态下不访问数据库
+            MappingConfigRegistry.RegisteredConfig registered = configRegistry.getByName(configName);
+            if (registered == null) {
                 response.setSuccess(false);
                 response.setErrorMessage("配置不存在: " + configName);
                 return ResponseEntity.badRequest().body(response);
             }
-            
-            MappingConfig config = objectMapper.readValue(configEntity.getConfigContent(), MappingConfig.class);
+            CompiledMappingPlan plan = registered.getPlan();
             
             // 执行转换
-            String result = transformationEngine.transform(sourceData, config);
+            String result = transformationEngine.transform(sourceData, plan);
+            response.setSuccess(true);
+            response.setTransformedData(result);
+        } catch (Exception e) {
+            response.setSuccess(false);
+            response.setErrorMessage(e.getMessage());
+        }
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 根据银行编码、交易名称和方向执行转换
+     * 配置从内存注册表按 银行编码+交易名称+配置类型 直接查找，不需要调用方先查询配置名称
+     * 
+     * @param request 包含bankCode、transactionName、direction和sourceData的请求
+     * @return 转换结果
+     */
+    @PostMapping("/route")
+    public ResponseEntity<TransformResponse> transformByRoute(@RequestBody TransformByRouteRequest request) {
+        TransformResponse response = new TransformResponse();
+        try {
+            if (request.getSourceData() == null || request.getBankCode() == null
+                    || request.getTransactionName() == null || request.getDirection() == null) {
+                response.setSuccess(false);
+                response.setErrorMessage("源数据、银行编码、交易名称和方向不能为空");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            String direction = request.getDirection().trim().toUpperCase();
+            MappingConfigRegistry.RegisteredConfig registered = configRegistry.getByRoute(
+                    request.getBankCode().trim(), request.getTransactionName().trim(), direction);
+            if (registered == null) {
+                response.setSuccess(false);
+                response.setErrorMessage("配置不存在: " + request.getBankCode() + "/" + request.getTransactionName() + "/" + direction);
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            String result = transformationEngine.transform(request.getSourceData(), registered.getPlan());
             response.setSuccess(true);
             response.setTransformedData(result);
         } catch (Exception e) {
@@ -105,6 +150,144 @@ public class TransformController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * 链式转换
+     * 按顺序执行多个配置（如 标准化 → 补充 → 银行特定格式），前一个配置的结果直接作为后一个配置的源数据，
+     * 中间不序列化、不重新解析；结果按最后一个配置的目标协议输出
+     * 
+     * @param request 包含sourceData和configNames的请求
+     * @return 转换结果
+     */
+    @PostMapping("/chain")
+    public ResponseEntity<TransformResponse> transformChain(@RequestBody TransformChainRequest request) {
+        TransformResponse response = new TransformResponse();
+        try {
+            List<String> configNames = request.getConfigNames();
+            if (request.getSourceData() == null || configNames == null || configNames.isEmpty()) {
+                response.setSuccess(false);
+                response.setErrorMessage("源数据和配置名称列表不能为空");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            List<CompiledMappingPlan> plans = new ArrayList<>(configNames.size());
+            for (String configName : configNames) {
+                MappingConfigRegistry.RegisteredConfig registered = configName != null ? configRegistry.getByName(configName) : null;
+                if (registered == null) {
+                    response.setSuccess(false);
+                    response.setErrorMessage("配置不存在: " + configName);
+                    return ResponseEntity.badRequest().body(response);
+                }
+                plans.add(registered.getPlan());
+            }
+            
+            String result = transformationEngine.transformChain(request.getSourceData(), plans);
+            response.setSuccess(true);
+            response.setTransformedData(result);
+        } catch (Exception e) {
+            response.setSuccess(false);
+            response.setErrorMessage(e.getMessage());
+        }
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 批量转换
+     * 整个批次只查找一次配置，报文在有界线程池上并行转换，结果按请求顺序返回
+     * 
+     * @param request 包含configName和messages的请求
+     * @return 批量转换结果（包含每条报文的成功/失败信息）
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTransformResponse> transformBatch(@RequestBody BatchTransformRequest request) {
+        return executeBatch(request.getConfigName(), request.getMessages());
+    }
+    
+    /**
+     * 批量转换（NDJSON格式）
+     * 请求体每行一条JSON报文，空行忽略
+     * 
+     * @param configName 配置名称
+     * @param body NDJSON请求体
+     * @return 批量转换结果（包含每条报文的成功/失败信息）
+     */
+    @PostMapping(value = "/batch/{configName}", consumes = "application/x-ndjson")
+    public ResponseEntity<BatchTransformResponse> transformBatchNdjson(@PathVariable String configName, @RequestBody String body) {
+        List<String> messages = new ArrayList<>();
+        for (String line : body.split("\\r?\\n")) {
+            if (!line.trim().isEmpty()) {
+                messages.add(line);
+            }
+        }
+        return executeBatch(configName, messages);
+    }
+    
+    private ResponseEntity<BatchTransformResponse> executeBatch(String configName, List<String> messages) {
+        BatchTransformResponse response = new BatchTransformResponse();
+        try {
+            if (configName == null || configName.trim().isEmpty() || messages == null) {
+                response.setSuccess(false);
+                response.setErrorMessage("配置名称和报文列表不能为空");
+                return ResponseEntity.badRequest().body(response);
+            }
+            if (messages.size() > batchTransformService.getMaxBatchSize()) {
+                response.setSuccess(false);
+                response.setErrorMessage("单个批次最多" + batchTransformService.getMaxBatchSize() + "条报文，当前: " + messages.size());
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            MappingConfigRegistry.RegisteredConfig registered = configRegistry.getByName(configName);
+            if (registered == null) {
+                response.setSuccess(false);
+                response.setErrorMessage("配置不存在: " + configName);
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            response = batchTransformService.transformBatch(registered.getPlan(), messages);
+        } catch (Exception e) {
+            response.setSuccess(false);
+            response.setErrorMessage(e.getMessage());
+        }
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 流式转换（适用于大报文）
+     * 请求体直接是源报文（JSON或XML），响应体直接是转换后的报文，边读取边输出；
+     * 源类型优先取配置中的源协议，未配置时根据请求的Content-Type判断
+     * 
+     * @param configName 配置名称
+     * @return 转换结果流；配置不存在时返回错误信息
+     */
+    @PostMapping("/stream/{configName}")
+    public ResponseEntity<?> transformStream(@PathVariable String configName, HttpServletRequest request) throws IOException {
+        MappingConfigRegistry.RegisteredConfig registered = configRegistry.getByName(configName);
+        if (registered == null) {
+            TransformResponse response = new TransformResponse();
+            response.setSuccess(false);
+            response.setErrorMessage("配置不存在: " + configName);
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        CompiledMappingPlan plan = registered.getPlan();
+        String sourceType = streamingEngine.resolveSourceType(plan, request.getContentType());
+        String targetType = streamingEngine.resolveTargetType(plan, sourceType);
+        InputStream input = request.getInputStream();
+        
+        StreamingResponseBody body = output -> {
+            try {
+                streamingEngine.transform(input, output, plan, sourceType);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                // 响应可能已部分写出，只能记录日志并中断输出
+                log.error("流式转换失败，配置: {}, 错误: {}", configName, e.getMessage(), e);
+                throw new IOException("流式转换失败: " + e.getMessage(), e);
+            }
+        };
+        MediaType contentType = "XML".equals(targetType) ? MediaType.APPLICATION_XML : MediaType.APPLICATION_JSON;
+        return ResponseEntity.ok().contentType(contentType).body(body);
+    }
+    
     /**
      * 调试接口：查看XML/JSON解析后的结构
      */
@@ -159,6 +342,41 @@ public class TransformController {
         private String configName;
     }
     
+    /**
+     * 按银行和交易类型转换请求DTO
+     */
+    @lombok.Data
+    @lombok.NoArgsConstructor
+    @lombok.AllArgsConstructor
+    public static class TransformByRouteRequest {
+        private String sourceData;
+        private String bankCode;
+        private String transactionName;
+        private String direction; // "REQUEST" 或 "RESPONSE"
+    }
+    
+    /**
+     * 链式转换请求DTO
+     */
+    @lombok.Data
+    @lombok.NoArgsConstructor
+    @lombok.AllArgsConstructor
+    public static class TransformChainRequest {
+        private String sourceData;
+        private List<String> configNames;
+    }
+    
+    /**
+     * 批量转换请求DTO
+     */
+    @lombok.Data
+    @lombok.NoArgsConstructor
+    @lombok.AllArgsConstructor
+    public static class BatchTransformRequest {
+        private String configName;
+        private List<String> messages;
+    }
+    
     /**
      * 调试解析请求DTO
      */
@@ -0,0 +1,96 @@
+package com.kai.controller;
+
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.service.MappingConfigRegistry;
+import com.kai.service.NonBlockingTransformService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * 非阻塞转换控制器
+ * 请求体直接是源报文（JSON或XML，Content-Type为application/json、application/xml或text/plain），
+ * 响应体直接是转换后的报文（Content-Type按目标协议为application/json或application/xml），
+ * 不经过JSON信封，报文不需要转义和反转义；配置名称在路径或请求头 {@value #CONFIG_NAME_HEADER} 中给出
+ * 请求体的读取和响应的写出都是非阻塞的，等待网络数据期间不占用请求线程，适合网关层转发的大报文
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v3/transform")
+@CrossOrigin(origins = "*")
+public class TransformV3Controller {
+    
+    /**
+     * 配置名称请求头（网关统一转发到固定地址、不便改写路径时使用）
+     */
+    public static final String CONFIG_NAME_HEADER = "X-Config-Name";
+    
+    @Autowired
+    private MappingConfigRegistry configRegistry;
+    
+    @Autowired
+    private NonBlockingTransformService nonBlockingTransformService;
+    
+    /**
+     * 按路径中的配置名称执行非阻塞转换
+     * 响应由异步处理写出；配置不存在时直接写出错误信息
+     *
+     * @param configName 配置名称
+     */
+    @PostMapping("/{configName}")
+    public void transform(@PathVariable String configName, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        start(configName, request, response);
+    }
+    
+    /**
+     * 按请求头中的配置名称执行非阻塞转换
+     * 响应由异步处理写出；未给出配置名称或配置不存在时直接写出错误信息
+     *
+     * @param configName 配置名称
+     */
+    @PostMapping
+    public void transformByHeader(@RequestHeader(value = CONFIG_NAME_HEADER, required = false) String configName,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (configName == null || configName.trim().isEmpty()) {
+            nonBlockingTransformService.writeError(response, HttpServletResponse.SC_BAD_REQUEST,
+                    "请求头 " + CONFIG_NAME_HEADER + " 不能为空");
+            return;
+        }
+        start(configName.trim(), request, response);
+    }
+    
+    private void start(String configName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MappingConfigRegistry.RegisteredConfig registered = configRegistry.getByName(configName);
+        if (registered == null) {
+            nonBlockingTransformService.writeError(response, HttpServletResponse.SC_BAD_REQUEST, "配置不存在: " + configName);
+            return;
+        }
+        
+        CompiledMappingPlan plan = registered.getPlan();
+        nonBlockingTransformService.transform(request, response, plan, resolveSourceType(plan, request.getContentType()));
+    }
+    
+    /**
+     * 确定源数据类型：优先取配置中的源协议，其次按Content-Type判断（含xml为XML，含json为JSON）；
+     * text/plain或未指定Content-Type时返回null，由请求体的第一个非空白字符判断
+     */
+    private static String resolveSourceType(CompiledMappingPlan plan, String contentType) {
+        String sourceType = plan.getSourceProtocol();
+        if (sourceType != null && !sourceType.isEmpty()) {
+            return sourceType.toUpperCase();
+        }
+        if (contentType == null) {
+            return null;
+        }
+        String lowerCase = contentType.toLowerCase();
+        if (lowerCase.contains("xml")) {
+            return "XML";
+        }
+        return lowerCase.contains("json") ? "JSON" : null;
+    }
+}
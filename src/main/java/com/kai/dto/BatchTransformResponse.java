@@ -0,0 +1,67 @@
+package com.kai.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量转换响应DTO
+ */
+@Data
+public class BatchTransformResponse {
+    /**
+     * 整个批次是否处理成功（单条报文失败不影响批次，见各条结果）
+     */
+    private Boolean success;
+    
+    /**
+     * 报文总数
+     */
+    private Integer total;
+    
+    /**
+     * 成功条数
+     */
+    private Integer successCount;
+    
+    /**
+     * 失败条数
+     */
+    private Integer failureCount;
+    
+    /**
+     * 各条报文的转换结果，顺序与请求一致
+     */
+    private List<Item> results;
+    
+    /**
+     * 错误信息（批次级别）
+     */
+    private String errorMessage;
+    
+    /**
+     * 单条报文的转换结果
+     */
+    @Data
+    public static class Item {
+        /**
+         * 报文在请求中的序号（从0开始）
+         */
+        private Integer index;
+        
+        /**
+         * 是否成功
+         */
+        private Boolean success;
+        
+        /**
+         * 转换后的数据
+         */
+        private String transformedData;
+        
+        /**
+         * 错误信息
+         */
+        private String errorMessage;
+    }
+}
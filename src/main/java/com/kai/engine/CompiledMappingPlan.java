@@ -0,0 +1,368 @@
+package com.kai.engine;
+
+import com.jayway.jsonpath.JsonPath;
+import com.kai.enums.MappingType;
+import com.kai.enums.TransformType;
+import com.kai.metrics.PlanMetrics;
+import com.kai.model.MappingConfig;
+import com.kai.model.MappingRule;
+import com.kai.strategy.TransformStrategy;
+import com.kai.util.CompiledPath;
+import com.kai.util.PathUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 编译后的映射计划
+ * 由MappingConfig编译一次，之后可被任意多次转换请求复用（编译一次，执行多次）
+ * 编译阶段完成：
+ * 1. 过滤IGNORE规则，归一化映射类型
+ * 2. 按转换类型查找策略，并通过 {@link TransformStrategy#bind(Map)} 预绑定规则配置
+ * 3. 预编译源路径JsonPath表达式（类XPath路径先转换为JsonPath），预先拆分目标路径和1对多子映射路径，
+ *    并由目标路径推导目标文档结构（{@link TargetShape}），执行时按规则顺序写入预分配大小的LinkedHashMap
+ * 4. XML到XML的配置分析是否可以走原生XML管道（见 {@link XmlMappingPlan}）
+ * 5. 按需为规则生成专用的转换器类（见 {@link TransformerGenerator}），生成失败或不适用时解释执行规则
+ * 6. 数组映射的子规则编译为独立的元素计划，与所在计划共用策略和指标
+ * 7. 判断所有规则（含数组映射的子规则）的结果是否只取决于源值，配置开启缓存且规则都确定时计划的结果可以缓存
+ * 计划本身不可变，可在多线程间安全共享
+ */
+@Slf4j
+@Getter
+public class CompiledMappingPlan {
+    
+    /**
+     * 数组映射源路径末尾的 [*]
+     */
+    private static final String ALL_ELEMENTS = "[*]";
+    
+    /**
+     * 数组映射目标路径末尾的 []
+     */
+    private static final String ARRAY_SUFFIX = "[]";
+    
+    /**
+     * 原始配置
+     */
+    private final MappingConfig config;
+    
+    /**
+     * 源协议类型（为空时执行阶段自动检测）
+     */
+    private final String sourceProtocol;
+    
+    /**
+     * 目标协议类型（为空时与源协议相同）
+     */
+    private final String targetProtocol;
+    
+    private final boolean prettyPrint;
+    
+    private final String xmlRootElementName;
+    
+    private final boolean includeXmlDeclaration;
+    
+    /**
+     * 编译后的规则列表（保持原规则顺序）
+     */
+    private final List<CompiledRule> rules;
+    
+    /**
+     * 计划的指标（按配置名称、版本和银行预先创建）
+     */
+    private final PlanMetrics metrics;
+    
+    /**
+     * 原生XML管道的执行计划，不满足条件时为null
+     */
+    private final XmlMappingPlan xmlPlan;
+    
+    /**
+     * 由规则目标路径推导的目标文档结构
+     */
+    private final TargetShape targetShape;
+    
+    /**
+     * 生成的转换器，未生成时为null（解释执行规则）
+     */
+    private final CompiledTransformer generatedTransformer;
+    
+    /**
+     * 所有规则的结果是否只取决于源值（见 {@link RuleDeterminism}）
+     */
+    private final boolean deterministic;
+    
+    /**
+     * 配置是否开启了结果缓存
+     */
+    private final boolean cacheResult;
+    
+    /**
+     * 转换结果是否可以缓存：配置开启了结果缓存且所有规则都确定
+     */
+    private final boolean resultCacheable;
+    
+    private CompiledMappingPlan(MappingConfig config, List<CompiledRule> rules, PlanMetrics metrics,
+                                TargetShape targetShape, boolean generate) {
+        this.config = config;
+        this.sourceProtocol = config.getSourceProtocol();
+        this.targetProtocol = config.getTargetProtocol();
+        this.prettyPrint = config.getPrettyPrint() != null && config.getPrettyPrint();
+        this.xmlRootElementName = config.getXmlRootElementName();
+        this.includeXmlDeclaration = config.getIncludeXmlDeclaration() != null && config.getIncludeXmlDeclaration();
+        this.rules = Collections.unmodifiableList(rules);
+        this.metrics = metrics;
+        this.xmlPlan = XmlMappingPlan.analyze(sourceProtocol, targetProtocol, this.rules);
+        this.targetShape = targetShape;
+        this.generatedTransformer = generate ? TransformerGenerator.generate(this.rules, metrics) : null;
+        this.deterministic = allDeterministic(this.rules);
+        this.cacheResult = config.getCacheResult() != null && config.getCacheResult();
+        this.resultCacheable = cacheResult && deterministic;
+        if (cacheResult && !deterministic) {
+            log.info("配置开启了结果缓存，但规则含不确定的转换（当前时间、随机数等），结果不缓存");
+        }
+    }
+    
+    private static boolean allDeterministic(List<CompiledRule> rules) {
+        for (CompiledRule rule : rules) {
+            if (!RuleDeterminism.isDeterministic(rule.getRule())
+                    || (rule.getElementPlan() != null && !rule.getElementPlan().isDeterministic())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 创建一条报文的目标Map：按目标文档结构预分配大小，字段按规则顺序输出
+     */
+    public Map<String, Object> newTargetMap() {
+        return targetShape.newRootMap();
+    }
+    
+    /**
+     * 编译映射配置
+     *
+     * @param config 映射配置
+     * @param strategies 已注册的转换策略（key为策略类型名称）
+     * @return 编译后的映射计划
+     */
+    public static CompiledMappingPlan compile(MappingConfig config, Map<String, TransformStrategy> strategies) {
+        return compile(config, strategies, PlanMetrics.NOOP);
+    }
+    
+    /**
+     * 编译映射配置，并为转换函数加上指标记录
+     *
+     * @param config 映射配置
+     * @param strategies 已注册的转换策略（key为策略类型名称）
+     * @param metrics 计划的指标
+     * @return 编译后的映射计划
+     */
+    public static CompiledMappingPlan compile(MappingConfig config, Map<String, TransformStrategy> strategies,
+                                              PlanMetrics metrics) {
+        return compile(config, strategies, metrics, false);
+    }
+    
+    /**
+     * 编译映射配置，可选生成专用的转换器类
+     *
+     * @param config 映射配置
+     * @param strategies 已注册的转换策略（key为策略类型名称）
+     * @param metrics 计划的指标
+     * @param generate 是否生成转换器（生成需要编译一个类，适合长期使用的计划）
+     * @return 编译后的映射计划
+     */
+    public static CompiledMappingPlan compile(MappingConfig config, Map<String, TransformStrategy> strategies,
+                                              PlanMetrics metrics, boolean generate) {
+        List<MappingRule> activeRules = new ArrayList<>();
+        if (config.getRules() != null) {
+            for (MappingRule rule : config.getRules()) {
+                if (rule.getTransformType() != TransformType.IGNORE) {
+                    activeRules.add(rule);
+                }
+            }
+        }
+        
+        TargetShape targetShape = TargetShape.of(collectTargetPaths(activeRules));
+        List<CompiledRule> compiledRules = new ArrayList<>(activeRules.size());
+        for (MappingRule rule : activeRules) {
+            compiledRules.add(compileRule(rule, strategies, metrics, targetShape, generate));
+        }
+        return new CompiledMappingPlan(config, compiledRules, metrics, targetShape, generate);
+    }
+    
+    /**
+     * 按规则顺序收集所有目标路径（包括1对多映射的子映射目标路径）
+     */
+    @SuppressWarnings("unchecked")
+    private static List<String> collectTargetPaths(List<MappingRule> rules) {
+        List<String> targetPaths = new ArrayList<>();
+        for (MappingRule rule : rules) {
+            if (rule.getMappingType() == MappingType.ONE_TO_MANY && rule.getTransformConfig() != null
+                    && rule.getTransformConfig().get("subMappings") instanceof List) {
+                for (Object subMapping : (List<Object>) rule.getTransformConfig().get("subMappings")) {
+                    if (subMapping instanceof Map && ((Map<String, Object>) subMapping).get("targetPath") instanceof String) {
+                        targetPaths.add((String) ((Map<String, Object>) subMapping).get("targetPath"));
+                    }
+                }
+            } else {
+                targetPaths.add(targetPathOf(rule));
+            }
+        }
+        return targetPaths;
+    }
+    
+    /**
+     * 规则的目标路径，数组映射的目标路径可以写成 records[]，按 records 处理
+     */
+    private static String targetPathOf(MappingRule rule) {
+        String targetPath = rule.getTargetPath();
+        if (rule.getMappingType() == MappingType.ARRAY && targetPath != null && targetPath.endsWith(ARRAY_SUFFIX)) {
+            return targetPath.substring(0, targetPath.length() - ARRAY_SUFFIX.length());
+        }
+        return targetPath;
+    }
+    
+    /**
+     * 编译单个规则
+     */
+    private static CompiledRule compileRule(MappingRule rule, Map<String, TransformStrategy> strategies,
+                                            PlanMetrics metrics, TargetShape targetShape, boolean generate) {
+        MappingType mappingType = rule.getMappingType() != null ? rule.getMappingType() : MappingType.ONE_TO_ONE;
+        String sourcePath = rule.getSourcePath() != null && !rule.getSourcePath().isEmpty()
+                ? PathUtil.xpathToJsonPath(rule.getSourcePath()) : null;
+        if (mappingType == MappingType.ARRAY && sourcePath != null && sourcePath.endsWith(ALL_ELEMENTS)) {
+            // 数组映射读取数组本身：$.details[*] 与 $.details 相同（只出现一次的XML元素也按单个元素处理）
+            sourcePath = sourcePath.substring(0, sourcePath.length() - ALL_ELEMENTS.length());
+        }
+        List<String> additionalSources = new ArrayList<>();
+        if (rule.getAdditionalSources() != null) {
+            for (String additionalSource : rule.getAdditionalSources()) {
+                additionalSources.add(PathUtil.xpathToJsonPath(additionalSource));
+            }
+        }
+        List<JsonPath> compiledAdditionalSources = new ArrayList<>(additionalSources.size());
+        for (String additionalSource : additionalSources) {
+            compiledAdditionalSources.add(compileJsonPath(additionalSource));
+        }
+        
+        Map<String, Object> ruleConfig = buildRuleConfig(rule);
+        Function<Object, Object> transformer = metrics.timed(rule.getTransformType(),
+                bindTransformer(rule.getTransformType(), ruleConfig, strategies));
+        
+        List<CompiledRule.SubMapping> subMappings = mappingType == MappingType.ONE_TO_MANY
+                ? compileSubMappings(ruleConfig, targetShape) : Collections.emptyList();
+        CompiledMappingPlan elementPlan = mappingType == MappingType.ARRAY
+                ? compileElementPlan(rule, strategies, metrics, generate) : null;
+        
+        return new CompiledRule(rule, mappingType, rule.getTransformType(),
+                sourcePath, sourcePath != null ? compileJsonPath(sourcePath) : null,
+                Collections.unmodifiableList(additionalSources), Collections.unmodifiableList(compiledAdditionalSources),
+                targetShape.size(targetPathOf(rule)), transformer, subMappings, elementPlan);
+    }
+    
+    /**
+     * 编译数组映射的元素计划：子规则以源元素为源数据、输出元素为目标
+     */
+    private static CompiledMappingPlan compileElementPlan(MappingRule rule, Map<String, TransformStrategy> strategies,
+                                                          PlanMetrics metrics, boolean generate) {
+        MappingConfig elementConfig = new MappingConfig();
+        elementConfig.setRules(rule.getSubRules() != null ? rule.getSubRules() : Collections.emptyList());
+        return compile(elementConfig, strategies, metrics, generate);
+    }
+    
+    /**
+     * 预编译JsonPath表达式
+     * 无效表达式记录告警并返回null，执行时按读取失败处理
+     */
+    private static JsonPath compileJsonPath(String path) {
+        try {
+            return JsonPath.compile(path);
+        } catch (Exception e) {
+            log.warn("JsonPath表达式无效: 路径={}, 错误={}", path, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 合并规则配置
+     * 复制transformConfig，对于字典类型把rule上的dictionaryId和dictionaryDirection并入配置
+     */
+    private static Map<String, Object> buildRuleConfig(MappingRule rule) {
+        Map<String, Object> ruleConfig = rule.getTransformConfig() != null
+                ? new HashMap<>(rule.getTransformConfig()) : new HashMap<>();
+        
+        if (rule.getTransformType() == TransformType.DICTIONARY && rule.getDictionaryId() != null) {
+            ruleConfig.put("dictionaryId", rule.getDictionaryId());
+            if (rule.getDictionaryDirection() != null) {
+                ruleConfig.put("dictionaryDirection", rule.getDictionaryDirection());
+            }
+        }
+        return Collections.unmodifiableMap(ruleConfig);
+    }
+    
+    /**
+     * 查找策略并绑定规则配置
+     */
+    private static Function<Object, Object> bindTransformer(TransformType transformType, Map<String, Object> ruleConfig,
+                                                            Map<String, TransformStrategy> strategies) {
+        if (transformType == null) {
+            return Function.identity();
+        }
+        
+        TransformStrategy strategy = strategies.get(transformType.name());
+        if (strategy == null) {
+            log.warn("未找到转换策略: {}", transformType);
+            return Function.identity();
+        }
+        
+        try {
+            return strategy.bind(ruleConfig);
+        } catch (Exception e) {
+            // 预绑定失败时退回逐次调用，由策略在执行时按原逻辑处理错误
+            log.warn("转换策略预绑定失败: {}, 错误: {}", transformType, e.getMessage());
+            return sourceValue -> strategy.transform(sourceValue, ruleConfig);
+        }
+    }
+    
+    /**
+     * 编译1对多映射的子映射配置
+     */
+    private static List<CompiledRule.SubMapping> compileSubMappings(Map<String, Object> ruleConfig,
+                                                                    TargetShape targetShape) {
+        @SuppressWarnings("unchecked")
+        List<Map<String, String>> subMappings = (List<Map<String, String>>) ruleConfig.get("subMappings");
+        if (subMappings == null) {
+            return Collections.emptyList();
+        }
+        
+        List<CompiledRule.SubMapping> result = new ArrayList<>(subMappings.size());
+        for (Map<String, String> subMapping : subMappings) {
+            String subSourcePath = subMapping.get("sourcePath");
+            String subTargetPath = subMapping.get("targetPath");
+            if (subSourcePath == null || subTargetPath == null) {
+                continue;
+            }
+            
+            Integer index = null;
+            String indexStr = subMapping.get("index");
+            if (subSourcePath.isEmpty() && indexStr != null) {
+                try {
+                    index = Integer.parseInt(indexStr);
+                } catch (NumberFormatException e) {
+                    log.warn("无效的索引: {}", indexStr);
+                }
+            }
+            result.add(new CompiledRule.SubMapping(CompiledPath.of(subSourcePath), index,
+                    targetShape.size(subTargetPath)));
+        }
+        return result;
+    }
+}
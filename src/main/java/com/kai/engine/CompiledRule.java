@@ -0,0 +1,128 @@
+package com.kai.engine;
+
+import com.jayway.jsonpath.JsonPath;
+import com.kai.enums.MappingType;
+import com.kai.enums.TransformType;
+import com.kai.model.MappingRule;
+import com.kai.util.CompiledPath;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 编译后的映射规则
+ * 在编译阶段完成映射类型判定、策略查找、规则配置合并和目标路径拆分，
+ * 执行阶段直接使用这些预先解析好的结果
+ */
+@Getter
+public class CompiledRule {
+    
+    /**
+     * 原始规则（用于日志和调试）
+     */
+    private final MappingRule rule;
+    
+    /**
+     * 映射类型（为空时已归一化为ONE_TO_ONE）
+     */
+    private final MappingType mappingType;
+    
+    /**
+     * 转换类型
+     */
+    private final TransformType transformType;
+    
+    /**
+     * 源路径（JsonPath表达式），为空表示没有源值（如固定值）
+     */
+    private final String sourcePath;
+    
+    /**
+     * 预编译的源路径，路径为空或无效时为null
+     */
+    private final JsonPath compiledSourcePath;
+    
+    /**
+     * 额外源路径（多对1映射）
+     */
+    private final List<String> additionalSources;
+    
+    /**
+     * 预编译的额外源路径，与additionalSources一一对应，无效路径对应null
+     */
+    private final List<JsonPath> compiledAdditionalSources;
+    
+    /**
+     * 预解析的目标路径
+     */
+    private final CompiledPath targetPath;
+    
+    /**
+     * 已绑定规则配置的转换函数
+     */
+    private final Function<Object, Object> transformer;
+    
+    /**
+     * 1对多映射的子映射（其他映射类型为空列表）
+     */
+    private final List<SubMapping> subMappings;
+    
+    /**
+     * 数组映射的元素计划（由子规则编译，其他映射类型为null）
+     */
+    private final CompiledMappingPlan elementPlan;
+    
+    public CompiledRule(MappingRule rule, MappingType mappingType, TransformType transformType,
+                        String sourcePath, JsonPath compiledSourcePath,
+                        List<String> additionalSources, List<JsonPath> compiledAdditionalSources,
+                        CompiledPath targetPath, Function<Object, Object> transformer, List<SubMapping> subMappings,
+                        CompiledMappingPlan elementPlan) {
+        this.rule = rule;
+        this.mappingType = mappingType;
+        this.transformType = transformType;
+        this.sourcePath = sourcePath;
+        this.compiledSourcePath = compiledSourcePath;
+        this.additionalSources = additionalSources;
+        this.compiledAdditionalSources = compiledAdditionalSources;
+        this.targetPath = targetPath;
+        this.transformer = transformer;
+        this.subMappings = subMappings;
+        this.elementPlan = elementPlan;
+    }
+    
+    /**
+     * 是否有源路径
+     */
+    public boolean hasSourcePath() {
+        return sourcePath != null;
+    }
+    
+    /**
+     * 编译后的1对多子映射
+     */
+    @Getter
+    public static class SubMapping {
+        
+        /**
+         * 预解析的子源路径，为空路径表示按索引取值
+         */
+        private final CompiledPath sourcePath;
+        
+        /**
+         * 索引（按索引取值时使用），无效或未配置时为null
+         */
+        private final Integer index;
+        
+        /**
+         * 预解析的目标路径
+         */
+        private final CompiledPath targetPath;
+        
+        public SubMapping(CompiledPath sourcePath, Integer index, CompiledPath targetPath) {
+            this.sourcePath = sourcePath;
+            this.index = index;
+            this.targetPath = targetPath;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.kai.engine;
+
+import java.util.Map;
+
+/**
+ * 由映射计划生成的转换器
+ * 与解释执行 {@link CompiledMappingPlan#getRules()} 的结果一致：按规则顺序读取源值、执行转换并写入目标Map
+ * 实现类由 {@link TransformerGenerator} 为每个计划单独生成，可在多线程间共享
+ */
+public interface CompiledTransformer {
+    
+    /**
+     * 对一条报文执行所有规则
+     *
+     * @param sourceMap 解析后的源数据
+     * @param targetMap 目标Map（由 {@link CompiledMappingPlan#newTargetMap()} 创建）
+     */
+    void transform(Map<String, Object> sourceMap, Map<String, Object> targetMap);
+}
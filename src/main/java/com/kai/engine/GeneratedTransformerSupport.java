@@ -0,0 +1,64 @@
+package com.kai.engine;
+
+import com.kai.enums.MappingType;
+import com.kai.metrics.PlanMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 解释执行和生成的转换器共用的运行时方法
+ * 生成的转换器只引用这里的公开方法，规则失败时的处理与解释执行一致
+ */
+@Slf4j
+public final class GeneratedTransformerSupport {
+    
+    private final List<CompiledRule> rules;
+    
+    private final PlanMetrics metrics;
+    
+    GeneratedTransformerSupport(List<CompiledRule> rules, PlanMetrics metrics) {
+        this.rules = rules;
+        this.metrics = metrics;
+    }
+    
+    /**
+     * 规则执行失败：记录指标和日志，继续执行后续规则
+     *
+     * @param index 规则下标
+     * @param e 异常
+     */
+    public void ruleFailed(int index, Exception e) {
+        CompiledRule rule = rules.get(index);
+        metrics.ruleError(rule);
+        log.error("{}映射执行失败: {}", rule.getMappingType() == MappingType.MANY_TO_ONE ? "多对1" : "1对1", e.getMessage(), e);
+    }
+    
+    /**
+     * 深复制Map/List，其他值原样返回
+     * 从源文档读取到的容器复制一份，避免目标结构与源文档共享引用后被后续规则修改
+     */
+    @SuppressWarnings("unchecked")
+    public static Object copyContainer(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> source = (Map<String, Object>) value;
+            Map<String, Object> copy = new LinkedHashMap<>(source.size() * 4 / 3 + 1);
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                copy.put(entry.getKey(), copyContainer(entry.getValue()));
+            }
+            return copy;
+        }
+        if (value instanceof List) {
+            List<Object> source = (List<Object>) value;
+            List<Object> copy = new ArrayList<>(source.size());
+            for (Object item : source) {
+                copy.add(copyContainer(item));
+            }
+            return copy;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,79 @@
+package com.kai.engine;
+
+import com.kai.enums.TransformType;
+import com.kai.model.MappingRule;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 判断规则的转换结果是否只取决于源值
+ * 结果缓存（见 {@link CompiledMappingPlan#isResultCacheable()}）只对全部规则都确定的计划生效，
+ * 含当前时间、随机数、流水号之类转换的计划每次都重新执行
+ *
+ * 判断方式：
+ * - DIRECT、FIXED、DICTIONARY：确定（字典在缓存有效期内的变更不会体现在已缓存的结果中）
+ * - FUNCTION：预置函数中只有currentDate不确定；自定义函数的脚本在编译计划时不可见，按函数名判断
+ * - CUSTOM_METHOD：按方法名判断，如 StringUtil.generateRandom8Chars
+ * - GROOVY、EXPRESSION：按脚本文本判断，出现随机数、UUID、当前时间、计数器等用法时视为不确定
+ * 按名称和文本判断是保守的近似：宁可误判为不确定（不缓存），名称看不出副作用的自定义函数需由配置自行决定是否开启缓存
+ */
+final class RuleDeterminism {
+    
+    /**
+     * 结果确定的预置函数
+     */
+    private static final Set<String> DETERMINISTIC_FUNCTIONS = Set.of(
+            "upperCase", "lowerCase", "trim", "length", "toInt", "toString", "toDouble");
+    
+    /**
+     * 不确定的函数名、方法名
+     */
+    private static final Pattern NON_DETERMINISTIC_NAME = Pattern.compile(
+            "(?i).*(random|uuid|guid|now|current|time|date|seq|serial|nonce|next|increment).*");
+    
+    /**
+     * 不确定的脚本用法
+     */
+    private static final Pattern NON_DETERMINISTIC_SCRIPT = Pattern.compile(
+            "(?i)random|uuid|\\bnow\\b|new\\s+Date\\b|currentTimeMillis|nanoTime|LocalDate|LocalTime|Instant"
+                    + "|ZonedDateTime|OffsetDateTime|Calendar|Clock|System\\s*\\.|Thread|Atomic|increment|\\+\\+");
+    
+    private RuleDeterminism() {
+    }
+    
+    /**
+     * 规则的转换结果是否只取决于源值
+     */
+    static boolean isDeterministic(MappingRule rule) {
+        TransformType transformType = rule.getTransformType();
+        if (transformType == null) {
+            return true;
+        }
+        Map<String, Object> transformConfig = rule.getTransformConfig();
+        switch (transformType) {
+            case FUNCTION:
+                Object function = configValue(transformConfig, "function");
+                return !(function instanceof String) || DETERMINISTIC_FUNCTIONS.contains(function)
+                        || !NON_DETERMINISTIC_NAME.matcher((String) function).matches();
+            case CUSTOM_METHOD:
+                Object methodName = configValue(transformConfig, "methodName");
+                return !(methodName instanceof String) || !NON_DETERMINISTIC_NAME.matcher((String) methodName).matches();
+            case GROOVY:
+                return isDeterministicScript(configValue(transformConfig, "groovyScript"));
+            case EXPRESSION:
+                return isDeterministicScript(configValue(transformConfig, "expression"));
+            default:
+                return true;
+        }
+    }
+    
+    private static boolean isDeterministicScript(Object script) {
+        return !(script instanceof String) || !NON_DETERMINISTIC_SCRIPT.matcher((String) script).find();
+    }
+    
+    private static Object configValue(Map<String, Object> transformConfig, String key) {
+        return transformConfig != null ? transformConfig.get(key) : null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.kai.engine;
+
+import com.kai.util.CompiledPath;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 目标文档的结构
+ * 编译时由规则列表的目标路径推导出每一级对象的字段数量，执行时按此预分配LinkedHashMap，避免扩容；
+ * 字段按规则顺序写入，输出顺序固定
+ */
+public class TargetShape {
+    
+    /**
+     * 数组下标片段在结构树中的键（同一数组的所有元素合并统计）
+     */
+    private static final String INDEX_KEY = "[]";
+    
+    private final Node root = new Node();
+    
+    /**
+     * 由目标路径列表推导结构
+     *
+     * @param targetPaths 按规则顺序排列的目标路径
+     * @return 目标文档结构
+     */
+    static TargetShape of(List<String> targetPaths) {
+        TargetShape shape = new TargetShape();
+        for (String targetPath : targetPaths) {
+            CompiledPath path = CompiledPath.of(targetPath);
+            Node node = shape.root;
+            for (int i = 0; i < path.size(); i++) {
+                node = node.children.computeIfAbsent(segmentKey(path, i), key -> new Node());
+            }
+        }
+        return shape;
+    }
+    
+    /**
+     * 为目标路径加上各级对象的预期字段数
+     *
+     * @param targetPath 目标路径
+     * @return 预先确定了中间对象大小的路径
+     */
+    CompiledPath size(String targetPath) {
+        CompiledPath path = CompiledPath.of(targetPath);
+        if (path.isEmpty()) {
+            return path;
+        }
+        int[] sizes = new int[path.size()];
+        Node node = root;
+        for (int i = 0; i < path.size() && node != null; i++) {
+            node = node.children.get(segmentKey(path, i));
+            sizes[i] = node != null ? node.children.size() : 0;
+        }
+        return path.withMapSizes(sizes);
+    }
+    
+    /**
+     * 创建目标文档的根对象
+     */
+    public Map<String, Object> newRootMap() {
+        return CompiledPath.newMap(root.children.size());
+    }
+    
+    private static String segmentKey(CompiledPath path, int i) {
+        String key = path.getKey(i);
+        return key != null ? key : INDEX_KEY;
+    }
+    
+    private static class Node {
+        
+        private final Map<String, Node> children = new HashMap<>();
+    }
+}
@@ -0,0 +1,248 @@
+package com.kai.engine;
+
+import com.kai.enums.MappingType;
+import com.kai.enums.TransformType;
+import com.kai.metrics.PlanMetrics;
+import com.kai.util.CompiledPath;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 为映射计划生成专用的转换器类
+ * 把规则列表展开为一段顺序执行的代码，用Groovy静态编译（@CompileStatic）为普通的JVM字节码：
+ * - 源路径直接按预解析的路径逐级读取Map/List，不经过JsonPath文档
+ * - DIRECT规则不调用转换函数，未开启策略计时的FIXED规则直接写入常量
+ * - 其他转换类型（FUNCTION、DICTIONARY等）调用已绑定的转换函数，每条规则一个独立的调用点
+ * 生成的类只服务于一个计划，JIT看到的是没有循环和分支选择的直线代码，调用点都是单态的
+ *
+ * 适用条件：没有1对多映射和数组映射（数组映射的元素计划单独生成），所有源路径都是简单的点分路径（可带数组下标），如 $.header.items[0].code；
+ * 读取结果与JsonPath一致（路径不存在或中间节点类型不符时为null），不满足条件或生成失败时返回null，计划继续解释执行
+ */
+@Slf4j
+public final class TransformerGenerator {
+    
+    /**
+     * 简单源路径：$.a.b[0].c
+     */
+    private static final Pattern SIMPLE_PATH = Pattern.compile("^\\$(\\.[^.\\[\\]()*?@$'\", ]+(\\[\\d{1,9}])*)+$");
+    
+    /**
+     * 每个生成方法包含的规则数，避免方法超过JIT的大方法限制（HugeMethodLimit，8000字节）而不被编译
+     */
+    private static final int RULES_PER_METHOD = 32;
+    
+    private static final AtomicLong CLASS_COUNTER = new AtomicLong();
+    
+    private TransformerGenerator() {
+    }
+    
+    /**
+     * 为编译后的规则生成转换器
+     *
+     * @param rules 编译后的规则
+     * @param metrics 计划的指标（规则失败时记录）
+     * @return 转换器，不满足条件或生成失败时返回null
+     */
+    static CompiledTransformer generate(List<CompiledRule> rules, PlanMetrics metrics) {
+        List<CompiledPath> sourcePaths = new ArrayList<>();
+        List<CompiledPath> targetPaths = new ArrayList<>();
+        List<Function<Object, Object>> transformers = new ArrayList<>();
+        List<Object> constants = new ArrayList<>();
+        StringBuilder body = new StringBuilder();
+        List<String> methods = new ArrayList<>();
+        
+        for (int i = 0; i < rules.size(); i++) {
+            CompiledRule rule = rules.get(i);
+            if (rule.getMappingType() == MappingType.ONE_TO_MANY || rule.getMappingType() == MappingType.ARRAY) {
+                return null;
+            }
+            String ruleCode = rule.getMappingType() == MappingType.MANY_TO_ONE
+                    ? manyToOne(i, rule, sourcePaths, targetPaths, transformers)
+                    : oneToOne(i, rule, metrics, sourcePaths, targetPaths, transformers, constants);
+            if (ruleCode == null) {
+                return null;
+            }
+            body.append(ruleCode);
+            if ((i + 1) % RULES_PER_METHOD == 0 || i == rules.size() - 1) {
+                methods.add(body.toString());
+                body.setLength(0);
+            }
+        }
+        
+        String className = "GeneratedTransformer" + CLASS_COUNTER.incrementAndGet();
+        String source = classSource(className, methods);
+        long start = System.nanoTime();
+        GroovyClassLoader classLoader = new GroovyClassLoader(TransformerGenerator.class.getClassLoader());
+        try {
+            Class<?> generatedClass = classLoader.parseClass(new GroovyCodeSource(source, className + ".groovy", "/groovy/codegen"), false);
+            CompiledTransformer transformer = (CompiledTransformer) generatedClass
+                    .getConstructor(GeneratedTransformerSupport.class, CompiledPath[].class, CompiledPath[].class,
+                            Function[].class, Object[].class)
+                    .newInstance(new GeneratedTransformerSupport(rules, metrics), sourcePaths.toArray(new CompiledPath[0]),
+                            targetPaths.toArray(new CompiledPath[0]), transformers.toArray(new Function[0]), constants.toArray());
+            log.debug("已生成转换器 {}，规则数: {}，耗时: {}ms", className, rules.size(), (System.nanoTime() - start) / 1_000_000);
+            return transformer;
+        } catch (Exception | LinkageError e) {
+            log.warn("生成转换器失败，继续解释执行: {}", e.getMessage());
+            try {
+                classLoader.close();
+            } catch (IOException ignored) {
+                // 类加载器不持有外部资源
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * 1对1规则：读取源值（DIRECT以外的规则经过转换函数）后写入目标路径
+     */
+    private static String oneToOne(int index, CompiledRule rule, PlanMetrics metrics, List<CompiledPath> sourcePaths,
+                                   List<CompiledPath> targetPaths, List<Function<Object, Object>> transformers,
+                                   List<Object> constants) {
+        String target = "targetPaths[" + add(targetPaths, rule.getTargetPath()) + "]";
+        Function<Object, Object> transformer = rule.getTransformer();
+        if (rule.getTransformType() == TransformType.FIXED && !metrics.isStrategyTiming()
+                && transformer != Function.<Object>identity()) {
+            // 固定值与源值无关，编译时取出常量
+            return "        try {\n"
+                    + "            " + target + ".set(target, constants[" + add(constants, transformer.apply(null)) + "])\n"
+                    + "        } catch (Exception e) {\n"
+                    + "            support.ruleFailed(" + index + ", e)\n"
+                    + "        }\n";
+        }
+        
+        String read = "null";
+        if (rule.hasSourcePath()) {
+            CompiledPath sourcePath = simplePath(rule.getSourcePath(), rule.getCompiledSourcePath() != null);
+            if (sourcePath == null) {
+                return null;
+            }
+            if (!sourcePath.isEmpty()) {
+                read = "GeneratedTransformerSupport.copyContainer(sourcePaths[" + add(sourcePaths, sourcePath) + "].get(source))";
+            }
+        }
+        String value = transformer == Function.<Object>identity() ? read
+                : "transformers[" + add(transformers, transformer) + "].apply(" + read + ")";
+        return "        try {\n"
+                + "            " + target + ".set(target, " + value + ")\n"
+                + "        } catch (Exception e) {\n"
+                + "            support.ruleFailed(" + index + ", e)\n"
+                + "        }\n";
+    }
+    
+    /**
+     * 多对1规则：非null的源值按顺序组成List交给转换函数，结果非null时写入目标路径
+     */
+    private static String manyToOne(int index, CompiledRule rule, List<CompiledPath> sourcePaths,
+                                    List<CompiledPath> targetPaths, List<Function<Object, Object>> transformers) {
+        StringBuilder code = new StringBuilder();
+        code.append("        try {\n");
+        code.append("            List<Object> values = new ArrayList<Object>(").append(rule.getAdditionalSources().size() + 1).append(")\n");
+        code.append("            Object value\n");
+        if (rule.hasSourcePath() && !appendRead(code, rule.getSourcePath(), rule.getCompiledSourcePath() != null, sourcePaths)) {
+            return null;
+        }
+        for (int i = 0; i < rule.getAdditionalSources().size(); i++) {
+            if (!appendRead(code, rule.getAdditionalSources().get(i), rule.getCompiledAdditionalSources().get(i) != null, sourcePaths)) {
+                return null;
+            }
+        }
+        code.append("            Object result = transformers[").append(add(transformers, rule.getTransformer())).append("].apply(values)\n");
+        code.append("            if (result != null) {\n");
+        code.append("                targetPaths[").append(add(targetPaths, rule.getTargetPath())).append("].set(target, result)\n");
+        code.append("            }\n");
+        code.append("        } catch (Exception e) {\n");
+        code.append("            support.ruleFailed(").append(index).append(", e)\n");
+        code.append("        }\n");
+        return code.toString();
+    }
+    
+    /**
+     * 多对1规则读取一个源路径，无效路径（解释执行时读取为null）不生成代码
+     *
+     * @return false表示路径不是简单路径
+     */
+    private static boolean appendRead(StringBuilder code, String path, boolean valid, List<CompiledPath> sourcePaths) {
+        CompiledPath sourcePath = simplePath(path, valid);
+        if (sourcePath == null) {
+            return false;
+        }
+        if (sourcePath.isEmpty()) {
+            return true;
+        }
+        code.append("            value = GeneratedTransformerSupport.copyContainer(sourcePaths[")
+                .append(add(sourcePaths, sourcePath)).append("].get(source))\n");
+        code.append("            if (value != null) {\n");
+        code.append("                values.add(value)\n");
+        code.append("            }\n");
+        return true;
+    }
+    
+    /**
+     * 把JsonPath形式的简单源路径转换为CompiledPath
+     *
+     * @param valid JsonPath是否有效，无效路径返回空路径（不读取，值为null）
+     * @return 解析后的路径，不是简单路径时返回null
+     */
+    private static CompiledPath simplePath(String path, boolean valid) {
+        if (!valid) {
+            return CompiledPath.of(null);
+        }
+        // 与JsonPath一致：不以$开头的路径视为从根开始
+        String trimmed = path.trim();
+        String jsonPath = trimmed.startsWith("$") ? trimmed : "$." + trimmed;
+        if (!SIMPLE_PATH.matcher(jsonPath).matches()) {
+            return null;
+        }
+        return CompiledPath.compile(jsonPath.substring(2));
+    }
+    
+    private static <T> int add(List<T> values, T value) {
+        values.add(value);
+        return values.size() - 1;
+    }
+    
+    private static String classSource(String className, List<String> methods) {
+        StringBuilder source = new StringBuilder();
+        source.append("import com.kai.engine.CompiledTransformer\n");
+        source.append("import com.kai.engine.GeneratedTransformerSupport\n");
+        source.append("import com.kai.util.CompiledPath\n");
+        source.append("import java.util.function.Function\n\n");
+        source.append("@groovy.transform.CompileStatic\n");
+        source.append("class ").append(className).append(" implements CompiledTransformer {\n\n");
+        source.append("    private final GeneratedTransformerSupport support\n");
+        source.append("    private final CompiledPath[] sourcePaths\n");
+        source.append("    private final CompiledPath[] targetPaths\n");
+        source.append("    private final Function<Object, Object>[] transformers\n");
+        source.append("    private final Object[] constants\n\n");
+        source.append("    ").append(className).append("(GeneratedTransformerSupport support, CompiledPath[] sourcePaths, ")
+                .append("CompiledPath[] targetPaths, Function<Object, Object>[] transformers, Object[] constants) {\n");
+        source.append("        this.support = support\n");
+        source.append("        this.sourcePaths = sourcePaths\n");
+        source.append("        this.targetPaths = targetPaths\n");
+        source.append("        this.transformers = transformers\n");
+        source.append("        this.constants = constants\n");
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    void transform(Map<String, Object> source, Map<String, Object> target) {\n");
+        for (int i = 0; i < methods.size(); i++) {
+            source.append("        rules").append(i).append("(source, target)\n");
+        }
+        source.append("    }\n");
+        for (int i = 0; i < methods.size(); i++) {
+            source.append("\n    private void rules").append(i).append("(Map<String, Object> source, Map<String, Object> target) {\n");
+            source.append(methods.get(i));
+            source.append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+}
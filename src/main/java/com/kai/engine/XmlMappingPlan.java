@@ -0,0 +1,312 @@
+package com.kai.engine;
+
+import com.kai.enums.MappingType;
+import com.kai.util.MessageConverterUtil;
+import com.kai.util.PathUtil;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 原生XML管道的执行计划
+ * 用于XML到XML的配置：通过StAX游标只读取规则源路径上的元素和属性，不构建完整的源Map，也不经过JsonPath
+ *
+ * 适用条件（编译时分析，不满足时为null，走常规管道）：
+ * 1. 源协议为XML，目标协议为XML或未配置
+ * 2. 没有1对多映射和数组映射
+ * 3. 源路径（含额外源路径）为简单点分路径，如 $.Header.TxnCode，或可转换为此形式的类XPath路径，如 /Root/Header/@id
+ *
+ * 读取结果与解析为Map后用JsonPath读取一致：根元素名不参与匹配，属性与子元素同名匹配，取元素的文本内容。
+ * 执行时遇到解析为Map后结构不同的情况（读取的元素带属性或子元素、路径上的元素重复出现等）返回null，由调用方回退到常规管道
+ * 计划本身不可变，可在多线程间安全共享
+ */
+public class XmlMappingPlan {
+    
+    /**
+     * 表示路径在源数据中不存在
+     */
+    private static final Object MISSING = new Object();
+    
+    /**
+     * 简单源路径：$.a.b.c
+     */
+    private static final Pattern SIMPLE_PATH = Pattern.compile("^\\$(\\.[^.\\[\\]()*?@$]+)+$");
+    
+    /**
+     * 路径前缀树的根节点（对应XML根元素）
+     */
+    private final PathNode root = new PathNode();
+    
+    /**
+     * 源路径（规则中的原始字符串）到读取结果下标的映射
+     */
+    private final Map<String, Integer> captureIndexes = new HashMap<>();
+    
+    private int nodeCount = 1;
+    
+    private XmlMappingPlan() {
+    }
+    
+    /**
+     * 分析编译后的规则是否可以走原生XML管道
+     *
+     * @param sourceProtocol 源协议
+     * @param targetProtocol 目标协议
+     * @param rules 编译后的规则
+     * @return 执行计划，不满足条件时返回null
+     */
+    static XmlMappingPlan analyze(String sourceProtocol, String targetProtocol, List<CompiledRule> rules) {
+        if (!"XML".equalsIgnoreCase(sourceProtocol)
+                || (targetProtocol != null && !targetProtocol.isEmpty() && !"XML".equalsIgnoreCase(targetProtocol))) {
+            return null;
+        }
+        
+        XmlMappingPlan xmlPlan = new XmlMappingPlan();
+        for (CompiledRule rule : rules) {
+            if (rule.getMappingType() == MappingType.ONE_TO_MANY || rule.getMappingType() == MappingType.ARRAY) {
+                return null;
+            }
+            if (rule.hasSourcePath() && !xmlPlan.addPath(rule.getSourcePath(), rule.getCompiledSourcePath() != null)) {
+                return null;
+            }
+            for (int i = 0; i < rule.getAdditionalSources().size(); i++) {
+                if (!xmlPlan.addPath(rule.getAdditionalSources().get(i), rule.getCompiledAdditionalSources().get(i) != null)) {
+                    return null;
+                }
+            }
+        }
+        return xmlPlan;
+    }
+    
+    /**
+     * 登记一个源路径，无效的JsonPath（常规管道读取为null）不登记
+     */
+    private boolean addPath(String sourcePath, boolean valid) {
+        if (!valid || captureIndexes.containsKey(sourcePath)) {
+            return true;
+        }
+        String trimmed = sourcePath.trim();
+        String jsonPath = trimmed.startsWith("$") ? trimmed : "$." + trimmed;
+        if (!SIMPLE_PATH.matcher(jsonPath).matches()) {
+            return false;
+        }
+        
+        PathNode node = root;
+        for (String segment : PathUtil.parsePath(jsonPath.substring(1))) {
+            PathNode child = node.children.get(segment);
+            if (child == null) {
+                child = new PathNode();
+                child.id = nodeCount++;
+                node.children.put(segment, child);
+            }
+            node = child;
+        }
+        if (node.captureIndex < 0) {
+            node.captureIndex = captureIndexes.size();
+        }
+        captureIndexes.put(sourcePath, node.captureIndex);
+        return true;
+    }
+    
+    /**
+     * 读取源XML中所有规则源路径的值
+     *
+     * @param sourceData 源XML字符串
+     * @return 读取结果，无法保证与常规管道一致时返回null
+     */
+    public XmlSource read(String sourceData) {
+        XMLInputFactory inputFactory = MessageConverterUtil.getXmlMapper().getFactory().getXMLInputFactory();
+        XMLStreamReader reader = null;
+        try {
+            reader = inputFactory.createXMLStreamReader(new StringReader(sourceData));
+            while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+                // 跳过XML声明、注释等，定位到根元素
+            }
+            if (!reader.isStartElement()) {
+                return null;
+            }
+            XmlSource source = new XmlSource(this);
+            return source.walk(reader, root) ? source : null;
+        } catch (XMLStreamException e) {
+            // 格式错误的报文交给常规管道，按原有方式报告解析错误
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // 读取器不持有外部资源
+                }
+            }
+        }
+    }
+    
+    /**
+     * 源路径前缀树节点，一个节点对应一个元素名或属性名
+     */
+    private static class PathNode {
+        
+        private final Map<String, PathNode> children = new HashMap<>();
+        
+        /**
+         * 节点编号，用于记录元素是否已出现
+         */
+        private int id;
+        
+        /**
+         * 规则路径的终点在读取结果中的下标，非终点为-1
+         */
+        private int captureIndex = -1;
+    }
+    
+    /**
+     * 单条报文的读取结果
+     */
+    public static class XmlSource {
+        
+        private final XmlMappingPlan xmlPlan;
+        
+        private final Object[] values;
+        
+        private final boolean[] seen;
+        
+        private XmlSource(XmlMappingPlan xmlPlan) {
+            this.xmlPlan = xmlPlan;
+            this.values = new Object[xmlPlan.captureIndexes.size()];
+            this.seen = new boolean[xmlPlan.nodeCount];
+            Arrays.fill(values, MISSING);
+        }
+        
+        /**
+         * 按源路径取值
+         *
+         * @param sourcePath 规则中的源路径
+         * @return 元素文本或属性值，不存在时返回null
+         */
+        public Object read(String sourcePath) {
+            Integer index = xmlPlan.captureIndexes.get(sourcePath);
+            if (index == null) {
+                return null;
+            }
+            Object value = values[index];
+            return value == MISSING ? null : value;
+        }
+        
+        /**
+         * 遍历当前元素（读取器位于START_ELEMENT），只进入规则路径上的子元素
+         *
+         * @return false表示遇到与Map解析结构不一致的情况
+         */
+        private boolean walk(XMLStreamReader reader, PathNode node) throws XMLStreamException {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                PathNode child = node.children.get(reader.getAttributeLocalName(i));
+                if (child != null) {
+                    if (!markSeen(child)) {
+                        return false;
+                    }
+                    capture(child, reader.getAttributeValue(i));
+                }
+            }
+            
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    return true;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                PathNode child = node.children.get(reader.getLocalName());
+                if (child == null) {
+                    skipElement(reader);
+                } else if (!markSeen(child)) {
+                    return false;
+                } else if (child.captureIndex >= 0) {
+                    // 带属性或子元素的元素解析为Map后是对象，交给常规管道
+                    String text = reader.getAttributeCount() == 0 ? readText(reader) : null;
+                    if (text == null) {
+                        return false;
+                    }
+                    capture(child, text);
+                } else if (!walk(reader, child)) {
+                    return false;
+                }
+            }
+            return false;
+        }
+        
+        /**
+         * 同名元素（或同名的属性和元素）重复出现时，解析为Map后是列表
+         */
+        private boolean markSeen(PathNode node) {
+            if (seen[node.id]) {
+                return false;
+            }
+            seen[node.id] = true;
+            return true;
+        }
+        
+        /**
+         * 记录路径终点的值；终点之下还有其他规则的路径时，它们在字符串上读取为null，无需处理
+         */
+        private void capture(PathNode node, String value) {
+            if (node.captureIndex >= 0) {
+                values[node.captureIndex] = value;
+            }
+        }
+        
+        /**
+         * 读取只含文本的元素内容（读取器位于START_ELEMENT，返回时位于对应的END_ELEMENT）
+         * 文本、CDATA之间的注释忽略，空元素为空字符串；含子元素时返回null
+         */
+        private String readText(XMLStreamReader reader) throws XMLStreamException {
+            StringBuilder text = null;
+            String first = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                switch (event) {
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                    case XMLStreamConstants.ENTITY_REFERENCE:
+                        if (first == null) {
+                            first = reader.getText();
+                        } else {
+                            if (text == null) {
+                                text = new StringBuilder(first);
+                            }
+                            text.append(reader.getText());
+                        }
+                        break;
+                    case XMLStreamConstants.START_ELEMENT:
+                        return null;
+                    case XMLStreamConstants.END_ELEMENT:
+                        return text != null ? text.toString() : first != null ? first : "";
+                    default:
+                        break;
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * 跳过当前元素及其子树（读取器位于START_ELEMENT，返回时位于对应的END_ELEMENT）
+         */
+        private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0 && reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+    }
+}
@@ -17,6 +17,11 @@ public enum MappingType {
     /**
      * 多对1映射：多个源字段映射到一个目标字段
      */
-    MANY_TO_ONE
+    MANY_TO_ONE,
+    
+    /**
+     * 数组映射：源数组的每个元素按子规则映射为一个目标对象，结果按源顺序组成目标数组
+     */
+    ARRAY
 }
 
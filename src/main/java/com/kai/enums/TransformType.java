@@ -19,6 +19,11 @@ public enum TransformType {
      */
     GROOVY,
     
+    /**
+     * MVEL表达式（单行表达式，编译一次后执行，开销远低于Groovy脚本）
+     */
+    EXPRESSION,
+    
     /**
      * 字典映射
      */
@@ -0,0 +1,175 @@
+package com.kai.metrics;
+
+import com.kai.engine.CompiledRule;
+import com.kai.enums.TransformType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 单个映射计划的指标
+ * 在编译计划时按配置名称、版本和银行预先创建计时器和计数器，转换时直接记录，不再查找注册表
+ * 配置注册表替换或移除计划时通过 {@link #remove()} 移除旧版本的指标，指标序列不随配置修改次数增长
+ * 
+ * 指标：
+ * - transform.requests：整次转换耗时（outcome=success|error）
+ * - transform.stage：各阶段耗时（stage=parse|rules|serialize）
+ * - transform.strategy：各转换策略执行耗时（type=DIRECT|FUNCTION|...）
+ * - transform.errors：解析/序列化失败次数（stage=parse|serialize）
+ * - transform.rule.errors：单条规则执行失败次数（mapping=ONE_TO_ONE|MANY_TO_ONE，type=转换类型）
+ * - transform.result.cache：开启结果缓存的配置的缓存查找次数（result=hit|miss|bypass），命中率为hit/(hit+miss)
+ */
+public class PlanMetrics {
+    
+    /**
+     * 不记录任何指标（未注入MeterRegistry时使用，如单元测试和基准测试）
+     */
+    public static final PlanMetrics NOOP = new PlanMetrics(new CompositeMeterRegistry(), "inline", "none", "unknown", false);
+    
+    private final MeterRegistry registry;
+    
+    private final String configName;
+    
+    private final Tags tags;
+    
+    private final boolean strategyTiming;
+    
+    private final Timer successTimer;
+    
+    private final Timer errorTimer;
+    
+    private final Timer parseTimer;
+    
+    private final Timer rulesTimer;
+    
+    private final Timer serializeTimer;
+    
+    private final Counter parseErrors;
+    
+    private final Counter serializeErrors;
+    
+    private final Counter cacheHits;
+    
+    private final Counter cacheMisses;
+    
+    private final Counter cacheBypasses;
+    
+    PlanMetrics(MeterRegistry registry, String configName, String version, String bankCode, boolean strategyTiming) {
+        this.registry = registry;
+        this.configName = configName;
+        this.tags = Tags.of("config", configName, "version", version, "bank", bankCode);
+        this.strategyTiming = strategyTiming;
+        this.successTimer = registry.timer("transform.requests", tags.and("outcome", "success"));
+        this.errorTimer = registry.timer("transform.requests", tags.and("outcome", "error"));
+        this.parseTimer = registry.timer("transform.stage", tags.and("stage", "parse"));
+        this.rulesTimer = registry.timer("transform.stage", tags.and("stage", "rules"));
+        this.serializeTimer = registry.timer("transform.stage", tags.and("stage", "serialize"));
+        this.parseErrors = registry.counter("transform.errors", tags.and("stage", "parse"));
+        this.serializeErrors = registry.counter("transform.errors", tags.and("stage", "serialize"));
+        this.cacheHits = registry.counter("transform.result.cache", tags.and("result", "hit"));
+        this.cacheMisses = registry.counter("transform.result.cache", tags.and("result", "miss"));
+        this.cacheBypasses = registry.counter("transform.result.cache", tags.and("result", "bypass"));
+    }
+    
+    /**
+     * 为转换函数加上按策略类型的计时（编译阶段调用一次）
+     */
+    public Function<Object, Object> timed(TransformType transformType, Function<Object, Object> transformer) {
+        if (!strategyTiming || transformType == null) {
+            return transformer;
+        }
+        Timer timer = registry.timer("transform.strategy", "type", transformType.name(), "config", configName);
+        return sourceValue -> {
+            long start = System.nanoTime();
+            try {
+                return transformer.apply(sourceValue);
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+    
+    /**
+     * 是否按策略类型记录转换函数耗时（开启时转换函数被计时包装）
+     */
+    public boolean isStrategyTiming() {
+        return strategyTiming;
+    }
+    
+    public void recordTransform(long nanos, boolean success) {
+        (success ? successTimer : errorTimer).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void recordParse(long nanos) {
+        parseTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void recordRules(long nanos) {
+        rulesTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void recordSerialize(long nanos) {
+        serializeTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void parseError() {
+        parseErrors.increment();
+    }
+    
+    public void serializeError() {
+        serializeErrors.increment();
+    }
+    
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+    
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+    
+    /**
+     * 记录一次未使用缓存的转换（规则不确定或源报文超过缓存长度上限）
+     */
+    public void cacheBypass() {
+        cacheBypasses.increment();
+    }
+    
+    /**
+     * 指标标签（配置名称、版本和银行），标签相同的计划共用同一组指标
+     */
+    public Tags getTags() {
+        return tags;
+    }
+    
+    /**
+     * 从注册表中移除本计划的指标（含执行中才创建的规则失败计数器）；按策略类型的计时器不区分版本，不移除
+     * 移除后仍在使用旧计划的请求照常记录，只是不再导出
+     */
+    public void remove() {
+        if (this == NOOP) {
+            return;
+        }
+        for (Meter meter : registry.getMeters()) {
+            if (tags.stream().allMatch(tag -> Objects.equals(meter.getId().getTag(tag.getKey()), tag.getValue()))) {
+                registry.remove(meter);
+            }
+        }
+    }
+    
+    /**
+     * 记录规则执行失败（只在失败路径上查找计数器）
+     */
+    public void ruleError(CompiledRule rule) {
+        String transformType = rule.getTransformType() != null ? rule.getTransformType().name() : "NONE";
+        registry.counter("transform.rule.errors", tags.and("mapping", rule.getMappingType().name(), "type", transformType))
+                .increment();
+    }
+}
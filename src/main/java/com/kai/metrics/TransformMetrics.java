@@ -0,0 +1,41 @@
+package com.kai.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 转换指标工厂
+ * 按配置名称、版本和银行创建 {@link PlanMetrics}，通过 /actuator/prometheus 暴露
+ */
+@Component
+public class TransformMetrics {
+    
+    private static final String UNKNOWN = "unknown";
+    
+    private final MeterRegistry registry;
+    
+    private final boolean strategyTiming;
+    
+    public TransformMetrics(MeterRegistry registry,
+                            @Value("${transform.metrics.strategy-timing:true}") boolean strategyTiming) {
+        this.registry = registry;
+        this.strategyTiming = strategyTiming;
+    }
+    
+    /**
+     * 创建映射计划的指标
+     * 
+     * @param configName 配置名称（直接传入配置的请求使用 "inline"）
+     * @param version 配置版本
+     * @param bankCode 银行编码
+     */
+    public PlanMetrics forConfig(String configName, String version, String bankCode) {
+        return new PlanMetrics(registry, valueOrUnknown(configName), valueOrUnknown(version),
+                valueOrUnknown(bankCode), strategyTiming);
+    }
+    
+    private static String valueOrUnknown(String value) {
+        return value != null && !value.isEmpty() ? value : UNKNOWN;
+    }
+}
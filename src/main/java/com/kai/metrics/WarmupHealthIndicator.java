@@ -0,0 +1,29 @@
+package com.kai.metrics;
+
+import com.kai.service.WarmupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动预热健康检查（/actuator/health/readiness 中的 warmup）
+ * 预热结束前为OUT_OF_SERVICE，实例不接收流量
+ */
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+    
+    @Autowired
+    private WarmupService warmupService;
+    
+    @Override
+    public Health health() {
+        Health.Builder builder = warmupService.isFinished() ? Health.up() : Health.outOfService();
+        builder.withDetail("phase", warmupService.getPhase());
+        if (warmupService.isFinished()) {
+            builder.withDetail("warmedConfigs", warmupService.getWarmedConfigs())
+                    .withDetail("durationMillis", warmupService.getDurationMillis());
+        }
+        return builder.build();
+    }
+}
@@ -44,5 +44,10 @@ public class MappingConfig {
      * 是否包含XML声明（当targetProtocol为XML时使用）
      */
     private Boolean includeXmlDeclaration = false;
+    
+    /**
+     * 是否缓存转换结果（相同源报文直接返回上次的结果），规则含当前时间、随机数等不确定转换时不生效
+     */
+    private Boolean cacheResult = false;
 }
 
@@ -35,12 +35,20 @@ public class MappingRule {
      * ONE_TO_ONE: 1对1
      * ONE_TO_MANY: 1对多
      * MANY_TO_ONE: 多对1
+     * ARRAY: 数组映射（源路径为数组，如 $.details 或 $.details[*]；目标路径为输出数组，如 records）
      */
     private MappingType mappingType;
     
+    /**
+     * 数组映射的元素规则（mappingType为ARRAY时使用）
+     * 对每个源元素执行一遍：源路径相对于源元素（如 $.amount），目标路径相对于输出元素（如 amt）
+     * 可以嵌套ARRAY规则
+     */
+    private List<MappingRule> subRules;
+    
     /**
      * 转换类型
-     * DIRECT, FUNCTION, GROOVY, DICTIONARY, FIXED, IGNORE
+     * DIRECT, FUNCTION, GROOVY, EXPRESSION, DICTIONARY, FIXED, IGNORE
      */
     private TransformType transformType;
     
@@ -50,6 +58,7 @@ public class MappingRule {
      * DIRECT: 无额外配置
      * FUNCTION: {"function": "upperCase"}
      * GROOVY: {"groovyScript": "return input.toUpperCase()"}
+     * EXPRESSION: {"expression": "inputs[0] + '-' + inputs[1]"}
      * DICTIONARY: 不再使用transformConfig，改用dictionaryId和dictionaryDirection
      * FIXED: {"fixedValue": "固定值"}
      */
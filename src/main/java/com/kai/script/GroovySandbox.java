@@ -0,0 +1,315 @@
+package com.kai.script;
+
+import groovy.lang.Binding;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Groovy脚本的受限执行环境
+ * 规则脚本、自定义函数脚本和EXPRESSION规则的MVEL表达式都通过这里执行，单个失控的脚本（死循环、长时间阻塞）不会拖垮整个实例：
+ *
+ * 1. 超时：脚本在专用的有界线程池上执行，调用方最多等待timeout-ms；超时后中断执行线程，
+ *    编译时织入的中断检查（见 {@link GroovyScriptCache}）使脚本在下一个循环或方法入口处终止
+ * 2. 并发限制：同一规则的脚本同时执行（含超时后尚未终止）的数量不超过max-concurrent-per-rule，
+ *    一个配置的慢脚本占不满线程池，其他配置的脚本仍可执行
+ * 3. 熔断：同一规则的脚本连续超时达到failure-threshold次后熔断open-seconds秒，期间不再执行，直接返回原值；
+ *    熔断到期后放行，再次超时立即重新熔断，成功执行一次后恢复
+ *
+ * 并发和熔断状态保存在 {@link Guard} 中，由策略在编译计划绑定规则时通过 {@link #newGuard()} 创建并随绑定后的转换函数持有：
+ * 多个配置使用相同脚本时互不影响，配置修改后旧计划的状态随旧计划一起回收。
+ * 等待并发许可和等待脚本结果共用一个timeout-ms的截止时间，调用方最多等待timeout-ms
+ *
+ * 超时、熔断、并发受限或线程池已满时返回调用方给出的回退值（通常为源值）；脚本本身抛出的异常照常抛给调用方
+ * isolated为false时在调用线程上执行，仍由TimedInterrupt限制Groovy脚本的循环耗时，但无法中断阻塞在I/O等调用中的脚本，
+ * MVEL表达式没有织入的中断检查，只受并发限制
+ *
+ * 指标：
+ * - transform.groovy.sandbox.fallbacks{reason=timeout|circuit_open|concurrency|rejected}：回退次数
+ * - transform.groovy.sandbox.circuit.opened：熔断次数
+ */
+@Slf4j
+@Component
+public class GroovySandbox {
+    
+    /**
+     * 日志中脚本文本的最大长度
+     */
+    private static final int LOG_SCRIPT_LENGTH = 80;
+    
+    @Autowired
+    private GroovyScriptCache scriptCache;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${transform.groovy.sandbox.isolated:true}")
+    private boolean isolated;
+    
+    @Value("${transform.groovy.sandbox.timeout-ms:1000}")
+    private long timeoutMillis;
+    
+    @Value("${transform.groovy.sandbox.pool-size:0}")
+    private int poolSize;
+    
+    @Value("${transform.groovy.sandbox.queue-capacity:1000}")
+    private int queueCapacity;
+    
+    @Value("${transform.groovy.sandbox.max-concurrent-per-rule:0}")
+    private int maxConcurrentPerRule;
+    
+    @Value("${transform.groovy.sandbox.circuit.failure-threshold:5}")
+    private int failureThreshold;
+    
+    @Value("${transform.groovy.sandbox.circuit.open-seconds:30}")
+    private long openSeconds;
+    
+    private ThreadPoolExecutor executor;
+    
+    private Counter timeoutCounter;
+    
+    private Counter circuitOpenCounter;
+    
+    private Counter concurrencyCounter;
+    
+    private Counter rejectedCounter;
+    
+    private Counter circuitOpenedCounter;
+    
+    @PostConstruct
+    public void init() {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors() * 2;
+        if (maxConcurrentPerRule <= 0) {
+            maxConcurrentPerRule = Math.max(1, threads / 2);
+        }
+        timeoutCounter = fallbackCounter("timeout");
+        circuitOpenCounter = fallbackCounter("circuit_open");
+        concurrencyCounter = fallbackCounter("concurrency");
+        rejectedCounter = fallbackCounter("rejected");
+        circuitOpenedCounter = Counter.builder("transform.groovy.sandbox.circuit.opened")
+                .description("Groovy脚本熔断次数").register(meterRegistry);
+        
+        if (isolated) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "groovy-sandbox-" + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            executor.allowCoreThreadTimeOut(true);
+        }
+        log.info("Groovy脚本执行环境已初始化，独立线程池: {}, 线程数: {}, 超时: {}ms, 单规则并发上限: {}",
+                isolated, isolated ? threads : 0, timeoutMillis, maxConcurrentPerRule);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    private Counter fallbackCounter(String reason) {
+        return Counter.builder("transform.groovy.sandbox.fallbacks").tag("reason", reason)
+                .description("Groovy脚本超时、熔断或受限时返回回退值的次数").register(meterRegistry);
+    }
+    
+    /**
+     * 创建一份并发和熔断状态，策略在绑定规则时为每条规则创建一份
+     *
+     * @return 新的状态
+     */
+    public Guard newGuard() {
+        return new Guard(maxConcurrentPerRule);
+    }
+    
+    /**
+     * 在受限环境中执行脚本
+     *
+     * @param guard 规则的并发和熔断状态
+     * @param scriptText 脚本文本
+     * @param binding 本次执行的变量绑定
+     * @param fallback 超时、熔断或受限时的返回值
+     * @return 脚本返回值或回退值
+     * @throws Exception 脚本编译或执行失败
+     */
+    public Object run(Guard guard, String scriptText, Binding binding, Object fallback) throws Exception {
+        if (guard.isOpen()) {
+            circuitOpenCounter.increment();
+            return fallback;
+        }
+        GroovyScriptCache.CompiledScript compiled = scriptCache.get(scriptText);
+        return execute(scriptText, guard, () -> compiled.run(binding), fallback);
+    }
+    
+    /**
+     * 在受限环境中执行已编译的脚本（如MVEL表达式）
+     *
+     * @param guard 规则的并发和熔断状态
+     * @param scriptText 脚本文本，用于日志
+     * @param task 执行脚本
+     * @param fallback 超时、熔断或受限时的返回值
+     * @return 脚本返回值或回退值
+     * @throws Exception 脚本执行失败
+     */
+    public Object run(Guard guard, String scriptText, Callable<Object> task, Object fallback) throws Exception {
+        if (guard.isOpen()) {
+            circuitOpenCounter.increment();
+            return fallback;
+        }
+        return execute(scriptText, guard, task, fallback);
+    }
+    
+    /**
+     * 在受限环境中执行未绑定到规则的脚本，每次使用新的状态，只受超时限制
+     *
+     * @param scriptText 脚本文本
+     * @param binding 本次执行的变量绑定
+     * @param fallback 超时或线程池已满时的返回值
+     * @return 脚本返回值或回退值
+     * @throws Exception 脚本编译或执行失败
+     */
+    public Object run(String scriptText, Binding binding, Object fallback) throws Exception {
+        return run(newGuard(), scriptText, binding, fallback);
+    }
+    
+    private Object execute(String scriptText, Guard guard, Callable<Object> task, Object fallback) throws Exception {
+        // 等待许可和等待结果共用同一截止时间
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (!guard.permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            concurrencyCounter.increment();
+            log.warn("Groovy脚本并发执行数已达上限 {}，返回原值: {}", maxConcurrentPerRule, abbreviate(scriptText));
+            return fallback;
+        }
+        
+        if (!isolated) {
+            try {
+                Object result = task.call();
+                guard.recordSuccess();
+                return result;
+            } catch (Exception e) {
+                if (e instanceof TimeoutException) {
+                    return timedOut(guard, scriptText, fallback);
+                }
+                throw e;
+            } finally {
+                guard.permits.release();
+            }
+        }
+        
+        Future<Object> future;
+        try {
+            // 许可在脚本真正结束时才释放，超时后仍在运行的脚本继续计入并发数
+            future = executor.submit(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    guard.permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            guard.permits.release();
+            rejectedCounter.increment();
+            log.warn("Groovy脚本线程池已满，返回原值: {}", abbreviate(scriptText));
+            return fallback;
+        }
+        
+        try {
+            Object result = future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            guard.recordSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return timedOut(guard, scriptText, fallback);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                return timedOut(guard, scriptText, fallback);
+            }
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+    
+    private Object timedOut(Guard guard, String scriptText, Object fallback) {
+        timeoutCounter.increment();
+        if (guard.recordTimeout()) {
+            circuitOpenedCounter.increment();
+            log.error("Groovy脚本连续超时 {} 次，熔断 {} 秒: {}", failureThreshold, openSeconds, abbreviate(scriptText));
+        } else {
+            log.warn("Groovy脚本执行超过 {}ms，返回原值: {}", timeoutMillis, abbreviate(scriptText));
+        }
+        return fallback;
+    }
+    
+    private static String abbreviate(String scriptText) {
+        String oneLine = scriptText.replaceAll("\\s+", " ").trim();
+        return oneLine.length() <= LOG_SCRIPT_LENGTH ? oneLine : oneLine.substring(0, LOG_SCRIPT_LENGTH) + "...";
+    }
+    
+    /**
+     * 单条规则的并发许可和熔断状态
+     */
+    public final class Guard {
+        
+        private final Semaphore permits;
+        
+        private final AtomicInteger consecutiveTimeouts = new AtomicInteger();
+        
+        /**
+         * 熔断截止时间（System.nanoTime），0表示未熔断
+         */
+        private volatile long openUntil;
+        
+        private Guard(int maxConcurrent) {
+            this.permits = new Semaphore(maxConcurrent);
+        }
+        
+        private boolean isOpen() {
+            long until = openUntil;
+            return until != 0 && System.nanoTime() - until < 0;
+        }
+        
+        private void recordSuccess() {
+            if (consecutiveTimeouts.get() != 0) {
+                consecutiveTimeouts.set(0);
+                openUntil = 0;
+            }
+        }
+        
+        /**
+         * 记录一次超时
+         *
+         * @return 是否因此进入熔断
+         */
+        private boolean recordTimeout() {
+            if (failureThreshold <= 0 || consecutiveTimeouts.incrementAndGet() < failureThreshold || isOpen()) {
+                return false;
+            }
+            openUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(openSeconds);
+            return true;
+        }
+    }
+}
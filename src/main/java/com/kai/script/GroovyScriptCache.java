@@ -0,0 +1,188 @@
+package com.kai.script;
+
+import com.kai.util.LruCache;
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.Script;
+import groovy.transform.ThreadInterrupt;
+import groovy.transform.TimedInterrupt;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Groovy脚本编译缓存
+ * 以脚本文本为键缓存编译后的Script类，相同脚本只编译一次，每次执行使用独立的Binding
+ * 
+ * 每个脚本使用独立的GroovyClassLoader编译，LRU淘汰时清理类元数据并关闭类加载器，
+ * 使脚本类可以被卸载，避免Metaspace随脚本数量无限增长
+ * 
+ * 编译时为脚本织入ThreadInterrupt和TimedInterrupt检查（循环、方法和闭包入口处）：
+ * 执行线程被中断或单次执行超过transform.groovy.sandbox.timeout-ms时脚本自行终止，
+ * 分别抛出InterruptedException和java.util.concurrent.TimeoutException，死循环的脚本不会一直占用线程
+ * 
+ * 指标：
+ * - transform.groovy.cache.requests{result=hit|miss}：缓存命中/未命中次数
+ * - transform.groovy.compile：脚本编译耗时
+ * - transform.groovy.cache.evictions：淘汰次数
+ * - transform.groovy.cache.size：当前缓存脚本数
+ */
+@Slf4j
+@Component
+public class GroovyScriptCache {
+    
+    /**
+     * 与GroovyShell默认代码源一致的codeBase
+     */
+    private static final String CODE_BASE = "/groovy/shell";
+    
+    private final LruCache<String, CompiledScript> cache;
+    
+    private final AtomicLong scriptCounter = new AtomicLong();
+    
+    private final Counter hitCounter;
+    
+    private final Counter missCounter;
+    
+    private final Counter evictionCounter;
+    
+    private final Timer compileTimer;
+    
+    private final CompilerConfiguration compilerConfiguration;
+    
+    @Autowired
+    public GroovyScriptCache(MeterRegistry meterRegistry,
+                             @Value("${transform.groovy.cache-size:500}") int maxSize,
+                             @Value("${transform.groovy.sandbox.timeout-ms:1000}") long timeoutMillis) {
+        this.compilerConfiguration = interruptibleConfiguration(timeoutMillis);
+        this.hitCounter = Counter.builder("transform.groovy.cache.requests").tag("result", "hit")
+                .description("Groovy脚本缓存请求次数").register(meterRegistry);
+        this.missCounter = Counter.builder("transform.groovy.cache.requests").tag("result", "miss")
+                .description("Groovy脚本缓存请求次数").register(meterRegistry);
+        this.evictionCounter = Counter.builder("transform.groovy.cache.evictions")
+                .description("Groovy脚本缓存淘汰次数").register(meterRegistry);
+        this.compileTimer = Timer.builder("transform.groovy.compile")
+                .description("Groovy脚本编译耗时").register(meterRegistry);
+        this.cache = new LruCache<>(maxSize, (script, compiled) -> {
+            compiled.unload();
+            evictionCounter.increment();
+        });
+        Gauge.builder("transform.groovy.cache.size", cache, LruCache::size)
+                .description("已缓存的Groovy脚本数").register(meterRegistry);
+    }
+    
+    /**
+     * 获取编译后的脚本（未缓存时编译并放入缓存）
+     * 
+     * @param scriptText 脚本文本
+     * @return 编译后的脚本
+     */
+    public CompiledScript get(String scriptText) {
+        CompiledScript compiled = cache.get(scriptText);
+        if (compiled != null) {
+            hitCounter.increment();
+            return compiled;
+        }
+        missCounter.increment();
+        
+        // 在缓存锁外编译，避免编译期间阻塞其他脚本的查找
+        CompiledScript fresh = compileTimer.record(() -> compile(scriptText));
+        CompiledScript existing = cache.putIfAbsent(scriptText, fresh);
+        if (existing != null) {
+            // 其他线程已编译了同一脚本，丢弃本次结果
+            fresh.unload();
+            return existing;
+        }
+        return fresh;
+    }
+    
+    /**
+     * 执行脚本
+     * 
+     * @param scriptText 脚本文本
+     * @param binding 本次执行的变量绑定
+     * @return 脚本返回值
+     */
+    public Object run(String scriptText, Binding binding) {
+        return get(scriptText).run(binding);
+    }
+    
+    /**
+     * 编译配置：所有脚本都可被中断，timeoutMillis大于0时限制单次执行时间
+     */
+    private static CompilerConfiguration interruptibleConfiguration(long timeoutMillis) {
+        CompilerConfiguration configuration = new CompilerConfiguration();
+        configuration.addCompilationCustomizers(new ASTTransformationCustomizer(ThreadInterrupt.class));
+        if (timeoutMillis > 0) {
+            configuration.addCompilationCustomizers(new ASTTransformationCustomizer(
+                    Map.of("value", timeoutMillis, "unit", TimeUnit.MILLISECONDS), TimedInterrupt.class));
+        }
+        return configuration;
+    }
+    
+    private CompiledScript compile(String scriptText) {
+        GroovyClassLoader classLoader = new GroovyClassLoader(Thread.currentThread().getContextClassLoader(),
+                compilerConfiguration);
+        try {
+            String name = "TransformScript" + scriptCounter.incrementAndGet() + ".groovy";
+            GroovyCodeSource codeSource = new GroovyCodeSource(scriptText, name, CODE_BASE);
+            @SuppressWarnings("unchecked")
+            Class<? extends Script> scriptClass = (Class<? extends Script>) classLoader.parseClass(codeSource, false);
+            return new CompiledScript(scriptClass, classLoader);
+        } catch (RuntimeException e) {
+            closeQuietly(classLoader);
+            throw e;
+        }
+    }
+    
+    private static void closeQuietly(GroovyClassLoader classLoader) {
+        try {
+            classLoader.clearCache();
+            classLoader.close();
+        } catch (IOException e) {
+            log.debug("关闭Groovy类加载器失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 编译后的脚本
+     */
+    public static final class CompiledScript {
+        
+        private final Class<? extends Script> scriptClass;
+        
+        private final GroovyClassLoader classLoader;
+        
+        private CompiledScript(Class<? extends Script> scriptClass, GroovyClassLoader classLoader) {
+            this.scriptClass = scriptClass;
+            this.classLoader = classLoader;
+        }
+        
+        /**
+         * 使用独立的Binding创建脚本实例并执行
+         */
+        public Object run(Binding binding) {
+            Script script = InvokerHelper.createScript(scriptClass, binding);
+            return script.run();
+        }
+        
+        private void unload() {
+            InvokerHelper.removeClass(scriptClass);
+            closeQuietly(classLoader);
+        }
+    }
+}
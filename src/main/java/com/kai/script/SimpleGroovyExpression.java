@@ -0,0 +1,377 @@
+package com.kai.script;
+
+import groovy.lang.MissingPropertyException;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.runtime.ScriptBytecodeAdapter;
+import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 简单Groovy表达式的直接求值
+ * 大部分规则脚本是 inputs[0] + '-' + inputs[1]、input.substring(0, 4)、input == 'Y' ? '1' : '0' 这样的单行表达式，
+ * 不需要生成脚本类、创建脚本实例，也不会死循环；这类脚本解析为表达式树后直接求值，不经过 {@link GroovySandbox}
+ *
+ * 支持的语法（可带前导return和结尾分号）：
+ * - 变量 input、inputs，字符串常量（单引号，或不含$的双引号，均不含转义），非负整数常量，null、true、false
+ * - 下标 x[n]，方法调用 x.m(...) / x?.m(...)（仅限 {@link #METHODS} 中的方法），括号
+ * - 运算符 +、==、!=、三元运算符 ?:、Elvis运算符 ?:
+ * 其他脚本 {@link #parse(String)} 返回null，仍按完整的Groovy脚本执行
+ *
+ * 每个运算都委托给Groovy运行时（动态方法调用、相等比较、真值判断），结果与执行脚本一致；
+ * 源值不是List时访问inputs与脚本一样抛出MissingPropertyException
+ * 表达式树不可变，可在多线程间共享
+ */
+public final class SimpleGroovyExpression {
+    
+    /**
+     * 允许调用的方法：只做有限计算、没有副作用
+     */
+    private static final Set<String> METHODS = Set.of(
+            "substring", "trim", "toUpperCase", "toLowerCase", "toString", "replace",
+            "padLeft", "padRight", "size", "length", "startsWith", "endsWith", "contains");
+    
+    private static final Object[] NO_ARGS = new Object[0];
+    
+    private final Node root;
+    
+    private SimpleGroovyExpression(Node root) {
+        this.root = root;
+    }
+    
+    /**
+     * 尝试把脚本解析为简单表达式
+     *
+     * @param script Groovy脚本
+     * @return 表达式，脚本超出支持的语法时返回null
+     */
+    public static SimpleGroovyExpression parse(String script) {
+        // 换行在Groovy中可能结束语句，多行脚本一律按完整脚本执行
+        if (script == null || script.trim().indexOf('\n') >= 0 || script.indexOf('\r') >= 0) {
+            return null;
+        }
+        try {
+            Parser parser = new Parser(script);
+            Node root = parser.parseScript();
+            return root != null ? new SimpleGroovyExpression(root) : null;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 求值
+     *
+     * @param input 源值（多对1映射时为List）
+     * @return 与执行脚本相同的结果
+     */
+    public Object evaluate(Object input) {
+        return root.evaluate(input);
+    }
+    
+    /**
+     * 表达式树节点
+     */
+    private interface Node {
+        
+        Object evaluate(Object input);
+    }
+    
+    private static Object invoke(Object target, String method, Object[] args) {
+        return InvokerHelper.invokeMethod(target, method, args);
+    }
+    
+    /**
+     * Groovy的加法：两侧都是字符串时直接拼接，其他情况按动态方法plus调用
+     */
+    private static Object plus(Object left, Object right) {
+        if (left instanceof String && right instanceof String) {
+            return ((String) left).concat((String) right);
+        }
+        return invoke(left, "plus", new Object[]{right});
+    }
+    
+    /**
+     * 递归下降解析器，遇到不支持的语法抛出IllegalStateException
+     */
+    private static final class Parser {
+        
+        private final String text;
+        
+        private int pos;
+        
+        private Parser(String text) {
+            this.text = text;
+        }
+        
+        private Node parseScript() {
+            skipSpaces();
+            if (matchKeyword("return")) {
+                skipSpaces();
+            }
+            Node node = parseTernary();
+            skipSpaces();
+            if (peek() == ';') {
+                pos++;
+                skipSpaces();
+            }
+            return pos == text.length() ? node : null;
+        }
+        
+        private Node parseTernary() {
+            Node condition = parseEquality();
+            skipSpaces();
+            if (!text.startsWith("?", pos) || text.startsWith("?.", pos)) {
+                return condition;
+            }
+            if (text.startsWith("?:", pos)) {
+                // Elvis运算符：a ?: b
+                pos += 2;
+                Node fallback = parseTernary();
+                return input -> {
+                    Object value = condition.evaluate(input);
+                    return DefaultTypeTransformation.castToBoolean(value) ? value : fallback.evaluate(input);
+                };
+            }
+            pos++;
+            Node whenTrue = parseTernary();
+            skipSpaces();
+            expect(':');
+            Node whenFalse = parseTernary();
+            return input -> DefaultTypeTransformation.castToBoolean(condition.evaluate(input))
+                    ? whenTrue.evaluate(input) : whenFalse.evaluate(input);
+        }
+        
+        private Node parseEquality() {
+            Node left = parseAdditive();
+            skipSpaces();
+            if (text.startsWith("==", pos) && !text.startsWith("===", pos)) {
+                pos += 2;
+                Node right = parseAdditive();
+                return input -> ScriptBytecodeAdapter.compareEqual(left.evaluate(input), right.evaluate(input));
+            }
+            if (text.startsWith("!=", pos) && !text.startsWith("!==", pos)) {
+                pos += 2;
+                Node right = parseAdditive();
+                return input -> ScriptBytecodeAdapter.compareNotEqual(left.evaluate(input), right.evaluate(input));
+            }
+            return left;
+        }
+        
+        private Node parseAdditive() {
+            Node node = parsePostfix();
+            while (true) {
+                skipSpaces();
+                if (peek() != '+' || text.startsWith("++", pos) || text.startsWith("+=", pos)) {
+                    return node;
+                }
+                pos++;
+                Node left = node;
+                Node right = parsePostfix();
+                node = input -> plus(left.evaluate(input), right.evaluate(input));
+            }
+        }
+        
+        /**
+         * 下标和方法调用，与前面的表达式之间不允许有空白（避免与Groovy的命令表达式产生歧义）
+         */
+        private Node parsePostfix() {
+            Node node = parsePrimary();
+            while (true) {
+                if (peek() == '[') {
+                    pos++;
+                    skipSpaces();
+                    Integer index = parseInteger();
+                    if (index == null) {
+                        throw unsupported();
+                    }
+                    skipSpaces();
+                    expect(']');
+                    Node target = node;
+                    int i = index;
+                    Object[] args = {index};
+                    node = input -> {
+                        Object list = target.evaluate(input);
+                        if (list instanceof List) {
+                            // 与Groovy的List.getAt一致：越界时为null
+                            List<?> values = (List<?>) list;
+                            return i < values.size() ? values.get(i) : null;
+                        }
+                        return invoke(list, "getAt", args);
+                    };
+                } else if (peek() == '.' || text.startsWith("?.", pos)) {
+                    boolean safe = peek() == '?';
+                    pos += safe ? 2 : 1;
+                    String method = parseIdentifier();
+                    if (method == null || !METHODS.contains(method) || peek() != '(') {
+                        throw unsupported();
+                    }
+                    pos++;
+                    List<Node> arguments = parseArguments();
+                    node = methodCall(node, method, arguments, safe);
+                } else {
+                    return node;
+                }
+            }
+        }
+        
+        private List<Node> parseArguments() {
+            List<Node> arguments = new ArrayList<>();
+            skipSpaces();
+            if (peek() == ')') {
+                pos++;
+                return arguments;
+            }
+            while (true) {
+                arguments.add(parseTernary());
+                skipSpaces();
+                if (peek() == ')') {
+                    pos++;
+                    return arguments;
+                }
+                expect(',');
+            }
+        }
+        
+        private static Node methodCall(Node target, String method, List<Node> arguments, boolean safe) {
+            Node[] argumentNodes = arguments.toArray(new Node[0]);
+            return input -> {
+                Object receiver = target.evaluate(input);
+                if (safe && receiver == null) {
+                    return null;
+                }
+                Object[] args = NO_ARGS;
+                if (argumentNodes.length > 0) {
+                    args = new Object[argumentNodes.length];
+                    for (int i = 0; i < args.length; i++) {
+                        args[i] = argumentNodes[i].evaluate(input);
+                    }
+                }
+                return invoke(receiver, method, args);
+            };
+        }
+        
+        private Node parsePrimary() {
+            skipSpaces();
+            char c = peek();
+            if (c == '(') {
+                pos++;
+                Node node = parseTernary();
+                skipSpaces();
+                expect(')');
+                return node;
+            }
+            if (c == '\'' || c == '"') {
+                String value = parseString(c);
+                return input -> value;
+            }
+            Integer number = parseInteger();
+            if (number != null) {
+                return input -> number;
+            }
+            String identifier = parseIdentifier();
+            if (identifier == null) {
+                throw unsupported();
+            }
+            switch (identifier) {
+                case "input":
+                    return input -> input;
+                case "inputs":
+                    return input -> {
+                        if (!(input instanceof List)) {
+                            throw new MissingPropertyException("inputs", SimpleGroovyExpression.class);
+                        }
+                        return input;
+                    };
+                case "null":
+                    return input -> null;
+                case "true":
+                    return input -> Boolean.TRUE;
+                case "false":
+                    return input -> Boolean.FALSE;
+                default:
+                    throw unsupported();
+            }
+        }
+        
+        /**
+         * 不含转义的字符串常量；双引号字符串不能含$（GString插值）
+         */
+        private String parseString(char quote) {
+            int end = text.indexOf(quote, pos + 1);
+            if (end < 0) {
+                throw unsupported();
+            }
+            String value = text.substring(pos + 1, end);
+            if (value.indexOf('\\') >= 0 || value.indexOf('\n') >= 0 || (quote == '"' && value.indexOf('$') >= 0)) {
+                throw unsupported();
+            }
+            pos = end + 1;
+            return value;
+        }
+        
+        /**
+         * 非负整数常量（Integer范围内，不带类型后缀）
+         */
+        private Integer parseInteger() {
+            int start = pos;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos == start) {
+                return null;
+            }
+            if (pos - start > 9 || (pos - start > 1 && text.charAt(start) == '0')
+                    || (pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos)))
+                    || peek() == '.') {
+                throw unsupported();
+            }
+            return Integer.valueOf(text.substring(start, pos));
+        }
+        
+        private String parseIdentifier() {
+            if (pos >= text.length() || !Character.isJavaIdentifierStart(text.charAt(pos))) {
+                return null;
+            }
+            int start = pos;
+            while (pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                pos++;
+            }
+            return text.substring(start, pos);
+        }
+        
+        private boolean matchKeyword(String keyword) {
+            if (text.startsWith(keyword, pos)
+                    && (pos + keyword.length() == text.length()
+                    || !Character.isJavaIdentifierPart(text.charAt(pos + keyword.length())))) {
+                pos += keyword.length();
+                return true;
+            }
+            return false;
+        }
+        
+        private void expect(char c) {
+            skipSpaces();
+            if (peek() != c) {
+                throw unsupported();
+            }
+            pos++;
+        }
+        
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : '\0';
+        }
+        
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        private static IllegalStateException unsupported() {
+            return new IllegalStateException("不是简单表达式");
+        }
+    }
+}
@@ -114,6 +114,15 @@ public class BankInfoService extends ServiceImpl<BankInfoMapper, BankInfo> {
         return this.exists(wrapper);
     }
     
+    /**
+     * 根据编码获取银行信息
+     */
+    public BankInfo getByCode(String code) {
+        LambdaQueryWrapper<BankInfo> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(BankInfo::getCode, code);
+        return this.getOne(wrapper, false);
+    }
+    
     /**
      * 获取所有启用的银行信息列表
      */
@@ -0,0 +1,136 @@
+package com.kai.service;
+
+import com.kai.dto.BatchTransformResponse;
+import com.kai.engine.CompiledMappingPlan;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量转换服务
+ * 同一批报文共用一个编译后的映射计划，在有界线程池上并行转换，结果按请求顺序返回
+ * 
+ * 线程池队列满时由调用线程执行（CallerRunsPolicy），多个批次并发时自然限流，不会无限堆积任务
+ */
+@Slf4j
+@Service
+public class BatchTransformService {
+    
+    /**
+     * 每个线程平均分到的任务块数，块太大时负载不均，太小时调度开销占比高
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    @Autowired
+    private TransformationEngine transformationEngine;
+    
+    @Value("${transform.batch.pool-size:0}")
+    private int poolSize;
+    
+    @Value("${transform.batch.queue-capacity:1000}")
+    private int queueCapacity;
+    
+    @Value("${transform.batch.max-size:10000}")
+    private int maxBatchSize;
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    public void init() {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "transform-batch-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        log.info("批量转换线程池已创建，线程数: {}, 队列容量: {}", threads, queueCapacity);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    /**
+     * 单个批次允许的最大报文数
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+    
+    /**
+     * 批量转换
+     * 
+     * @param plan 编译后的映射计划（整个批次共用）
+     * @param messages 源报文列表
+     * @return 批量转换结果，顺序与messages一致
+     */
+    public BatchTransformResponse transformBatch(CompiledMappingPlan plan, List<String> messages) {
+        int total = messages.size();
+        BatchTransformResponse.Item[] items = new BatchTransformResponse.Item[total];
+        
+        // 按块提交任务，减少大批次下的任务调度开销
+        int chunkCount = Math.max(1, Math.min(total, executor.getCorePoolSize() * CHUNKS_PER_THREAD));
+        int chunkSize = (total + chunkCount - 1) / Math.max(1, chunkCount);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(chunkCount);
+        for (int start = 0; start < total; start += chunkSize) {
+            int from = start;
+            int to = Math.min(total, start + chunkSize);
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    items[i] = transformOne(plan, i, messages.get(i));
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        
+        int successCount = 0;
+        List<BatchTransformResponse.Item> results = new ArrayList<>(total);
+        for (BatchTransformResponse.Item item : items) {
+            if (Boolean.TRUE.equals(item.getSuccess())) {
+                successCount++;
+            }
+            results.add(item);
+        }
+        
+        BatchTransformResponse response = new BatchTransformResponse();
+        response.setSuccess(true);
+        response.setTotal(total);
+        response.setSuccessCount(successCount);
+        response.setFailureCount(total - successCount);
+        response.setResults(results);
+        return response;
+    }
+    
+    private BatchTransformResponse.Item transformOne(CompiledMappingPlan plan, int index, String message) {
+        BatchTransformResponse.Item item = new BatchTransformResponse.Item();
+        item.setIndex(index);
+        try {
+            if (message == null || message.trim().isEmpty()) {
+                throw new IllegalArgumentException("源数据不能为空");
+            }
+            item.setTransformedData(transformationEngine.transform(message, plan));
+            item.setSuccess(true);
+        } catch (Exception e) {
+            item.setSuccess(false);
+            item.setErrorMessage(e.getMessage());
+        }
+        return item;
+    }
+}
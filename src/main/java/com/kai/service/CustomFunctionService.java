@@ -5,19 +5,39 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.kai.mapper.CustomFunctionMapper;
 import com.kai.model.CustomFunction;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 自定义函数服务类
+ * 
+ * 转换时按编码查找的启用函数缓存在内存中（不存在的编码也缓存，避免每次转换都查询数据库），
+ * 函数保存或删除后清空缓存；缓存超过有效期后在下次访问时重新加载，以便多实例部署时其他实例的修改也能生效
  */
 @Service
 @Slf4j
 public class CustomFunctionService extends ServiceImpl<CustomFunctionMapper, CustomFunction> {
     
+    /**
+     * 函数缓存有效期（秒），小于等于0表示不过期
+     */
+    @Value("${transform.custom-function.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+    
+    /**
+     * 函数编码 -> 已加载的启用函数
+     */
+    private final Map<String, CachedFunction> functionCache = new ConcurrentHashMap<>();
+    
     /**
      * 保存函数（新增或更新）
      */
@@ -58,9 +78,21 @@ public class CustomFunctionService extends ServiceImpl<CustomFunctionMapper, Cus
             this.save(func);
         }
         
+        // 编码可能被修改，清空全部缓存
+        clearCacheAfterCommit();
         return func;
     }
     
+    /**
+     * 删除函数
+     */
+    @Transactional
+    public boolean deleteFunction(Long id) {
+        boolean removed = this.removeById(id);
+        clearCacheAfterCommit();
+        return removed;
+    }
+    
     /**
      * 获取所有启用的函数
      */
@@ -79,6 +111,37 @@ public class CustomFunctionService extends ServiceImpl<CustomFunctionMapper, Cus
                 .eq(CustomFunction::getEnabled, true), false);
     }
     
+    /**
+     * 根据编码获取启用的函数（用于转换）
+     * 优先从缓存读取，未命中或已过期时从数据库加载
+     * 
+     * @param code 函数编码
+     * @return 启用的函数，不存在时返回null
+     */
+    public CustomFunction getCachedByCode(String code) {
+        CachedFunction cached = functionCache.get(code);
+        if (cached != null && !cached.isExpired(cacheTtlSeconds)) {
+            return cached.function;
+        }
+        CustomFunction function = getByCode(code);
+        functionCache.put(code, new CachedFunction(function));
+        return function;
+    }
+    
+    /**
+     * 预加载所有启用的函数到缓存
+     * 
+     * @return 加载的函数列表
+     */
+    public List<CustomFunction> preloadAll() {
+        List<CustomFunction> functions = getEnabledFunctions();
+        for (CustomFunction function : functions) {
+            functionCache.put(function.getCode(), new CachedFunction(function));
+        }
+        log.info("自定义函数预加载完成，共 {} 个函数", functions.size());
+        return functions;
+    }
+    
     /**
      * 检查名称是否存在
      */
@@ -115,16 +178,38 @@ public class CustomFunctionService extends ServiceImpl<CustomFunctionMapper, Cus
         }
         return this.count(wrapper) > 0;
     }
+    
+    /**
+     * 清空函数缓存
+     * 立即清空一次，并在事务提交后再清空一次，避免并发请求在提交前把旧数据重新加载进缓存
+     */
+    private void clearCacheAfterCommit() {
+        functionCache.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    functionCache.clear();
+                }
+            });
+        }
+    }
+    
+    /**
+     * 缓存的函数（function为null表示该编码没有启用的函数）
+     */
+    private static class CachedFunction {
+        
+        private final CustomFunction function;
+        
+        private final long loadedAt = System.nanoTime();
+        
+        CachedFunction(CustomFunction function) {
+            this.function = function;
+        }
+        
+        boolean isExpired(long ttlSeconds) {
+            return ttlSeconds > 0 && System.nanoTime() - loadedAt > TimeUnit.SECONDS.toNanos(ttlSeconds);
+        }
+    }
 }
-
-
-
-
-
-
-
-
-
-
-
-
@@ -6,19 +6,34 @@ import com.kai.mapper.DictionaryItemMapper;
 import com.kai.mapper.DictionaryMapper;
 import com.kai.model.Dictionary;
 import com.kai.model.DictionaryItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * 字典服务类
+ * 
+ * 转换时使用的字典键值对缓存在内存中（正向和反向Map一次加载），
+ * 字典保存或删除后失效对应缓存；缓存超过有效期后在下次访问时重新加载，
+ * 以便多实例部署时其他实例的修改也能生效
  */
 @Service
 @Slf4j
@@ -27,6 +42,38 @@ public class DictionaryService extends ServiceImpl<DictionaryMapper, Dictionary>
     @Autowired
     private DictionaryItemMapper dictionaryItemMapper;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 字典缓存有效期（秒），小于等于0表示不过期
+     */
+    @Value("${transform.dictionary.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+    
+    /**
+     * 字典ID -> 已加载的字典
+     */
+    private final Map<Long, CachedDictionary> dictionaryCache = new ConcurrentHashMap<>();
+    
+    private Counter cacheHitCounter;
+    
+    private Counter cacheMissCounter;
+    
+    private Timer loadTimer;
+    
+    @PostConstruct
+    void initMetrics() {
+        cacheHitCounter = Counter.builder("transform.dictionary.cache.requests").tag("result", "hit")
+                .description("字典缓存请求次数").register(meterRegistry);
+        cacheMissCounter = Counter.builder("transform.dictionary.cache.requests").tag("result", "miss")
+                .description("字典缓存请求次数").register(meterRegistry);
+        loadTimer = Timer.builder("transform.dictionary.load")
+                .description("字典加载耗时").register(meterRegistry);
+        Gauge.builder("transform.dictionary.cache.size", dictionaryCache, Map::size)
+                .description("已缓存的字典数").register(meterRegistry);
+    }
+    
     /**
      * 保存字典（包括字典项）
      */
@@ -82,6 +129,7 @@ public class DictionaryService extends ServiceImpl<DictionaryMapper, Dictionary>
             }
         }
         
+        evictAfterCommit(dict.getId());
         return dict;
     }
     
@@ -111,28 +159,82 @@ public class DictionaryService extends ServiceImpl<DictionaryMapper, Dictionary>
     
     /**
      * 获取字典的键值对Map（用于转换）
+     * 优先从缓存读取，未命中或已过期时从数据库加载并同时缓存正向和反向Map
      * @param dictionaryId 字典ID
      * @param reverse 是否反向（true: v->k, false: k->v）
-     * @return 键值对Map
+     * @return 键值对Map（只读）
      */
     public Map<String, String> getDictionaryMap(Long dictionaryId, boolean reverse) {
+        CachedDictionary cached = dictionaryCache.get(dictionaryId);
+        if (cached != null && !cached.isExpired(cacheTtlSeconds)) {
+            cacheHitCounter.increment();
+            return cached.get(reverse);
+        }
+        cacheMissCounter.increment();
+        
+        CachedDictionary loaded = loadTimer.record(() -> loadDictionary(dictionaryId));
+        dictionaryCache.put(dictionaryId, loaded);
+        return loaded.get(reverse);
+    }
+    
+    /**
+     * 预加载所有字典到缓存（一次查询所有字典项），启动时由 {@link WarmupService} 调用
+     * 
+     * @return 加载的字典数量
+     */
+    public int preloadAll() {
+        long start = System.nanoTime();
+        
+        Map<Long, List<DictionaryItem>> itemsByDictionary = dictionaryItemMapper.selectList(
+                new LambdaQueryWrapper<DictionaryItem>()
+                        .orderByAsc(DictionaryItem::getDictionaryId)
+                        .orderByAsc(DictionaryItem::getSortOrder)
+        ).stream().collect(Collectors.groupingBy(DictionaryItem::getDictionaryId));
+        
+        List<Dictionary> dictionaries = this.list();
+        for (Dictionary dict : dictionaries) {
+            List<DictionaryItem> items = itemsByDictionary.getOrDefault(dict.getId(), Collections.emptyList());
+            dictionaryCache.put(dict.getId(), new CachedDictionary(items));
+        }
+        
+        loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("字典预加载完成，共 {} 个字典", dictionaries.size());
+        return dictionaries.size();
+    }
+    
+    /**
+     * 清空字典缓存
+     */
+    public void clearCache() {
+        dictionaryCache.clear();
+    }
+    
+    /**
+     * 从数据库加载单个字典
+     */
+    private CachedDictionary loadDictionary(Long dictionaryId) {
         List<DictionaryItem> items = dictionaryItemMapper.selectList(
                 new LambdaQueryWrapper<DictionaryItem>()
                         .eq(DictionaryItem::getDictionaryId, dictionaryId)
                         .orderByAsc(DictionaryItem::getSortOrder)
         );
-        
-        Map<String, String> map = new HashMap<>();
-        for (DictionaryItem item : items) {
-            if (reverse) {
-                // 反向：value -> key
-                map.put(item.getDictValue(), item.getDictKey());
-            } else {
-                // 正向：key -> value
-                map.put(item.getDictKey(), item.getDictValue());
-            }
+        return new CachedDictionary(items);
+    }
+    
+    /**
+     * 失效字典缓存
+     * 立即失效一次，并在事务提交后再失效一次，避免并发请求在提交前把旧数据重新加载进缓存
+     */
+    private void evictAfterCommit(Long dictionaryId) {
+        dictionaryCache.remove(dictionaryId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dictionaryCache.remove(dictionaryId);
+                }
+            });
         }
-        return map;
     }
     
     /**
@@ -182,7 +284,9 @@ public class DictionaryService extends ServiceImpl<DictionaryMapper, Dictionary>
                 .eq(DictionaryItem::getDictionaryId, id));
         
         // 删除字典
-        return this.removeById(id);
+        boolean removed = this.removeById(id);
+        evictAfterCommit(id);
+        return removed;
     }
     
     /**
@@ -204,16 +308,37 @@ public class DictionaryService extends ServiceImpl<DictionaryMapper, Dictionary>
         private Dictionary dictionary;
         private List<DictionaryItemDTO> items;
     }
+    
+    /**
+     * 缓存的字典（正向和反向Map同时加载）
+     */
+    private static class CachedDictionary {
+        
+        private final Map<String, String> forward;
+        
+        private final Map<String, String> reverse;
+        
+        private final long loadedAt = System.nanoTime();
+        
+        CachedDictionary(List<DictionaryItem> items) {
+            Map<String, String> forwardMap = new HashMap<>(items.size() * 4 / 3 + 1);
+            Map<String, String> reverseMap = new HashMap<>(items.size() * 4 / 3 + 1);
+            for (DictionaryItem item : items) {
+                // 正向：key -> value
+                forwardMap.put(item.getDictKey(), item.getDictValue());
+                // 反向：value -> key
+                reverseMap.put(item.getDictValue(), item.getDictKey());
+            }
+            this.forward = Collections.unmodifiableMap(forwardMap);
+            this.reverse = Collections.unmodifiableMap(reverseMap);
+        }
+        
+        Map<String, String> get(boolean reverse) {
+            return reverse ? this.reverse : this.forward;
+        }
+        
+        boolean isExpired(long ttlSeconds) {
+            return ttlSeconds > 0 && System.nanoTime() - loadedAt > TimeUnit.SECONDS.toNanos(ttlSeconds);
+        }
+    }
 }
-
-
-
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,22 @@
+package com.kai.service;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 映射配置变更事件
+ * 配置保存、创建新版本、切换版本或删除后发布，用于刷新内存中的配置注册表
+ */
+@Getter
+public class MappingConfigChangedEvent extends ApplicationEvent {
+    
+    /**
+     * 发生变更的交易类型ID
+     */
+    private final Long transactionTypeId;
+    
+    public MappingConfigChangedEvent(Object source, Long transactionTypeId) {
+        super(source);
+        this.transactionTypeId = transactionTypeId;
+    }
+}
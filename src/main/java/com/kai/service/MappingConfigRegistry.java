@@ -0,0 +1,560 @@
+package com.kai.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.metrics.PlanMetrics;
+import com.kai.model.BankInfo;
+import com.kai.model.MappingConfig;
+import com.kai.model.MappingConfigV2;
+import com.kai.model.TransactionType;
+import com.kai.util.LruCache;
+import io.micrometer.core.instrument.Tags;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 映射配置注册表
+ * 在内存中保存每个配置的当前版本（已反序列化并编译为 {@link CompiledMappingPlan}），
+ * 按配置名称、交易类型ID+配置类型、银行编码+交易名称+配置类型 三种方式索引，转换请求在稳定状态下不访问数据库
+ * 
+ * 刷新时机：
+ * 1. 配置保存/创建新版本/切换版本/删除的事务提交后，刷新对应交易类型的配置
+ * 2. 按名称查找未命中时从数据库加载一次
+ * 3. 定时全量对账（兜底其他实例的修改），未变化的配置复用已编译的计划
+ * 
+ * 三个索引放在一个不可变的快照中，写入时复制出新快照再整体替换，读取不加锁，也不会看到更新到一半（如全量对账清空后尚未填充）的索引；
+ * 按名称查找未命中的名称在negative-ttl-ms内不再查询数据库，避免不存在的配置名称每次请求都查库
+ */
+@Slf4j
+@Service
+public class MappingConfigRegistry {
+    
+    @Autowired
+    private MappingConfigV2Service configService;
+    
+    @Autowired
+    private TransformationEngine transformationEngine;
+    
+    @Autowired
+    private TransactionTypeService transactionTypeService;
+    
+    @Autowired
+    private BankInfoService bankInfoService;
+    
+    /**
+     * 不存在的配置名称的缓存时间（毫秒），小于等于0表示不缓存
+     */
+    @Value("${transform.config-registry.negative-ttl-ms:5000}")
+    private long negativeTtlMillis;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    /**
+     * 当前的索引快照
+     */
+    private volatile Snapshot snapshot = new Snapshot(new HashMap<>(), new HashMap<>(), new HashMap<>());
+    
+    /**
+     * 不存在的配置名称 -> 过期时间（System.nanoTime），数量有上限，防止大量随机名称占用内存
+     */
+    private final LruCache<String, Long> missingNames = new LruCache<>(1000);
+    
+    /**
+     * 写锁：数据库查询和编译在锁外完成，锁内只生成并替换快照
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    
+    /**
+     * 变更代数：每次刷新、全量对账、移除时加一（锁内修改）
+     */
+    private volatile long generation;
+    
+    /**
+     * 交易类型ID -> 最近一次刷新或移除时的代数（锁内访问）
+     */
+    private final Map<Long, Long> invalidatedAt = new HashMap<>();
+    
+    /**
+     * 最近一次全量对账时的代数（锁内访问）
+     */
+    private long reloadedAt;
+    
+    /**
+     * 根据配置名称获取当前版本配置
+     * 
+     * @param name 配置名称
+     * @return 当前版本配置，不存在时返回null
+     */
+    public RegisteredConfig getByName(String name) {
+        RegisteredConfig registered = snapshot.byName.get(name);
+        if (registered != null) {
+            return registered;
+        }
+        Long missingUntil = missingNames.get(name);
+        if (missingUntil != null && missingUntil - System.nanoTime() > 0) {
+            return null;
+        }
+        
+        // 未命中时从数据库加载一次
+        long startGeneration = generation;
+        LambdaQueryWrapper<MappingConfigV2> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(MappingConfigV2::getName, name);
+        wrapper.eq(MappingConfigV2::getIsCurrent, true);
+        wrapper.last("LIMIT 1");
+        MappingConfigV2 entity = configService.getOne(wrapper);
+        if (entity == null) {
+            rememberMissing(name, startGeneration);
+            return null;
+        }
+        registered = compile(entity);
+        if (registered != null) {
+            register(registered, startGeneration);
+        }
+        return registered;
+    }
+    
+    /**
+     * 根据交易类型和配置类型获取当前版本配置
+     * 
+     * @param transactionTypeId 交易类型ID
+     * @param configType REQUEST 或 RESPONSE
+     * @return 当前版本配置，不存在时返回null
+     */
+    public RegisteredConfig getCurrent(Long transactionTypeId, String configType) {
+        RegisteredConfig registered = snapshot.byKey.get(key(transactionTypeId, configType));
+        if (registered != null) {
+            return registered;
+        }
+        
+        long startGeneration = generation;
+        MappingConfigV2 entity = configService.getCurrentConfig(transactionTypeId, configType);
+        if (entity == null) {
+            return null;
+        }
+        registered = compile(entity);
+        if (registered != null) {
+            register(registered, startGeneration);
+        }
+        return registered;
+    }
+    
+    /**
+     * 根据银行编码、交易名称和配置类型获取当前版本配置
+     * 
+     * @param bankCode 银行编码
+     * @param transactionName 交易名称
+     * @param configType REQUEST 或 RESPONSE
+     * @return 当前版本配置，不存在时返回null
+     */
+    public RegisteredConfig getByRoute(String bankCode, String transactionName, String configType) {
+        RegisteredConfig registered = snapshot.byRoute.get(routeKey(bankCode, transactionName, configType));
+        if (registered != null) {
+            return registered;
+        }
+        
+        // 未命中时从数据库查找交易类型，再按交易类型加载
+        BankInfo bankInfo = bankInfoService.getByCode(bankCode);
+        if (bankInfo == null) {
+            return null;
+        }
+        TransactionType transactionType = transactionTypeService.getByBankIdAndName(bankInfo.getId(), transactionName);
+        if (transactionType == null) {
+            return null;
+        }
+        return getCurrent(transactionType.getId(), configType);
+    }
+    
+    /**
+     * 获取所有已注册的配置
+     */
+    public Collection<RegisteredConfig> getAll() {
+        return Collections.unmodifiableCollection(snapshot.byKey.values());
+    }
+    
+    /**
+     * 配置变更事务提交后刷新对应交易类型的配置
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConfigChanged(MappingConfigChangedEvent event) {
+        try {
+            refresh(event.getTransactionTypeId());
+        } catch (Exception e) {
+            // 刷新失败时移除该交易类型的缓存，下次访问重新加载
+            log.error("刷新配置注册表失败，交易类型ID: {}, 错误: {}", event.getTransactionTypeId(), e.getMessage(), e);
+            evict(event.getTransactionTypeId());
+        }
+    }
+    
+    /**
+     * 重新加载指定交易类型的当前版本配置
+     */
+    public void refresh(Long transactionTypeId) {
+        LambdaQueryWrapper<MappingConfigV2> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(MappingConfigV2::getTransactionTypeId, transactionTypeId);
+        wrapper.eq(MappingConfigV2::getIsCurrent, true);
+        List<RegisteredConfig> fresh = compileAll(configService.list(wrapper));
+        
+        writeLock.lock();
+        try {
+            Snapshot next = snapshot.copy();
+            next.removeTransactionType(transactionTypeId);
+            next.putAll(fresh);
+            publish(next);
+            invalidatedAt.put(transactionTypeId, generation);
+        } finally {
+            writeLock.unlock();
+        }
+        log.info("配置注册表已刷新，交易类型ID: {}, 当前配置数: {}", transactionTypeId, fresh.size());
+    }
+    
+    /**
+     * 全量加载所有当前版本配置
+     * 未变化（ID和更新时间相同）的配置复用已编译的计划；新索引在锁外生成，替换前读取方始终看到完整的旧索引
+     * 加载期间被刷新过的交易类型保留刷新后的配置（比本次查询的结果新）
+     * 
+     * @return 加载的配置数量
+     */
+    public int reloadAll() {
+        long startGeneration = generation;
+        LambdaQueryWrapper<MappingConfigV2> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(MappingConfigV2::getIsCurrent, true);
+        List<MappingConfigV2> entities = configService.list(wrapper);
+        
+        Map<String, RegisteredConfig> current = snapshot.byKey;
+        List<RegisteredConfig> fresh = new ArrayList<>(entities.size());
+        for (MappingConfigV2 entity : entities) {
+            RegisteredConfig existing = current.get(key(entity.getTransactionTypeId(), entity.getConfigType()));
+            if (existing != null && existing.isSameVersion(entity)) {
+                fresh.add(existing);
+            } else {
+                RegisteredConfig compiled = compile(entity);
+                if (compiled != null) {
+                    fresh.add(compiled);
+                }
+            }
+        }
+        
+        Snapshot next = new Snapshot(new HashMap<>(), new HashMap<>(), new HashMap<>());
+        next.putAll(fresh);
+        
+        writeLock.lock();
+        try {
+            Snapshot latest = snapshot;
+            for (Map.Entry<Long, Long> entry : invalidatedAt.entrySet()) {
+                if (entry.getValue() > startGeneration) {
+                    next.removeTransactionType(entry.getKey());
+                    next.putAll(latest.transactionType(entry.getKey()));
+                }
+            }
+            publish(next);
+            reloadedAt = generation;
+            // 只有比本次对账新的刷新记录才需要保留
+            invalidatedAt.values().removeIf(invalidated -> invalidated <= startGeneration);
+        } finally {
+            writeLock.unlock();
+        }
+        return next.byKey.size();
+    }
+    
+    /**
+     * 定时全量对账，使其他实例对配置的修改最终生效
+     */
+    @Scheduled(initialDelayString = "${transform.config-registry.refresh-interval-ms:60000}",
+            fixedDelayString = "${transform.config-registry.refresh-interval-ms:60000}")
+    public void scheduledReload() {
+        try {
+            int count = reloadAll();
+            log.debug("配置注册表定时对账完成，当前配置数: {}", count);
+        } catch (Exception e) {
+            log.warn("配置注册表定时对账失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 移除指定交易类型的缓存配置
+     */
+    public void evict(Long transactionTypeId) {
+        writeLock.lock();
+        try {
+            Snapshot next = snapshot.copy();
+            next.removeTransactionType(transactionTypeId);
+            publish(next);
+            invalidatedAt.put(transactionTypeId, generation);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * 注册按需加载的配置
+     * 加载期间该交易类型被刷新、移除或发生了全量对账时不注册（加载的可能是旧版本，会覆盖刷新后的配置），下次访问重新加载
+     *
+     * @param startGeneration 开始查询数据库时的代数
+     */
+    private void register(RegisteredConfig config, long startGeneration) {
+        writeLock.lock();
+        try {
+            if (reloadedAt > startGeneration
+                    || invalidatedAt.getOrDefault(config.getEntity().getTransactionTypeId(), 0L) > startGeneration) {
+                log.debug("配置加载期间注册表已更新，不注册本次加载的配置: {}", config.getEntity().getName());
+                return;
+            }
+            Snapshot next = snapshot.copy();
+            next.putAll(Collections.singletonList(config));
+            removeSupersededMetrics(snapshot, next);
+            snapshot = next;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * 记录不存在的配置名称，加载期间注册表发生过更新时不记录（名称可能刚刚创建）
+     */
+    private void rememberMissing(String name, long startGeneration) {
+        if (negativeTtlMillis <= 0) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (generation == startGeneration) {
+                missingNames.put(name, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * 替换快照（锁内调用），同时清空不存在名称的缓存（刷新和对账可能加入了这些名称）
+     */
+    private void publish(Snapshot next) {
+        generation++;
+        removeSupersededMetrics(snapshot, next);
+        snapshot = next;
+        missingNames.clear();
+    }
+    
+    /**
+     * 移除被替换或删除的计划的指标，新快照中有标签相同的计划（同一版本重新编译）时保留
+     */
+    private static void removeSupersededMetrics(Snapshot previous, Snapshot next) {
+        Set<RegisteredConfig> retained = Collections.newSetFromMap(new IdentityHashMap<>());
+        retained.addAll(next.byKey.values());
+        Set<Tags> liveTags = null;
+        for (RegisteredConfig config : previous.byKey.values()) {
+            if (retained.contains(config)) {
+                continue;
+            }
+            if (liveTags == null) {
+                liveTags = new HashSet<>();
+                for (RegisteredConfig live : next.byKey.values()) {
+                    liveTags.add(live.getPlan().getMetrics().getTags());
+                }
+            }
+            PlanMetrics metrics = config.getPlan().getMetrics();
+            if (!liveTags.contains(metrics.getTags())) {
+                metrics.remove();
+            }
+        }
+    }
+    
+    private List<RegisteredConfig> compileAll(List<MappingConfigV2> entities) {
+        List<RegisteredConfig> result = new ArrayList<>(entities.size());
+        for (MappingConfigV2 entity : entities) {
+            RegisteredConfig compiled = compile(entity);
+            if (compiled != null) {
+                result.add(compiled);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 反序列化并编译配置，失败时返回null
+     */
+    private RegisteredConfig compile(MappingConfigV2 entity) {
+        try {
+            MappingConfig config = objectMapper.readValue(entity.getConfigContent(), MappingConfig.class);
+            TransactionType transactionType = findTransactionType(entity.getTransactionTypeId());
+            String bankCode = findBankCode(transactionType);
+            CompiledMappingPlan plan = transformationEngine.compile(config, entity.getName(), entity.getVersion(), bankCode);
+            return new RegisteredConfig(entity, plan, bankCode,
+                    transactionType != null ? transactionType.getTransactionName() : null);
+        } catch (Exception e) {
+            log.error("配置解析失败: {}, 错误: {}", entity.getName(), e.getMessage(), e);
+            return null;
+        }
+    }
+    
+    /**
+     * 查找配置所属的交易类型，查找失败时返回null
+     */
+    private TransactionType findTransactionType(Long transactionTypeId) {
+        try {
+            return transactionTypeService.getById(transactionTypeId);
+        } catch (Exception e) {
+            log.warn("查找交易类型失败，交易类型ID: {}, 错误: {}", transactionTypeId, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 查找交易类型所属银行的编码（用于指标标签和路由索引），查找失败时返回null
+     */
+    private String findBankCode(TransactionType transactionType) {
+        if (transactionType == null) {
+            return null;
+        }
+        try {
+            BankInfo bankInfo = bankInfoService.getById(transactionType.getBankId());
+            return bankInfo != null ? bankInfo.getCode() : null;
+        } catch (Exception e) {
+            log.warn("查找交易类型所属银行失败，交易类型ID: {}, 错误: {}", transactionType.getId(), e.getMessage());
+            return null;
+        }
+    }
+    
+    private static String key(Long transactionTypeId, String configType) {
+        return transactionTypeId + ":" + configType;
+    }
+    
+    private static String routeKey(String bankCode, String transactionName, String configType) {
+        return bankCode + ":" + transactionName + ":" + configType;
+    }
+    
+    private static String routeKey(RegisteredConfig config) {
+        return routeKey(config.getBankCode(), config.getTransactionName(), config.getEntity().getConfigType());
+    }
+    
+    /**
+     * 索引快照，发布后不再修改（新快照在锁内由 {@link #copy()} 复制后修改）
+     */
+    private static final class Snapshot {
+        
+        /**
+         * 配置名称 -> 当前版本配置
+         */
+        private final Map<String, RegisteredConfig> byName;
+        
+        /**
+         * 交易类型ID:配置类型 -> 当前版本配置
+         */
+        private final Map<String, RegisteredConfig> byKey;
+        
+        /**
+         * 银行编码:交易名称:配置类型 -> 当前版本配置（编译时记录所属银行和交易名称，银行或交易类型改名后在下次对账时更新）
+         */
+        private final Map<String, RegisteredConfig> byRoute;
+        
+        private Snapshot(Map<String, RegisteredConfig> byName, Map<String, RegisteredConfig> byKey,
+                         Map<String, RegisteredConfig> byRoute) {
+            this.byName = byName;
+            this.byKey = byKey;
+            this.byRoute = byRoute;
+        }
+        
+        Snapshot copy() {
+            return new Snapshot(new HashMap<>(byName), new HashMap<>(byKey), new HashMap<>(byRoute));
+        }
+        
+        void putAll(List<RegisteredConfig> configs) {
+            for (RegisteredConfig config : configs) {
+                MappingConfigV2 entity = config.getEntity();
+                RegisteredConfig previous = byKey.put(key(entity.getTransactionTypeId(), entity.getConfigType()), config);
+                if (previous != null && !Objects.equals(previous.getEntity().getName(), entity.getName())) {
+                    byName.remove(previous.getEntity().getName(), previous);
+                }
+                if (previous != null && previous.hasRoute()) {
+                    byRoute.remove(routeKey(previous), previous);
+                }
+                byName.put(entity.getName(), config);
+                if (config.hasRoute()) {
+                    byRoute.put(routeKey(config), config);
+                }
+            }
+        }
+        
+        void removeTransactionType(Long transactionTypeId) {
+            byKey.values().removeIf(config -> Objects.equals(config.getEntity().getTransactionTypeId(), transactionTypeId));
+            byName.values().removeIf(config -> Objects.equals(config.getEntity().getTransactionTypeId(), transactionTypeId));
+            byRoute.values().removeIf(config -> Objects.equals(config.getEntity().getTransactionTypeId(), transactionTypeId));
+        }
+        
+        List<RegisteredConfig> transactionType(Long transactionTypeId) {
+            List<RegisteredConfig> result = new ArrayList<>();
+            for (RegisteredConfig config : byKey.values()) {
+                if (Objects.equals(config.getEntity().getTransactionTypeId(), transactionTypeId)) {
+                    result.add(config);
+                }
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * 已注册的配置（数据库实体 + 编译后的映射计划）
+     */
+    @Getter
+    public static class RegisteredConfig {
+        
+        private final MappingConfigV2 entity;
+        
+        private final CompiledMappingPlan plan;
+        
+        /**
+         * 所属银行编码，查找失败时为null
+         */
+        private final String bankCode;
+        
+        /**
+         * 所属交易类型的名称，查找失败时为null
+         */
+        private final String transactionName;
+        
+        public RegisteredConfig(MappingConfigV2 entity, CompiledMappingPlan plan) {
+            this(entity, plan, null, null);
+        }
+        
+        public RegisteredConfig(MappingConfigV2 entity, CompiledMappingPlan plan, String bankCode, String transactionName) {
+            this.entity = entity;
+            this.plan = plan;
+            this.bankCode = bankCode;
+            this.transactionName = transactionName;
+        }
+        
+        /**
+         * 是否可以按银行编码+交易名称索引
+         */
+        boolean hasRoute() {
+            return bankCode != null && transactionName != null;
+        }
+        
+        /**
+         * 是否与给定实体是同一版本（ID和更新时间都相同）
+         */
+        boolean isSameVersion(MappingConfigV2 other) {
+            return Objects.equals(entity.getId(), other.getId())
+                    && Objects.equals(entity.getUpdateTime(), other.getUpdateTime());
+        }
+    }
+}
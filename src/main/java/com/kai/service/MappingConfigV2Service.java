@@ -9,6 +9,7 @@ import com.kai.model.MappingConfig;
 import com.kai.model.MappingConfigV2;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,6 +29,9 @@ public class MappingConfigV2Service extends ServiceImpl<MappingConfigV2Mapper, M
     @Autowired
     private TransactionTypeService transactionTypeService;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     /**
      * 保存配置（新增或更新）
      */
@@ -77,6 +81,7 @@ public class MappingConfigV2Service extends ServiceImpl<MappingConfigV2Mapper, M
             setCurrentVersionIfFirst(transactionTypeId, configType, version);
         }
         
+        publishChanged(entity.getTransactionTypeId());
         return entity;
     }
     
@@ -228,6 +233,7 @@ public class MappingConfigV2Service extends ServiceImpl<MappingConfigV2Mapper, M
             this.update(updateOtherWrapper);
         }
         
+        publishChanged(transactionTypeId);
         return newVersion;
     }
     
@@ -286,6 +292,7 @@ public class MappingConfigV2Service extends ServiceImpl<MappingConfigV2Mapper, M
             this.update(setTargetResponseWrapper);
         }
         
+        publishChanged(transactionTypeId);
         return true;
     }
     
@@ -310,6 +317,14 @@ public class MappingConfigV2Service extends ServiceImpl<MappingConfigV2Mapper, M
             throw new IllegalArgumentException("配置不存在，ID: " + id);
         }
         this.removeById(id);
+        publishChanged(entity.getTransactionTypeId());
+    }
+    
+    /**
+     * 发布配置变更事件，事务提交后刷新配置注册表
+     */
+    private void publishChanged(Long transactionTypeId) {
+        eventPublisher.publishEvent(new MappingConfigChangedEvent(this, transactionTypeId));
     }
 }
 
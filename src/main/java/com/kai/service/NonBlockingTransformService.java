@@ -0,0 +1,443 @@
+package com.kai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kai.dto.TransformResponse;
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.util.NonBlockingJsonReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 非阻塞转换服务
+ * 基于Servlet异步处理和非阻塞I/O（ReadListener/WriteListener）：请求体到达多少读多少，
+ * 等待数据期间不占用请求线程；JSON源数据由Jackson非阻塞解析器逐块解析，XML源数据（Jackson没有非阻塞XML解析器）先缓存字节，
+ * 读取完毕后由 {@link TransformationEngine} 执行规则，结果在输出缓冲区可写时分块写出，客户端读取慢时自然形成背压
+ *
+ * 转换在全部数据读取完毕后才开始，出错时仍可返回完整的错误响应；
+ * 规则在独立的线程池中执行，不占用容器的I/O线程，线程池队列已满时返回503
+ * 调用方无法确定源类型（text/plain或未指定Content-Type）时，按请求体第一个非空白字符判断：'<'为XML，否则为JSON
+ * 请求体开头的UTF-8 BOM（EF BB BF，可能分在多次读取中）在解析前去掉
+ */
+@Slf4j
+@Service
+public class NonBlockingTransformService {
+    
+    private static final int READ_BUFFER_SIZE = 8192;
+    
+    private static final int WRITE_CHUNK_SIZE = 8192;
+    
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    
+    @Autowired
+    private TransformationEngine transformationEngine;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * 请求体大小上限（字节）
+     */
+    @Value("${transform.non-blocking.max-body-size:67108864}")
+    private long maxBodySize;
+    
+    /**
+     * 单个请求的处理超时时间（毫秒）
+     */
+    @Value("${transform.non-blocking.timeout-ms:60000}")
+    private long timeoutMs;
+    
+    @Value("${transform.non-blocking.pool-size:0}")
+    private int poolSize;
+    
+    @Value("${transform.non-blocking.queue-capacity:1000}")
+    private int queueCapacity;
+    
+    /**
+     * 执行转换的线程池
+     */
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    public void init() {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "transform-non-blocking-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        log.info("非阻塞转换线程池已创建，线程数: {}, 队列容量: {}", threads, queueCapacity);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    /**
+     * 开始异步处理请求，方法立即返回，响应在数据读取和转换完成后写出
+     *
+     * @param request 请求（请求体为源报文）
+     * @param response 响应
+     * @param plan 编译后的映射计划
+     * @param sourceType 源数据类型："JSON" 或 "XML"，为null时按请求体内容判断（目标类型未配置时与源类型相同）
+     */
+    public void transform(HttpServletRequest request, HttpServletResponse response, CompiledMappingPlan plan,
+                          String sourceType) throws IOException {
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeoutMs);
+        Exchange exchange = new Exchange(asyncContext, plan, sourceType);
+        asyncContext.addListener(exchange);
+        if (request.getContentLengthLong() > maxBodySize) {
+            exchange.fail(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "请求体超过上限: " + maxBodySize + " 字节");
+            return;
+        }
+        request.getInputStream().setReadListener(exchange);
+    }
+    
+    /**
+     * 同步写出错误响应（未开始异步处理时使用，如配置不存在）
+     *
+     * @param response 响应
+     * @param status HTTP状态码
+     * @param message 错误信息
+     */
+    public void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        TransformResponse body = new TransformResponse();
+        body.setSuccess(false);
+        body.setErrorMessage(message);
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+    
+    /**
+     * 单个请求的处理状态，容器保证同一请求的读写回调不会并发执行
+     */
+    private class Exchange implements ReadListener, WriteListener, AsyncListener {
+        
+        private final AsyncContext asyncContext;
+        
+        private final CompiledMappingPlan plan;
+        
+        /**
+         * 源数据类型，按请求体内容判断时在读到第一个非空白字节前为null
+         */
+        private String sourceType;
+        
+        private String targetType;
+        
+        private final byte[] buffer = new byte[READ_BUFFER_SIZE];
+        
+        /**
+         * JSON源数据的解析器，XML源数据为null
+         */
+        private NonBlockingJsonReader jsonReader;
+        
+        /**
+         * XML源数据的缓冲区，JSON源数据为null
+         */
+        private ByteArrayOutputStream xmlBuffer;
+        
+        private final AtomicBoolean completed = new AtomicBoolean();
+        
+        private long received;
+        
+        /**
+         * 请求体开头已匹配的BOM字节数
+         */
+        private int bomMatched;
+        
+        /**
+         * 请求体开头的BOM检查是否已结束（已跳过BOM或确认没有BOM）
+         */
+        private boolean bomChecked;
+        
+        /**
+         * 转换结果，由转换线程写入，写出回调读取
+         */
+        private volatile byte[] result;
+        
+        private int written;
+        
+        Exchange(AsyncContext asyncContext, CompiledMappingPlan plan, String sourceType) throws IOException {
+            this.asyncContext = asyncContext;
+            this.plan = plan;
+            if (sourceType != null) {
+                begin(sourceType);
+            }
+        }
+        
+        /**
+         * 确定源类型后创建对应的解析器或缓冲区
+         */
+        private void begin(String type) throws IOException {
+            sourceType = type.toUpperCase();
+            String targetProtocol = plan.getTargetProtocol();
+            targetType = targetProtocol != null && !targetProtocol.isEmpty() ? targetProtocol.toUpperCase() : sourceType;
+            if ("XML".equals(sourceType)) {
+                xmlBuffer = new ByteArrayOutputStream(READ_BUFFER_SIZE);
+            } else {
+                jsonReader = new NonBlockingJsonReader();
+            }
+        }
+        
+        @Override
+        public void onDataAvailable() throws IOException {
+            ServletInputStream input = asyncContext.getRequest().getInputStream();
+            while (!completed.get() && input.isReady() && !input.isFinished()) {
+                int length = input.read(buffer);
+                if (length <= 0) {
+                    continue;
+                }
+                received += length;
+                if (received > maxBodySize) {
+                    fail(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "请求体超过上限: " + maxBodySize + " 字节");
+                    return;
+                }
+                int offset = 0;
+                if (!bomChecked) {
+                    offset = skipBom(length);
+                    if (offset < 0) {
+                        return;
+                    }
+                }
+                if (!accept(buffer, offset, length)) {
+                    return;
+                }
+            }
+        }
+        
+        /**
+         * 跳过请求体开头的BOM：只在请求体的第0个字节开始匹配，BOM可能分在多次读取中
+         * 开头的字节与BOM部分匹配后又不匹配时，已匹配的字节作为内容处理
+         *
+         * @return 本次读取中内容开始的位置，解析失败（已返回错误响应）时返回-1
+         */
+        private int skipBom(int length) throws IOException {
+            int offset = 0;
+            while (offset < length && bomMatched < UTF8_BOM.length && buffer[offset] == UTF8_BOM[bomMatched]) {
+                bomMatched++;
+                offset++;
+            }
+            if (bomMatched == UTF8_BOM.length) {
+                bomChecked = true;
+            } else if (offset < length) {
+                bomChecked = true;
+                if (bomMatched > 0 && !accept(UTF8_BOM, 0, bomMatched)) {
+                    return -1;
+                }
+            }
+            return offset;
+        }
+        
+        /**
+         * 处理一段请求体数据：源类型未确定时跳过开头的空白，按第一个内容字节确定源类型
+         *
+         * @return 是否继续读取，解析失败（已返回错误响应）时返回false
+         */
+        private boolean accept(byte[] data, int offset, int end) throws IOException {
+            if (sourceType == null) {
+                offset = contentStart(data, offset, end);
+                if (offset == end) {
+                    return true;
+                }
+                begin(data[offset] == '<' ? "XML" : "JSON");
+            }
+            if (jsonReader == null) {
+                xmlBuffer.write(data, offset, end - offset);
+                return true;
+            }
+            try {
+                jsonReader.feed(data, offset, end - offset);
+                return true;
+            } catch (IOException e) {
+                // 格式错误在读取过程中即可发现，不必等待剩余数据
+                plan.getMetrics().parseError();
+                fail(HttpServletResponse.SC_BAD_REQUEST, "解析JSON数据失败: " + e.getMessage());
+                return false;
+            }
+        }
+        
+        @Override
+        public void onAllDataRead() throws IOException {
+            if (completed.get()) {
+                return;
+            }
+            if (!bomChecked && bomMatched > 0) {
+                // 请求体只有不完整的BOM，按内容处理
+                bomChecked = true;
+                if (!accept(UTF8_BOM, 0, bomMatched)) {
+                    return;
+                }
+            }
+            if (sourceType == null) {
+                // 请求体为空或只有空白，按JSON解析后返回错误
+                begin("JSON");
+            }
+            try {
+                executor.execute(this::transformAndWrite);
+            } catch (RejectedExecutionException e) {
+                log.warn("非阻塞转换线程池已满，拒绝请求");
+                fail(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "服务繁忙，请稍后重试");
+            }
+        }
+        
+        /**
+         * 在转换线程池中执行规则，再注册写出回调
+         */
+        private void transformAndWrite() {
+            byte[] bytes;
+            try {
+                if (jsonReader != null) {
+                    Map<String, Object> sourceMap;
+                    try {
+                        sourceMap = jsonReader.finish();
+                    } catch (Exception e) {
+                        plan.getMetrics().parseError();
+                        throw e;
+                    }
+                    bytes = transformationEngine.transformToBytes(sourceMap, sourceType, plan);
+                } else {
+                    bytes = transformationEngine.transformToBytes(xmlBuffer.toString(StandardCharsets.UTF_8), plan);
+                }
+            } catch (Exception e) {
+                log.error("非阻塞转换失败: {}", e.getMessage(), e);
+                fail(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+            if (completed.get()) {
+                // 转换期间已超时或连接出错，响应已结束
+                return;
+            }
+            
+            result = bytes;
+            try {
+                HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+                response.setContentType("XML".equals(targetType) ? MediaType.APPLICATION_XML_VALUE : MediaType.APPLICATION_JSON_VALUE);
+                response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+                response.setContentLength(bytes.length);
+                response.getOutputStream().setWriteListener(this);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("注册写出回调失败: {}", e.getMessage());
+                complete();
+            }
+        }
+        
+        @Override
+        public void onWritePossible() throws IOException {
+            ServletOutputStream output = asyncContext.getResponse().getOutputStream();
+            while (output.isReady()) {
+                if (written >= result.length) {
+                    complete();
+                    return;
+                }
+                int length = Math.min(WRITE_CHUNK_SIZE, result.length - written);
+                output.write(result, written, length);
+                written += length;
+            }
+        }
+        
+        @Override
+        public void onError(Throwable t) {
+            log.warn("非阻塞转换读写失败: {}", t.getMessage());
+            fail(HttpServletResponse.SC_BAD_REQUEST, "读写请求失败: " + t.getMessage());
+        }
+        
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            log.warn("非阻塞转换超时，已接收 {} 字节", received);
+            fail(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "转换超时");
+        }
+        
+        @Override
+        public void onError(AsyncEvent event) {
+            onError(event.getThrowable());
+        }
+        
+        @Override
+        public void onComplete(AsyncEvent event) {
+            completed.set(true);
+        }
+        
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+        
+        /**
+         * 返回错误响应并结束请求；已开始写出结果时只能结束请求
+         */
+        void fail(int status, String message) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+                if (result == null && !response.isCommitted()) {
+                    writeError(response, status, message);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("写出错误响应失败: {}", e.getMessage());
+            } finally {
+                asyncContext.complete();
+            }
+        }
+        
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                try {
+                    asyncContext.complete();
+                } catch (IllegalStateException e) {
+                    log.debug("结束异步请求失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * 跳过空白，返回从offset开始第一个内容字节的位置，全部跳过时返回end
+     */
+    private static int contentStart(byte[] data, int offset, int end) {
+        int i = offset;
+        while (i < end) {
+            byte b = data[i];
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return i;
+            }
+            i++;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,597 @@
+package com.kai.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.engine.CompiledRule;
+import com.kai.enums.MappingType;
+import com.kai.enums.TransformType;
+import com.kai.util.CompiledPath;
+import com.kai.util.MessageConverterUtil;
+import com.kai.util.PathUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 流式转换引擎
+ * 用于大报文：基于Jackson JsonParser（XML为FromXmlParser）逐个token读取源数据，
+ * 通过JsonGenerator（XML为ToXmlGenerator）边读边写到输出流，不在内存中构建完整的源文档和目标字符串
+ *
+ * 适用条件（不满足时自动回退到 {@link TransformationEngine}）：
+ * 1. 所有规则都是ONE_TO_ONE映射
+ * 2. 源路径为简单点分路径（如 $.header.id），最多一条规则包含一个 [*]（如 $.body.items[*] 或 $.body.items[*].amount），
+ *    该规则只能使用DIRECT转换，其元素逐个写出，内存占用只与单个元素大小有关
+ * 3. 其他规则的源路径不能是重复组路径的前缀，目标路径不能与重复组的目标路径互相包含
+ *
+ * 输出内容与常规转换一致（字段顺序除外）：非重复组的值在源数据读完后统一写出
+ * 注意：XML中只出现一次的重复元素按单元素列表处理
+ *
+ * 转换中途失败（如源数据在重复组中间格式错误）时，已写出的内容不会撤回，输出流中是被截断的、不完整的文档；
+ * 调用方以异常为准判断结果无效（流式接口此时中断响应）。需要失败时不输出任何内容的场景应使用常规转换
+ */
+@Slf4j
+@Service
+public class StreamingTransformationEngine {
+    
+    /**
+     * 表示路径在源数据中不存在
+     */
+    private static final Object MISSING = new Object();
+    
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+    
+    /**
+     * 简单源路径：$.a.b 或 $.a.b[*].c.d
+     */
+    private static final Pattern SIMPLE_PATH = Pattern.compile("^\\$((?:\\.[^.\\[\\]]+)*)(\\[\\*\\]((?:\\.[^.\\[\\]]+)*))?$");
+    
+    @Autowired
+    private TransformationEngine transformationEngine;
+    
+    /**
+     * 映射计划 -> 流式执行计划（不满足流式条件时为空）
+     * 计划不可变，每个计划只分析一次；弱引用键，配置更新后旧计划可被回收
+     */
+    private final Map<CompiledMappingPlan, Optional<StreamingPlan>> streamingPlans =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    
+    /**
+     * 判断映射计划是否可以流式执行
+     */
+    public boolean supports(CompiledMappingPlan plan) {
+        return streamingPlan(plan) != null;
+    }
+    
+    /**
+     * 确定源数据类型：优先使用配置中的源协议，否则根据请求的Content-Type判断
+     *
+     * @param plan 编译后的映射计划
+     * @param contentType 请求的Content-Type，可为null
+     * @return "JSON" 或 "XML"
+     */
+    public String resolveSourceType(CompiledMappingPlan plan, String contentType) {
+        String sourceType = plan.getSourceProtocol();
+        if (sourceType != null && !sourceType.isEmpty()) {
+            return sourceType.toUpperCase();
+        }
+        return contentType != null && contentType.toLowerCase().contains("xml") ? "XML" : "JSON";
+    }
+    
+    /**
+     * 确定目标数据类型（默认与源类型相同）
+     */
+    public String resolveTargetType(CompiledMappingPlan plan, String sourceType) {
+        String targetType = plan.getTargetProtocol();
+        if (targetType == null || targetType.isEmpty()) {
+            return sourceType;
+        }
+        return targetType.toUpperCase();
+    }
+    
+    /**
+     * 执行流式转换
+     * 输入输出流由调用方负责关闭；抛出异常时输出流中可能已有部分内容（被截断的文档）
+     *
+     * @param input 源数据输入流（UTF-8）
+     * @param output 目标数据输出流
+     * @param plan 编译后的映射计划
+     * @param sourceType 源数据类型："JSON" 或 "XML"
+     */
+    public void transform(InputStream input, OutputStream output, CompiledMappingPlan plan, String sourceType) throws Exception {
+        String targetType = resolveTargetType(plan, sourceType);
+        StreamingPlan streamingPlan = streamingPlan(plan);
+        if (streamingPlan == null) {
+            // 不满足流式条件，回退到常规转换
+            log.debug("映射配置不满足流式转换条件，回退到常规转换");
+            String sourceData = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            output.write(transformationEngine.transformToBytes(sourceData, plan));
+            output.flush();
+            return;
+        }
+        
+        boolean xmlSource = "XML".equalsIgnoreCase(sourceType);
+        boolean xmlTarget = "XML".equalsIgnoreCase(targetType);
+        ObjectMapper sourceMapper = xmlSource ? MessageConverterUtil.getXmlMapper() : MessageConverterUtil.getJsonMapper();
+        ObjectMapper targetMapper = xmlTarget ? MessageConverterUtil.getXmlMapper() : MessageConverterUtil.getJsonMapper();
+        
+        long start = System.nanoTime();
+        boolean success = false;
+        try (JsonParser parser = sourceMapper.createParser(input)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("源数据根节点必须是对象");
+            }
+            
+            if (xmlTarget && plan.isIncludeXmlDeclaration()) {
+                output.write(XML_DECLARATION.getBytes(StandardCharsets.UTF_8));
+            }
+            try (JsonGenerator generator = targetMapper.createGenerator(output, JsonEncoding.UTF8)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // 失败时不自动补全未关闭的对象和数组，被截断的输出不能看起来像完整的文档
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                if (plan.isPrettyPrint()) {
+                    generator.useDefaultPrettyPrinter();
+                }
+                StreamingRun run = new StreamingRun(streamingPlan, plan, generator, xmlSource, xmlTarget);
+                run.walkObject(parser, streamingPlan.root);
+                run.finish();
+            }
+            output.flush();
+            success = true;
+        } finally {
+            plan.getMetrics().recordTransform(System.nanoTime() - start, success);
+        }
+    }
+    
+    private StreamingPlan streamingPlan(CompiledMappingPlan plan) {
+        return streamingPlans.computeIfAbsent(plan, key -> Optional.ofNullable(StreamingPlan.analyze(key))).orElse(null);
+    }
+    
+    /**
+     * 单次流式转换的执行状态
+     */
+    private static class StreamingRun {
+        
+        private final StreamingPlan streamingPlan;
+        
+        private final CompiledMappingPlan plan;
+        
+        private final JsonGenerator generator;
+        
+        private final boolean xmlSource;
+        
+        private final boolean xmlTarget;
+        
+        /**
+         * 各捕获节点读取到的值，下标为 {@link PathNode#captureIndex}
+         */
+        private final Object[] capturedValues;
+        
+        /**
+         * 重复组的输出数组是否已打开
+         */
+        private boolean streamOpened;
+        
+        StreamingRun(StreamingPlan streamingPlan, CompiledMappingPlan plan, JsonGenerator generator,
+                     boolean xmlSource, boolean xmlTarget) {
+            this.streamingPlan = streamingPlan;
+            this.plan = plan;
+            this.generator = generator;
+            this.xmlSource = xmlSource;
+            this.xmlTarget = xmlTarget;
+            this.capturedValues = new Object[streamingPlan.captureCount];
+            Arrays.fill(capturedValues, MISSING);
+        }
+        
+        /**
+         * 遍历当前对象的字段（解析器位于START_OBJECT之后）
+         * 只进入规则路径上的节点，其余子树直接跳过
+         */
+        void walkObject(JsonParser parser, PathNode node) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                PathNode child = node.children.get(parser.currentName());
+                JsonToken token = parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                } else if (child.streamField) {
+                    readStreamField(parser, token);
+                } else if (child.captureIndex >= 0) {
+                    capture(child, parser.readValueAs(Object.class));
+                } else if (token == JsonToken.START_OBJECT) {
+                    walkObject(parser, child);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        
+        /**
+         * 读取重复组字段：JSON数组逐个元素读取；XML每次出现的同名元素作为一个元素
+         */
+        private void readStreamField(JsonParser parser, JsonToken token) throws IOException {
+            openStream();
+            if (token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    writeElement(parser.readValueAs(Object.class));
+                }
+            } else if (xmlSource) {
+                writeElement(parser.readValueAs(Object.class));
+            } else {
+                // JSON对象上的[*]取所有字段值，标量没有元素（与JsonPath一致）
+                Object value = parser.readValueAs(Object.class);
+                if (value instanceof Map) {
+                    for (Object element : ((Map<?, ?>) value).values()) {
+                        writeElement(element);
+                    }
+                }
+            }
+        }
+        
+        private void writeElement(Object element) throws IOException {
+            Object value = resolve(element, streamingPlan.elementPath);
+            if (value != MISSING) {
+                generator.writeObject(value);
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private void capture(PathNode node, Object value) {
+            Object existing = capturedValues[node.captureIndex];
+            if (existing != MISSING && xmlSource) {
+                // XML中重复出现的同名元素，与解析为Map时一样合并为列表
+                List<Object> merged;
+                if (existing instanceof RepeatedValues) {
+                    merged = (List<Object>) existing;
+                } else {
+                    merged = new RepeatedValues();
+                    merged.add(existing);
+                }
+                merged.add(value);
+                capturedValues[node.captureIndex] = merged;
+            } else {
+                capturedValues[node.captureIndex] = value;
+            }
+        }
+        
+        /**
+         * 打开输出文档和重复组所在的各级对象，开始输出数组
+         */
+        private void openStream() throws IOException {
+            if (streamOpened) {
+                return;
+            }
+            startDocument();
+            String[] target = streamingPlan.streamTargetPath;
+            for (int i = 0; i < target.length - 1; i++) {
+                generator.writeFieldName(target[i]);
+                generator.writeStartObject();
+            }
+            generator.writeFieldName(target[target.length - 1]);
+            generator.writeStartArray();
+            streamOpened = true;
+        }
+        
+        /**
+         * 源数据读取完毕：计算其他规则的值，写出剩余字段并关闭文档
+         */
+        void finish() throws IOException {
+            Map<String, Object> targetMap = plan.newTargetMap();
+            for (ScalarRule scalarRule : streamingPlan.scalarRules) {
+                Object sourceValue = null;
+                if (scalarRule.captureNode != null) {
+                    Object value = resolve(capturedValues[scalarRule.captureNode.captureIndex], scalarRule.remainingPath);
+                    sourceValue = value == MISSING ? null : value;
+                }
+                try {
+                    Object transformedValue = scalarRule.rule.getTransformer().apply(sourceValue);
+                    scalarRule.rule.getTargetPath().set(targetMap, transformedValue);
+                } catch (Exception e) {
+                    plan.getMetrics().ruleError(scalarRule.rule);
+                    log.error("1对1映射执行失败: {}", e.getMessage(), e);
+                }
+            }
+            
+            if (!streamOpened) {
+                // 源数据中没有重复组（与JsonPath读取不到时一致，写null）
+                if (streamingPlan.streamTarget != null) {
+                    streamingPlan.streamTarget.set(targetMap, null);
+                }
+                startDocument();
+                writeFields(targetMap, null);
+                endDocument();
+                return;
+            }
+            
+            // 关闭重复组数组，再由内向外写出各级对象中的其他字段
+            generator.writeEndArray();
+            String[] target = streamingPlan.streamTargetPath;
+            Object[] levels = new Object[target.length];
+            Object level = targetMap;
+            for (int depth = 0; depth < target.length; depth++) {
+                levels[depth] = level;
+                level = level instanceof Map ? ((Map<?, ?>) level).get(target[depth]) : null;
+            }
+            for (int depth = target.length - 1; depth >= 0; depth--) {
+                Object levelValue = levels[depth];
+                if (levelValue instanceof Map) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> levelMap = (Map<String, Object>) levelValue;
+                    writeFields(levelMap, target[depth]);
+                }
+                if (depth > 0) {
+                    generator.writeEndObject();
+                }
+            }
+            endDocument();
+        }
+        
+        private void writeFields(Map<String, Object> fields, String excludedKey) throws IOException {
+            for (Map.Entry<String, Object> entry : fields.entrySet()) {
+                if (!entry.getKey().equals(excludedKey)) {
+                    generator.writeObjectField(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        
+        /**
+         * 写出文档开头，XML根元素与常规转换的输出保持一致
+         */
+        private void startDocument() throws IOException {
+            if (xmlTarget) {
+                String rootName = plan.getXmlRootElementName();
+                boolean hasRootName = rootName != null && !rootName.trim().isEmpty();
+                ((ToXmlGenerator) generator).setNextName(
+                        new QName(hasRootName ? rootName.trim() : MessageConverterUtil.DEFAULT_XML_ROOT_ELEMENT));
+                generator.writeStartObject();
+                if (hasRootName && streamingPlan.wrapXmlRoot) {
+                    generator.writeFieldName(rootName.trim());
+                    generator.writeStartObject();
+                }
+            } else {
+                generator.writeStartObject();
+            }
+        }
+        
+        private void endDocument() throws IOException {
+            generator.writeEndObject();
+            String rootName = plan.getXmlRootElementName();
+            if (xmlTarget && rootName != null && !rootName.trim().isEmpty() && streamingPlan.wrapXmlRoot) {
+                generator.writeEndObject();
+            }
+        }
+    }
+    
+    /**
+     * 按路径从已读取的值中取子值，路径不存在时返回 {@link #MISSING}
+     */
+    private static Object resolve(Object value, String[] path) {
+        Object current = value;
+        for (String segment : path) {
+            if (!(current instanceof Map) || current instanceof RepeatedValues) {
+                return MISSING;
+            }
+            Map<?, ?> map = (Map<?, ?>) current;
+            if (!map.containsKey(segment)) {
+                return MISSING;
+            }
+            current = map.get(segment);
+        }
+        return current;
+    }
+    
+    /**
+     * XML中重复出现的同名元素合并成的列表
+     */
+    private static class RepeatedValues extends ArrayList<Object> {
+    }
+    
+    /**
+     * 源路径前缀树节点
+     */
+    private static class PathNode {
+        
+        private final Map<String, PathNode> children = new HashMap<>();
+        
+        /**
+         * 是否为重复组字段（[*]前的最后一段）
+         */
+        private boolean streamField;
+        
+        /**
+         * 是否有规则的源路径在此结束
+         */
+        private boolean terminal;
+        
+        /**
+         * 捕获下标，-1表示不在此节点读取值
+         */
+        private int captureIndex = -1;
+        
+        PathNode child(String name) {
+            return children.computeIfAbsent(name, key -> new PathNode());
+        }
+    }
+    
+    /**
+     * 非重复组规则：在捕获节点读取子树，再按剩余路径取值
+     */
+    private static class ScalarRule {
+        
+        private final CompiledRule rule;
+        
+        private final PathNode captureNode;
+        
+        private final String[] remainingPath;
+        
+        ScalarRule(CompiledRule rule, PathNode captureNode, String[] remainingPath) {
+            this.rule = rule;
+            this.captureNode = captureNode;
+            this.remainingPath = remainingPath;
+        }
+    }
+    
+    /**
+     * 流式执行计划：由映射计划分析得到，不满足流式条件时为null
+     */
+    private static class StreamingPlan {
+        
+        private final PathNode root = new PathNode();
+        
+        private final List<ScalarRule> scalarRules = new ArrayList<>();
+        
+        private int captureCount;
+        
+        /**
+         * 重复组元素内的取值路径（[*]之后的部分）
+         */
+        private String[] elementPath;
+        
+        /**
+         * 重复组的目标路径，没有重复组时为null
+         */
+        private CompiledPath streamTarget;
+        
+        /**
+         * 重复组目标路径的各级字段名，没有重复组时为null
+         */
+        private String[] streamTargetPath;
+        
+        /**
+         * XML输出指定根元素名称时，是否需要再包一层根元素（与MessageConverterUtil的判断一致）
+         */
+        private boolean wrapXmlRoot;
+        
+        static StreamingPlan analyze(CompiledMappingPlan plan) {
+            StreamingPlan streamingPlan = new StreamingPlan();
+            List<String[]> sourcePaths = new ArrayList<>();
+            CompiledRule streamRule = null;
+            String[] streamPrefix = null;
+            
+            for (CompiledRule rule : plan.getRules()) {
+                if (rule.getMappingType() != MappingType.ONE_TO_ONE || rule.getTargetPath().isEmpty()
+                        || !rule.getTargetPath().isSimple()) {
+                    return null;
+                }
+                if (!rule.hasSourcePath() || rule.getCompiledSourcePath() == null) {
+                    sourcePaths.add(null);
+                    continue;
+                }
+                String sourcePath = rule.getSourcePath().trim();
+                Matcher matcher = SIMPLE_PATH.matcher(sourcePath.startsWith("$") ? sourcePath : "$." + sourcePath);
+                if (!matcher.matches()) {
+                    return null;
+                }
+                String[] prefix = PathUtil.parsePath(matcher.group(1));
+                if (prefix.length == 0) {
+                    return null;
+                }
+                if (matcher.group(2) != null) {
+                    // 只支持一个直接赋值的重复组
+                    TransformType transformType = rule.getTransformType();
+                    if (streamRule != null || (transformType != null && transformType != TransformType.DIRECT)) {
+                        return null;
+                    }
+                    streamRule = rule;
+                    streamPrefix = prefix;
+                    streamingPlan.elementPath = PathUtil.parsePath(matcher.group(3));
+                    sourcePaths.add(null);
+                } else {
+                    sourcePaths.add(prefix);
+                }
+            }
+            
+            // 构建前缀树并标记规则路径终点
+            for (String[] path : sourcePaths) {
+                if (path != null) {
+                    streamingPlan.insert(path).terminal = true;
+                }
+            }
+            if (streamPrefix != null) {
+                PathNode node = streamingPlan.root;
+                for (String segment : streamPrefix) {
+                    node = node.child(segment);
+                    if (node.terminal) {
+                        // 其他规则会读取包含重复组的整个子树
+                        return null;
+                    }
+                }
+                node.streamField = true;
+                streamingPlan.streamTarget = streamRule.getTargetPath();
+                streamingPlan.streamTargetPath = streamingPlan.streamTarget.keys();
+            }
+            
+            // 每条规则在路径上最浅的终点处读取值
+            List<CompiledRule> rules = plan.getRules();
+            for (int i = 0; i < rules.size(); i++) {
+                CompiledRule rule = rules.get(i);
+                if (rule == streamRule) {
+                    continue;
+                }
+                String[] path = sourcePaths.get(i);
+                if (path == null) {
+                    streamingPlan.scalarRules.add(new ScalarRule(rule, null, null));
+                    continue;
+                }
+                PathNode node = streamingPlan.root;
+                int depth = 0;
+                while (!node.terminal) {
+                    node = node.children.get(path[depth++]);
+                }
+                if (node.captureIndex < 0) {
+                    node.captureIndex = streamingPlan.captureCount++;
+                }
+                streamingPlan.scalarRules.add(new ScalarRule(rule, node, Arrays.copyOfRange(path, depth, path.length)));
+            }
+            
+            // 其他规则的目标路径不能与重复组的目标路径互相包含
+            Set<String> topLevelKeys = new HashSet<>();
+            for (CompiledRule rule : rules) {
+                String[] target = rule.getTargetPath().keys();
+                topLevelKeys.add(target[0]);
+                if (streamRule != null && rule != streamRule && isPrefix(target, streamingPlan.streamTargetPath)) {
+                    return null;
+                }
+            }
+            
+            String rootName = plan.getXmlRootElementName();
+            streamingPlan.wrapXmlRoot = rootName == null
+                    || !(topLevelKeys.size() == 1 && topLevelKeys.contains(rootName.trim()));
+            return streamingPlan;
+        }
+        
+        private PathNode insert(String[] path) {
+            PathNode node = root;
+            for (String segment : path) {
+                node = node.child(segment);
+            }
+            return node;
+        }
+        
+        /**
+         * 两个路径中较短的是否为较长的前缀
+         */
+        private static boolean isPrefix(String[] first, String[] second) {
+            int length = Math.min(first.length, second.length);
+            for (int i = 0; i < length; i++) {
+                if (!first[i].equals(second[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
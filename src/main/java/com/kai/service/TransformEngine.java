@@ -6,10 +6,11 @@ import com.kai.model.FieldMapping;
 import com.kai.model.TransformRule;
 import com.kai.util.FieldPathUtil;
 import com.kai.util.JsonUtil;
+import com.kai.util.MessageConverterUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -28,8 +29,8 @@ public class TransformEngine {
         // 1. 解析源数据
         Map<String, Object> sourceMap = parseSourceData(sourceData, rule.getSourceType());
         
-        // 2. 创建目标Map
-        Map<String, Object> targetMap = new HashMap<>();
+        // 2. 创建目标Map（按映射顺序输出字段）
+        Map<String, Object> targetMap = new LinkedHashMap<>();
         
         // 3. 执行字段映射
         if (rule.getFieldMappings() != null) {
@@ -61,7 +62,7 @@ public class TransformEngine {
         if (targetType == ProtocolType.JSON) {
             return JsonUtil.mapToJson(targetMap, prettyPrint);
         } else if (targetType == ProtocolType.XML) {
-            return JsonUtil.mapToXml(targetMap, prettyPrint);
+            return JsonUtil.mapToXml(targetMap, prettyPrint, MessageConverterUtil.DEFAULT_XML_ROOT_ELEMENT);
         }
         throw new IllegalArgumentException("不支持的目标协议类型: " + targetType);
     }
@@ -127,7 +128,7 @@ public class TransformEngine {
     private void applyManyToOneMapping(Map<String, Object> sourceMap, Map<String, Object> targetMap, FieldMapping mapping) {
         if (mapping.getSubMappings() != null && !mapping.getSubMappings().isEmpty()) {
             // 创建一个Map来存储多个源字段的值
-            Map<String, Object> combinedValue = new HashMap<>();
+            Map<String, Object> combinedValue = new LinkedHashMap<>();
             
             for (FieldMapping subMapping : mapping.getSubMappings()) {
                 Object sourceValue = FieldPathUtil.getValueByPath(sourceMap, subMapping.getSourceField());
@@ -0,0 +1,164 @@
+package com.kai.service;
+
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.metrics.PlanMetrics;
+import com.kai.util.LruCache;
+import com.kai.util.XxHash64;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * 转换结果缓存
+ * 同一配置版本对相同源报文的转换结果相同（规则都确定时），重复的报文（如重试、轮询查询）直接返回上次的结果，
+ * 不再解析、执行规则和序列化
+ *
+ * - 只对开启了cacheResult且规则都确定的计划生效（见 {@link CompiledMappingPlan#isResultCacheable()}），
+ *   开启了cacheResult但规则含当前时间、随机数等转换的计划每次都重新执行
+ * - 键为计划（即配置的当前版本，配置变更后计划重新编译，旧版本的结果不再命中）、输出形式和源报文的XXH64哈希；
+ *   哈希不是加密哈希，命中时还要比较源报文原文，碰撞的报文按未命中处理
+ * - 条目数不超过max-entries（按LRU淘汰），条目在ttl-seconds后过期，源报文超过max-source-length个字符时不缓存
+ *
+ * 指标：
+ * - transform.result.cache{result=hit|miss|bypass}：按配置记录（见 {@link PlanMetrics}）
+ * - transform.result.cache.size：缓存条目数
+ */
+@Slf4j
+@Service
+public class TransformResultCache {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${transform.result-cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${transform.result-cache.max-entries:1000}")
+    private int maxEntries;
+    
+    @Value("${transform.result-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+    
+    @Value("${transform.result-cache.max-source-length:16384}")
+    private int maxSourceLength;
+    
+    private LruCache<Key, Entry> entries;
+    
+    @PostConstruct
+    public void init() {
+        if (maxEntries <= 0) {
+            enabled = false;
+        }
+        if (enabled) {
+            entries = new LruCache<>(maxEntries);
+            Gauge.builder("transform.result.cache.size", entries, LruCache::size)
+                    .description("转换结果缓存条目数").register(meterRegistry);
+        }
+        log.info("转换结果缓存: {}, 最大条目数: {}, 有效期: {}秒, 源报文长度上限: {}",
+                enabled ? "开启" : "关闭", maxEntries, ttlSeconds, maxSourceLength);
+    }
+    
+    /**
+     * 查找缓存的转换结果，未命中时执行转换并缓存结果
+     *
+     * @param plan 编译后的映射计划（调用方已确认配置开启了结果缓存）
+     * @param format 输出形式（字符串、字节等，同一报文不同输出形式的结果分别缓存）
+     * @param sourceData 源报文
+     * @param copier 复制结果（可变的结果如字节数组，缓存与调用方各持有一份）
+     * @param loader 执行转换
+     * @return 转换结果
+     * @throws Exception 转换失败（失败的转换不缓存）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(CompiledMappingPlan plan, Object format, String sourceData, UnaryOperator<T> copier,
+                     Callable<T> loader) throws Exception {
+        PlanMetrics metrics = plan.getMetrics();
+        if (!enabled || !plan.isResultCacheable() || sourceData == null || sourceData.length() > maxSourceLength) {
+            metrics.cacheBypass();
+            return loader.call();
+        }
+        
+        Key key = new Key(plan, format, XxHash64.hash(sourceData));
+        Entry cached = entries.get(key);
+        if (cached != null && !cached.isExpired(ttlSeconds) && cached.sourceData.equals(sourceData)) {
+            metrics.cacheHit();
+            return copier.apply((T) cached.result);
+        }
+        metrics.cacheMiss();
+        T result = loader.call();
+        if (result != null) {
+            entries.put(key, new Entry(sourceData, copier.apply(result)));
+        }
+        return result;
+    }
+    
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        if (entries != null) {
+            entries.clear();
+        }
+    }
+    
+    /**
+     * 缓存键：计划按实例区分
+     */
+    private static final class Key {
+        
+        private final CompiledMappingPlan plan;
+        
+        private final Object format;
+        
+        private final long hash;
+        
+        private Key(CompiledMappingPlan plan, Object format, long hash) {
+            this.plan = plan;
+            this.format = format;
+            this.hash = hash;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && plan == other.plan && format == other.format;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + System.identityHashCode(plan);
+        }
+    }
+    
+    private static final class Entry {
+        
+        private final String sourceData;
+        
+        private final Object result;
+        
+        private final long cachedAt = System.nanoTime();
+        
+        private Entry(String sourceData, Object result) {
+            this.sourceData = sourceData;
+            this.result = result;
+        }
+        
+        boolean isExpired(long ttlSeconds) {
+            return ttlSeconds > 0 && System.nanoTime() - cachedAt > TimeUnit.SECONDS.toNanos(ttlSeconds);
+        }
+    }
+}
@@ -1,29 +1,93 @@
 package com.kai.service;
 
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
-import com.kai.enums.MappingType;
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.engine.CompiledRule;
+import com.kai.engine.CompiledTransformer;
+import com.kai.engine.GeneratedTransformerSupport;
+import com.kai.engine.XmlMappingPlan;
 import com.kai.enums.TransformType;
+import com.kai.metrics.PlanMetrics;
+import com.kai.metrics.TransformMetrics;
 import com.kai.model.MappingConfig;
-import com.kai.model.MappingRule;
 import com.kai.strategy.TransformStrategy;
+import com.kai.util.MapXmlWriter;
 import com.kai.util.MessageConverterUtil;
-import com.kai.util.PathUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * 转换引擎核心类
  * 负责执行报文转换的核心逻辑
+ * 
+ * MappingConfig先编译为 {@link CompiledMappingPlan}（策略、规则配置、目标路径均预先解析），
+ * 再由计划执行转换；已存储配置的计划由 {@link MappingConfigRegistry} 按当前版本缓存并复用
+ * XML到XML的配置满足条件时走原生XML管道（{@link XmlMappingPlan}），不构建源Map和JsonPath文档
+ * 数组映射的元素数达到transform.array.parallel-threshold时，元素分段在专用的ForkJoin线程池上并行执行
+ * 开启了结果缓存的配置先查找 {@link TransformResultCache}，相同的源报文直接返回上次的结果
  */
 @Slf4j
 @Service
 public class TransformationEngine {
     
+    /**
+     * 数组映射每个线程平均分到的段数，段太大时负载不均，太小时调度开销占比高
+     */
+    private static final int ARRAY_CHUNKS_PER_THREAD = 4;
+    
+    /**
+     * 数组映射每段的最少元素数
+     */
+    private static final int MIN_ARRAY_CHUNK_SIZE = 64;
+    
     private final Map<String, TransformStrategy> strategyMap = new HashMap<>();
     
+    private TransformMetrics transformMetrics;
+    
+    /**
+     * 直接传入配置（未命名）的转换共用的指标
+     */
+    private PlanMetrics inlineMetrics = PlanMetrics.NOOP;
+    
+    /**
+     * 是否为已存储配置的计划生成专用的转换器类
+     */
+    @Value("${transform.codegen.enabled:false}")
+    private boolean codegenEnabled;
+    
+    /**
+     * 数组映射并行执行的最小元素数，小于等于0时总是顺序执行
+     */
+    @Value("${transform.array.parallel-threshold:2000}")
+    private int arrayParallelThreshold;
+    
+    /**
+     * 数组映射线程池的并行度，为0时使用CPU核数
+     */
+    @Value("${transform.array.parallelism:0}")
+    private int arrayParallelism;
+    
+    /**
+     * 数组映射的并行线程池，未初始化（如直接构造引擎）或并行度为1时为null，顺序执行
+     */
+    private ForkJoinPool arrayPool;
+    
+    /**
+     * 结果缓存，未注入时（如直接构造引擎）不缓存
+     */
+    private TransformResultCache resultCache;
+    
     @Autowired
     public TransformationEngine(List<TransformStrategy> strategies) {
         // 注册所有策略
@@ -33,46 +97,352 @@ public class TransformationEngine {
         }
     }
     
+    @PostConstruct
+    public void init() {
+        int parallelism = arrayParallelism > 0 ? arrayParallelism : Runtime.getRuntime().availableProcessors();
+        if (arrayParallelThreshold > 0 && parallelism > 1) {
+            arrayPool = new ForkJoinPool(parallelism, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("array-mapping-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+            log.info("数组映射并行线程池已创建，并行度: {}, 并行阈值: {}", parallelism, arrayParallelThreshold);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (arrayPool != null) {
+            arrayPool.shutdown();
+        }
+    }
+    
+    /**
+     * 注入指标工厂（未注入时不记录指标，如直接构造引擎的基准测试）
+     */
+    @Autowired(required = false)
+    public void setTransformMetrics(TransformMetrics transformMetrics) {
+        this.transformMetrics = transformMetrics;
+        this.inlineMetrics = transformMetrics.forConfig("inline", "none", "unknown");
+    }
+    
+    @Autowired(required = false)
+    public void setResultCache(TransformResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+    
     /**
      * 执行转换
      * 支持 JSON 和 XML 格式的输入输出
+     * 每次调用都会重新编译配置，高频场景应使用 {@link #transform(String, CompiledMappingPlan)}
      * 
      * @param sourceData 源数据字符串（JSON或XML）
      * @param config 映射配置（包含sourceProtocol和targetProtocol）
      * @return 转换后的数据字符串（JSON或XML）
      */
     public String transform(String sourceData, MappingConfig config) throws Exception {
-        // 1. 确定源数据类型（如果配置中没有，尝试自动检测）
-        String sourceType = config.getSourceProtocol();
+        // 每次编译的计划不会再被使用，不经过结果缓存
+        CompiledMappingPlan plan = compile(config);
+        return execute(sourceData, plan, plan.getMetrics(), TargetWriter.STRING);
+    }
+    
+    /**
+     * 使用编译后的映射计划执行转换
+     * 
+     * @param sourceData 源数据字符串（JSON或XML）
+     * @param plan 编译后的映射计划
+     * @return 转换后的数据字符串（JSON或XML）
+     */
+    public String transform(String sourceData, CompiledMappingPlan plan) throws Exception {
+        return cachedExecute(sourceData, plan, TargetWriter.STRING);
+    }
+    
+    /**
+     * 使用编译后的映射计划执行转换，结果直接序列化为UTF-8字节
+     * 不生成中间的结果字符串，适合直接写入响应体
+     * 
+     * @param sourceData 源数据字符串（JSON或XML）
+     * @param plan 编译后的映射计划
+     * @return 转换后的数据（UTF-8编码）
+     */
+    public byte[] transformToBytes(String sourceData, CompiledMappingPlan plan) throws Exception {
+        return cachedExecute(sourceData, plan, TargetWriter.BYTES);
+    }
+    
+    /**
+     * 对调用方已解析好的源数据执行转换，结果直接序列化为UTF-8字节
+     * 用于源数据由非阻塞解析器逐块解析的场景，解析耗时不计入转换指标
+     * 
+     * @param sourceMap 解析后的源数据
+     * @param sourceType 源数据类型："JSON" 或 "XML"（未配置目标协议时作为目标类型）
+     * @param plan 编译后的映射计划
+     * @return 转换后的数据（UTF-8编码）
+     */
+    public byte[] transformToBytes(Map<String, Object> sourceMap, String sourceType, CompiledMappingPlan plan) throws Exception {
+        PlanMetrics metrics = plan.getMetrics();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            byte[] result = applyRules(sourceMap, sourceType, plan, metrics, start, TargetWriter.BYTES);
+            success = true;
+            return result;
+        } finally {
+            metrics.recordTransform(System.nanoTime() - start, success);
+        }
+    }
+    
+    /**
+     * 预热执行：每次都完整执行解析、规则和序列化，不经过结果缓存，也不记录计划的转换耗时和次数
+     * 生成的转换器和策略在编译时绑定了计划的指标，规则级的指标（如策略耗时）仍会记录
+     * 
+     * @param sourceData 样例报文
+     * @param plan 编译后的映射计划
+     * @return 转换后的数据
+     */
+    public String transformForWarmup(String sourceData, CompiledMappingPlan plan) throws Exception {
+        return execute(sourceData, plan, PlanMetrics.NOOP, TargetWriter.STRING);
+    }
+    
+    /**
+     * 配置开启了结果缓存时先查找缓存，未命中时执行转换并缓存结果
+     */
+    private <T> T cachedExecute(String sourceData, CompiledMappingPlan plan, TargetWriter<T> writer) throws Exception {
+        if (resultCache == null || !plan.isCacheResult()) {
+            return execute(sourceData, plan, plan.getMetrics(), writer);
+        }
+        return resultCache.get(plan, writer, sourceData, writer::copy,
+                () -> execute(sourceData, plan, plan.getMetrics(), writer));
+    }
+    
+    private <T> T execute(String sourceData, CompiledMappingPlan plan, PlanMetrics metrics, TargetWriter<T> writer)
+            throws Exception {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            // XML到XML的配置优先走原生XML管道，读取结果无法保证与常规管道一致时回退
+            if (plan.getXmlPlan() != null) {
+                T result = transformXml(sourceData, plan, metrics, start, writer);
+                if (result != null) {
+                    success = true;
+                    return result;
+                }
+            }
+            
+            // 1. 确定源数据类型（如果配置中没有，尝试自动检测）
+            String sourceType = plan.getSourceProtocol();
+            if (sourceType == null || sourceType.isEmpty()) {
+                sourceType = MessageConverterUtil.isXmlFormat(sourceData) ? "XML" : "JSON";
+                log.info("自动检测源数据类型: {}", sourceType);
+            }
+            
+            // 2. 解析源数据为Map（统一使用Map作为内部表示）
+            Map<String, Object> sourceMap;
+            try {
+                sourceMap = parseSourceToMap(sourceData, sourceType);
+            } catch (Exception e) {
+                metrics.parseError();
+                throw e;
+            }
+            long parsed = System.nanoTime();
+            metrics.recordParse(parsed - start);
+            
+            T result = applyRules(sourceMap, sourceType, plan, metrics, parsed, writer);
+            success = true;
+            return result;
+        } finally {
+            metrics.recordTransform(System.nanoTime() - start, success);
+        }
+    }
+    
+    /**
+     * 对解析后的源数据执行所有规则并序列化结果
+     * 
+     * @param parsed 解析完成的时间（System.nanoTime）
+     */
+    private <T> T applyRules(Map<String, Object> sourceMap, String sourceType, CompiledMappingPlan plan,
+                             PlanMetrics metrics, long parsed, TargetWriter<T> writer) throws Exception {
+        // 3-4. 执行规则
+        Map<String, Object> targetMap = executeRules(sourceMap, plan, metrics);
+        long applied = System.nanoTime();
+        metrics.recordRules(applied - parsed);
+        
+        // 5. 确定目标数据类型（默认与源类型相同，如果配置中有则使用配置的）
+        String targetType = resolveTargetType(plan, sourceType);
+        
+        // 6. 将目标Map转换为目标格式
+        T result;
+        try {
+            result = writer.write(targetMap, targetType, plan);
+        } catch (Exception e) {
+            metrics.serializeError();
+            throw e;
+        }
+        metrics.recordSerialize(System.nanoTime() - applied);
+        return result;
+    }
+    
+    /**
+     * 按规则顺序写入新的目标Map：计划有生成的转换器时直接执行，
+     * 否则将源数据包装为JsonPath文档供所有规则共享，逐条解释执行
+     * 
+     * @param source 源数据，通常为Map；数组映射的元素可以是任意值
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> executeRules(Object source, CompiledMappingPlan plan, PlanMetrics metrics) {
+        Map<String, Object> targetMap = plan.newTargetMap();
+        CompiledTransformer generated = plan.getGeneratedTransformer();
+        if (generated != null && source instanceof Map) {
+            generated.transform((Map<String, Object>) source, targetMap);
+            return targetMap;
+        }
+        
+        DocumentContext document = JsonPath.parse(source);
+        SourceReader reader = (jsonPath, rawPath) -> readJsonPath(document, jsonPath, rawPath);
+        for (CompiledRule rule : plan.getRules()) {
+            applyRule(reader, rule, targetMap, metrics);
+        }
+        return targetMap;
+    }
+    
+    /**
+     * 目标数据类型：默认与源类型相同，配置中有则使用配置的
+     */
+    private static String resolveTargetType(CompiledMappingPlan plan, String sourceType) {
+        String targetType = plan.getTargetProtocol();
+        return targetType == null || targetType.isEmpty() ? sourceType : targetType;
+    }
+    
+    /**
+     * 链式转换：多个映射计划依次执行，前一个计划输出的目标Map直接作为后一个计划的源数据，中间不序列化、不重新解析
+     * 源数据按第一个计划的源协议解析，结果按最后一个计划的目标协议、格式化和XML选项输出；
+     * 中间结果不经过目标格式，值保持原始类型，XML根元素选项只对最后一个计划生效
+     * 
+     * @param sourceData 源数据字符串（JSON或XML）
+     * @param plans 按执行顺序排列的映射计划（至少一个）
+     * @return 最后一个计划的转换结果
+     */
+    public String transformChain(String sourceData, List<CompiledMappingPlan> plans) throws Exception {
+        if (plans == null || plans.isEmpty()) {
+            throw new IllegalArgumentException("链式转换至少需要一个配置");
+        }
+        if (plans.size() == 1) {
+            return transform(sourceData, plans.get(0));
+        }
+        
+        CompiledMappingPlan first = plans.get(0);
+        String sourceType = first.getSourceProtocol();
         if (sourceType == null || sourceType.isEmpty()) {
             sourceType = MessageConverterUtil.isXmlFormat(sourceData) ? "XML" : "JSON";
-            log.info("自动检测源数据类型: {}", sourceType);
         }
         
-        // 2. 解析源数据为Map（统一使用Map作为内部表示）
-        Map<String, Object> sourceMap = parseSourceToMap(sourceData, sourceType);
+        long start = System.nanoTime();
+        Map<String, Object> current;
+        try {
+            current = parseSourceToMap(sourceData, sourceType);
+        } catch (Exception e) {
+            first.getMetrics().parseError();
+            first.getMetrics().recordTransform(System.nanoTime() - start, false);
+            throw e;
+        }
+        long stageStart = System.nanoTime();
+        first.getMetrics().recordParse(stageStart - start);
         
-        // 3. 创建目标Map
-        Map<String, Object> targetMap = new HashMap<>();
+        // 中间计划只执行规则，每个计划分别记录指标
+        String currentType = sourceType;
+        for (int i = 0; i < plans.size() - 1; i++) {
+            CompiledMappingPlan plan = plans.get(i);
+            current = executeRules(current, plan, plan.getMetrics());
+            long applied = System.nanoTime();
+            plan.getMetrics().recordRules(applied - stageStart);
+            plan.getMetrics().recordTransform(applied - (i == 0 ? start : stageStart), true);
+            currentType = resolveTargetType(plan, currentType);
+            stageStart = applied;
+        }
         
-        // 4. 遍历规则，执行转换
-        if (config.getRules() != null) {
-            for (MappingRule rule : config.getRules()) {
-                applyRule(sourceMap, rule, targetMap);
-            }
+        CompiledMappingPlan last = plans.get(plans.size() - 1);
+        boolean success = false;
+        try {
+            String result = applyRules(current, currentType, last, last.getMetrics(), stageStart, TargetWriter.STRING);
+            success = true;
+            return result;
+        } finally {
+            last.getMetrics().recordTransform(System.nanoTime() - stageStart, success);
+        }
+    }
+    
+    /**
+     * 原生XML管道：StAX读取规则源路径上的值，执行规则后由XMLStreamWriter直接写出
+     * 
+     * @return 转换结果，源报文结构与解析为Map后不一致时返回null（尚未执行任何规则）
+     */
+    private <T> T transformXml(String sourceData, CompiledMappingPlan plan, PlanMetrics metrics, long start,
+                               TargetWriter<T> writer) throws Exception {
+        XmlMappingPlan.XmlSource source = plan.getXmlPlan().read(sourceData);
+        if (source == null) {
+            log.debug("源报文不满足原生XML管道条件，回退到常规转换");
+            return null;
         }
+        long parsed = System.nanoTime();
+        metrics.recordParse(parsed - start);
         
-        // 5. 确定目标数据类型（默认与源类型相同，如果配置中有则使用配置的）
-        String targetType = config.getTargetProtocol();
-        if (targetType == null || targetType.isEmpty()) {
-            targetType = sourceType; // 默认与源类型相同
+        Map<String, Object> targetMap = plan.newTargetMap();
+        SourceReader reader = (jsonPath, rawPath) -> source.read(rawPath);
+        for (CompiledRule rule : plan.getRules()) {
+            applyRule(reader, rule, targetMap, metrics);
         }
+        long applied = System.nanoTime();
+        metrics.recordRules(applied - parsed);
         
-        // 6. 将目标Map转换为目标格式字符串
-        boolean prettyPrint = config.getPrettyPrint() != null && config.getPrettyPrint();
-        String xmlRootElementName = config.getXmlRootElementName();
-        boolean includeXmlDeclaration = config.getIncludeXmlDeclaration() != null && config.getIncludeXmlDeclaration();
-        return MessageConverterUtil.mapToString(targetMap, targetType, prettyPrint, xmlRootElementName, includeXmlDeclaration);
+        T result;
+        try {
+            result = writer.writeXml(targetMap, plan);
+            if (result == null) {
+                // 目标值中有XMLStreamWriter不直接支持的类型，交给Jackson序列化
+                result = writer.write(targetMap, "XML", plan);
+            }
+        } catch (Exception e) {
+            metrics.serializeError();
+            throw e;
+        }
+        metrics.recordSerialize(System.nanoTime() - applied);
+        return result;
+    }
+    
+    /**
+     * 编译映射配置
+     * 
+     * @param config 映射配置
+     * @return 编译后的映射计划
+     */
+    public CompiledMappingPlan compile(MappingConfig config) {
+        return CompiledMappingPlan.compile(config, strategyMap, inlineMetrics);
+    }
+    
+    /**
+     * 使用指定的指标编译映射配置（如预热时不记录指标）
+     * 
+     * @param config 映射配置
+     * @param metrics 计划的指标
+     * @return 编译后的映射计划
+     */
+    public CompiledMappingPlan compile(MappingConfig config, PlanMetrics metrics) {
+        return CompiledMappingPlan.compile(config, strategyMap, metrics);
+    }
+    
+    /**
+     * 编译已存储的映射配置，指标按配置名称、版本和银行区分
+     * 开启transform.codegen.enabled时为计划生成专用的转换器类（这类计划会长期复用，值得付出生成的开销）
+     * 
+     * @param config 映射配置
+     * @param configName 配置名称
+     * @param version 配置版本
+     * @param bankCode 银行编码
+     * @return 编译后的映射计划
+     */
+    public CompiledMappingPlan compile(MappingConfig config, String configName, String version, String bankCode) {
+        PlanMetrics metrics = transformMetrics != null
+                ? transformMetrics.forConfig(configName, version, bankCode) : PlanMetrics.NOOP;
+        return CompiledMappingPlan.compile(config, strategyMap, metrics, codegenEnabled);
     }
     
     /**
@@ -80,8 +450,8 @@ public class TransformationEngine {
      */
     private Map<String, Object> parseSourceToMap(String sourceData, String sourceType) throws Exception {
         try {
-            // 使用 MessageConverterUtil 统一解析
-            Map<String, Object> sourceMap = MessageConverterUtil.parseToMap(sourceData, sourceType);
+            // 解析为紧凑只读树：规则只读取源数据，读取到的Map/List会复制后再写入目标
+            Map<String, Object> sourceMap = MessageConverterUtil.parseToCompactMap(sourceData, sourceType);
             
             // 对于 XML，Jackson 可能会产生特殊的结构，需要适配 JsonPath
             // JsonPath 需要 JSON 格式的数据，所以需要确保 Map 结构正确
@@ -102,25 +472,19 @@ public class TransformationEngine {
     /**
      * 应用单个映射规则
      */
-    private void applyRule(Map<String, Object> sourceMap, MappingRule rule, Map<String, Object> targetMap) {
-        if (rule.getTransformType() == TransformType.IGNORE) {
-            return;
-        }
-        
-        MappingType mappingType = rule.getMappingType();
-        if (mappingType == null) {
-            mappingType = MappingType.ONE_TO_ONE;
-        }
-        
-        switch (mappingType) {
+    private void applyRule(SourceReader reader, CompiledRule rule, Map<String, Object> targetMap, PlanMetrics metrics) {
+        switch (rule.getMappingType()) {
             case ONE_TO_ONE:
-                applyOneToOneMapping(sourceMap, rule, targetMap);
+                applyOneToOneMapping(reader, rule, targetMap, metrics);
                 break;
             case ONE_TO_MANY:
-                applyOneToManyMapping(sourceMap, rule, targetMap);
+                applyOneToManyMapping(reader, rule, targetMap);
                 break;
             case MANY_TO_ONE:
-                applyManyToOneMapping(sourceMap, rule, targetMap);
+                applyManyToOneMapping(reader, rule, targetMap, metrics);
+                break;
+            case ARRAY:
+                applyArrayMapping(reader, rule, targetMap, metrics);
                 break;
         }
     }
@@ -128,23 +492,23 @@ public class TransformationEngine {
     /**
      * 1对1映射
      */
-    private void applyOneToOneMapping(Map<String, Object> sourceMap, MappingRule rule, Map<String, Object> targetMap) {
+    private void applyOneToOneMapping(SourceReader reader, CompiledRule rule, Map<String, Object> targetMap,
+                                      PlanMetrics metrics) {
         try {
             Object sourceValue = null;
             
             // 如果是固定值，sourcePath可能为null
-            if (rule.getSourcePath() != null && !rule.getSourcePath().isEmpty()) {
-                sourceValue = readJsonPath(sourceMap, rule.getSourcePath());
+            if (rule.hasSourcePath()) {
+                sourceValue = reader.read(rule.getCompiledSourcePath(), rule.getSourcePath());
             }
             
             // 执行转换
-            Object transformedValue = executeTransform(sourceValue, rule);
+            Object transformedValue = rule.getTransformer().apply(sourceValue);
             
-            // 设置到目标路径
-            if (transformedValue != null || rule.getTransformType() != TransformType.IGNORE) {
-                PathUtil.setDeepValue(targetMap, rule.getTargetPath(), transformedValue);
-            }
+            // 设置到目标路径（IGNORE规则在编译阶段已被过滤）
+            rule.getTargetPath().set(targetMap, transformedValue);
         } catch (Exception e) {
+            metrics.ruleError(rule);
             log.error("1对1映射执行失败: {}", e.getMessage(), e);
         }
     }
@@ -153,70 +517,54 @@ public class TransformationEngine {
      * 1对多映射
      * 支持两种模式：
      * 1. 对象拆分：源值是Map对象，通过subMappings将对象的子字段映射到多个目标路径
-     * 2. 字符串拆分：源值是字符串，通过Groovy脚本拆分成Map，然后通过subMappings映射到多个目标路径
+     * 2. 字符串拆分：源值是字符串，通过Groovy脚本拆分成Map（或按索引取值的List），然后通过subMappings映射到多个目标路径
      */
-    private void applyOneToManyMapping(Map<String, Object> sourceMap, MappingRule rule, Map<String, Object> targetMap) {
+    private void applyOneToManyMapping(SourceReader reader, CompiledRule rule, Map<String, Object> targetMap) {
+        // 没有子映射配置时无需处理
+        if (rule.getSubMappings().isEmpty()) {
+            return;
+        }
+        
         // 读取源值
-        Object sourceValue = readJsonPath(sourceMap, rule.getSourcePath());
+        Object sourceValue = reader.read(rule.getCompiledSourcePath(), rule.getSourcePath());
+        Object splitResult = null;
+        
+        // 如果源值是Map对象，直接使用
+        if (sourceValue instanceof Map) {
+            splitResult = sourceValue;
+        }
+        // 如果源值是字符串，且使用了Groovy脚本或表达式，执行脚本拆分
+        else if (sourceValue instanceof String
+                && (rule.getTransformType() == TransformType.GROOVY || rule.getTransformType() == TransformType.EXPRESSION)) {
+            // 执行脚本，期望返回一个Map或List
+            Object transformedValue = rule.getTransformer().apply(sourceValue);
+            if (transformedValue instanceof Map || transformedValue instanceof List) {
+                splitResult = transformedValue;
+            }
+        }
+        
+        if (splitResult == null) {
+            return;
+        }
         
-        // 如果有子映射配置，使用子映射
-        if (rule.getTransformConfig() != null && rule.getTransformConfig().containsKey("subMappings")) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, String>> subMappings = (List<Map<String, String>>) rule.getTransformConfig().get("subMappings");
-            if (subMappings != null) {
-                Map<String, Object> splitResult = null;
-                
-                // 如果源值是Map对象，直接使用
-                if (sourceValue instanceof Map) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> sourceObj = (Map<String, Object>) sourceValue;
-                    splitResult = sourceObj;
-                } 
-                // 如果源值是字符串，且使用了Groovy脚本，执行脚本拆分
-                else if (sourceValue instanceof String && rule.getTransformType() == TransformType.GROOVY) {
-                    // 执行Groovy脚本，期望返回一个Map
-                    Object transformedValue = executeTransform(sourceValue, rule);
-                    if (transformedValue instanceof Map) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> groovyResult = (Map<String, Object>) transformedValue;
-                        splitResult = groovyResult;
+        // 根据子映射配置，将拆分结果映射到目标路径
+        for (CompiledRule.SubMapping subMapping : rule.getSubMappings()) {
+            // 子源路径为空，表示使用索引（用于数组拆分）
+            if (subMapping.getSourcePath().isEmpty()) {
+                if (splitResult instanceof List && subMapping.getIndex() != null) {
+                    List<?> listResult = (List<?>) splitResult;
+                    int index = subMapping.getIndex();
+                    if (index >= 0 && index < listResult.size()) {
+                        subMapping.getTargetPath().set(targetMap, listResult.get(index));
                     }
                 }
-                
-                // 根据子映射配置，将拆分结果映射到目标路径
-                if (splitResult != null) {
-                    for (Map<String, String> subMapping : subMappings) {
-                        String subSourcePath = subMapping.get("sourcePath");
-                        String subTargetPath = subMapping.get("targetPath");
-                        if (subSourcePath != null && subTargetPath != null) {
-                            // 如果subSourcePath为空，表示使用索引（用于数组拆分）
-                            if (subSourcePath.isEmpty()) {
-                                // 如果splitResult是List，使用索引访问
-                                if (splitResult instanceof java.util.List) {
-                                    @SuppressWarnings("unchecked")
-                                    java.util.List<Object> listResult = (java.util.List<Object>) splitResult;
-                                    // 尝试从targetPath中提取索引，或者使用subMapping中的index字段
-                                    String indexStr = subMapping.get("index");
-                                    if (indexStr != null) {
-                                        try {
-                                            int index = Integer.parseInt(indexStr);
-                                            if (index >= 0 && index < listResult.size()) {
-                                                PathUtil.setDeepValue(targetMap, subTargetPath, listResult.get(index));
-                                            }
-                                        } catch (NumberFormatException e) {
-                                            log.warn("无效的索引: {}", indexStr);
-                                        }
-                                    }
-                                }
-                            } else {
-                                // 使用路径访问Map中的值
-                                Object subValue = PathUtil.getDeepValue(splitResult, subSourcePath);
-                                if (subValue != null) {
-                                    PathUtil.setDeepValue(targetMap, subTargetPath, subValue);
-                                }
-                            }
-                        }
-                    }
+            } else if (splitResult instanceof Map) {
+                // 使用路径访问Map中的值
+                @SuppressWarnings("unchecked")
+                Map<String, Object> splitMap = (Map<String, Object>) splitResult;
+                Object subValue = subMapping.getSourcePath().get(splitMap);
+                if (subValue != null) {
+                    subMapping.getTargetPath().set(targetMap, subValue);
                 }
             }
         }
@@ -225,94 +573,232 @@ public class TransformationEngine {
     /**
      * 多对1映射
      */
-    private void applyManyToOneMapping(Map<String, Object> sourceMap, MappingRule rule, Map<String, Object> targetMap) {
+    private void applyManyToOneMapping(SourceReader reader, CompiledRule rule, Map<String, Object> targetMap,
+                                       PlanMetrics metrics) {
         try {
-            List<Object> sourceValues = new ArrayList<>();
+            List<Object> sourceValues = new ArrayList<>(rule.getAdditionalSources().size() + 1);
             
             // 读取主源路径
-            if (rule.getSourcePath() != null && !rule.getSourcePath().isEmpty()) {
-                Object mainValue = readJsonPath(sourceMap, rule.getSourcePath());
+            if (rule.hasSourcePath()) {
+                Object mainValue = reader.read(rule.getCompiledSourcePath(), rule.getSourcePath());
                 if (mainValue != null) {
                     sourceValues.add(mainValue);
                 }
             }
             
             // 读取额外源路径
-            if (rule.getAdditionalSources() != null) {
-                for (String additionalPath : rule.getAdditionalSources()) {
-                    Object value = readJsonPath(sourceMap, additionalPath);
-                    if (value != null) {
-                        sourceValues.add(value);
-                    }
+            List<JsonPath> additionalPaths = rule.getCompiledAdditionalSources();
+            for (int i = 0; i < additionalPaths.size(); i++) {
+                Object value = reader.read(additionalPaths.get(i), rule.getAdditionalSources().get(i));
+                if (value != null) {
+                    sourceValues.add(value);
                 }
             }
             
             // 执行转换（将List作为输入传给策略）
-            Object transformedValue = executeTransform(sourceValues, rule);
+            Object transformedValue = rule.getTransformer().apply(sourceValues);
             
             // 设置到目标路径
             if (transformedValue != null) {
-                PathUtil.setDeepValue(targetMap, rule.getTargetPath(), transformedValue);
+                rule.getTargetPath().set(targetMap, transformedValue);
             }
         } catch (Exception e) {
+            metrics.ruleError(rule);
             log.error("多对1映射执行失败: {}", e.getMessage(), e);
         }
     }
     
     /**
-     * 使用JsonPath读取值
-     * 将Map转换为JSON字符串，然后使用JsonPath读取
+     * 数组映射
+     * 源值为List时逐个元素、为单个对象或值时（如只出现一次的XML元素）作为唯一元素，按元素计划映射为一个目标对象，
+     * 结果按源顺序组成List（null元素对应null），经规则的转换函数后写入目标路径；源值不存在时不写入
+     * 元素数达到并行阈值时分段并行执行，每个元素的结果写入对应下标，顺序不变
      */
-    private Object readJsonPath(Map<String, Object> sourceMap, String jsonPath) {
+    private void applyArrayMapping(SourceReader reader, CompiledRule rule, Map<String, Object> targetMap,
+                                   PlanMetrics metrics) {
         try {
-            // 将Map转换为JSON字符串，然后使用JsonPath读取
-            String json = MessageConverterUtil.mapToString(sourceMap, "JSON", false);
-            Object document = JsonPath.parse(json).read(jsonPath);
-            return document;
-        } catch (Exception e) {
-            // 添加详细日志用于调试
-            try {
-                String json = MessageConverterUtil.mapToString(sourceMap, "JSON", true);
-                log.warn("JsonPath读取失败: 路径={}, 错误={}, 源数据JSON=\n{}", jsonPath, e.getMessage(), json);
-            } catch (Exception ex) {
-                log.warn("JsonPath读取失败: 路径={}, 错误={}, 无法序列化源数据", jsonPath, e.getMessage());
+            // 元素计划只读取源元素，不复制整个数组
+            Object sourceValue = reader.readShared(rule.getCompiledSourcePath(), rule.getSourcePath());
+            if (sourceValue == null) {
+                return;
             }
-            return null;
+            List<?> elements = sourceValue instanceof List ? (List<?>) sourceValue : Collections.singletonList(sourceValue);
+            Object[] results = new Object[elements.size()];
+            ArrayMappingTask task = new ArrayMappingTask(elements, rule.getElementPlan(), metrics, results, 0, elements.size(),
+                    arrayPool != null ? chunkSize(elements.size()) : elements.size());
+            if (arrayPool == null || elements.size() < arrayParallelThreshold) {
+                task.mapRange();
+            } else if (ForkJoinTask.getPool() == arrayPool) {
+                // 嵌套的数组映射已在线程池中执行
+                task.invoke();
+            } else {
+                arrayPool.invoke(task);
+            }
+            
+            Object transformedValue = rule.getTransformer().apply(new ArrayList<>(Arrays.asList(results)));
+            rule.getTargetPath().set(targetMap, transformedValue);
+        } catch (Exception e) {
+            metrics.ruleError(rule);
+            log.error("数组映射执行失败: {}", e.getMessage(), e);
         }
     }
     
     /**
-     * 执行转换策略
+     * 每段元素数：每个线程平均分到ARRAY_CHUNKS_PER_THREAD段
      */
-    private Object executeTransform(Object sourceValue, MappingRule rule) {
-        TransformType transformType = rule.getTransformType();
-        if (transformType == null) {
-            return sourceValue;
+    private int chunkSize(int size) {
+        int chunks = arrayPool.getParallelism() * ARRAY_CHUNKS_PER_THREAD;
+        return Math.max(MIN_ARRAY_CHUNK_SIZE, (size + chunks - 1) / chunks);
+    }
+    
+    /**
+     * 数组映射的一段元素，超过段大小时二分后并行执行
+     */
+    private final class ArrayMappingTask extends RecursiveAction {
+        
+        private final List<?> elements;
+        
+        private final CompiledMappingPlan elementPlan;
+        
+        private final PlanMetrics metrics;
+        
+        private final Object[] results;
+        
+        private final int from;
+        
+        private final int to;
+        
+        private final int chunkSize;
+        
+        private ArrayMappingTask(List<?> elements, CompiledMappingPlan elementPlan, PlanMetrics metrics, Object[] results,
+                                 int from, int to, int chunkSize) {
+            this.elements = elements;
+            this.elementPlan = elementPlan;
+            this.metrics = metrics;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
         }
         
-        TransformStrategy strategy = strategyMap.get(transformType.name());
-        if (strategy == null) {
-            log.warn("未找到转换策略: {}", transformType);
-            return sourceValue;
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                mapRange();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ArrayMappingTask(elements, elementPlan, metrics, results, from, middle, chunkSize),
+                    new ArrayMappingTask(elements, elementPlan, metrics, results, middle, to, chunkSize));
         }
         
-        Map<String, Object> config = rule.getTransformConfig();
-        if (config == null) {
-            config = new HashMap<>();
+        private void mapRange() {
+            for (int i = from; i < to; i++) {
+                Object element = elements.get(i);
+                results[i] = element != null ? executeRules(element, elementPlan, metrics) : null;
+            }
         }
+    }
+    
+    /**
+     * 目标Map的输出方式（字符串或UTF-8字节）
+     */
+    private interface TargetWriter<T> {
         
-        // 对于字典类型，如果rule中有dictionaryId和dictionaryDirection，添加到config中
-        if (transformType == TransformType.DICTIONARY) {
-            if (rule.getDictionaryId() != null) {
-                config.put("dictionaryId", rule.getDictionaryId());
-                if (rule.getDictionaryDirection() != null) {
-                    config.put("dictionaryDirection", rule.getDictionaryDirection());
-                }
+        TargetWriter<String> STRING = new TargetWriter<>() {
+            @Override
+            public String write(Map<String, Object> targetMap, String targetType, CompiledMappingPlan plan) throws Exception {
+                return MessageConverterUtil.mapToString(targetMap, targetType, plan.isPrettyPrint(),
+                        plan.getXmlRootElementName(), plan.isIncludeXmlDeclaration());
             }
+            
+            @Override
+            public String writeXml(Map<String, Object> targetMap, CompiledMappingPlan plan) throws Exception {
+                return MapXmlWriter.write(targetMap, plan.isPrettyPrint(), plan.getXmlRootElementName(),
+                        plan.isIncludeXmlDeclaration());
+            }
+        };
+        
+        TargetWriter<byte[]> BYTES = new TargetWriter<>() {
+            @Override
+            public byte[] write(Map<String, Object> targetMap, String targetType, CompiledMappingPlan plan) throws Exception {
+                return MessageConverterUtil.mapToBytes(targetMap, targetType, plan.isPrettyPrint(),
+                        plan.getXmlRootElementName(), plan.isIncludeXmlDeclaration());
+            }
+            
+            @Override
+            public byte[] writeXml(Map<String, Object> targetMap, CompiledMappingPlan plan) throws Exception {
+                return MapXmlWriter.writeBytes(targetMap, plan.isPrettyPrint(), plan.getXmlRootElementName(),
+                        plan.isIncludeXmlDeclaration());
+            }
+            
+            @Override
+            public byte[] copy(byte[] result) {
+                return result.clone();
+            }
+        };
+        
+        /**
+         * 通过Jackson序列化
+         */
+        T write(Map<String, Object> targetMap, String targetType, CompiledMappingPlan plan) throws Exception;
+        
+        /**
+         * 原生XML管道通过XMLStreamWriter写出，无法保证与Jackson输出一致时返回null
+         */
+        T writeXml(Map<String, Object> targetMap, CompiledMappingPlan plan) throws Exception;
+        
+        /**
+         * 复制结果（结果缓存与调用方各持有一份），不可变的结果直接返回
+         */
+        default T copy(T result) {
+            return result;
         }
+    }
+    
+    /**
+     * 按规则中的源路径读取源值
+     * 常规管道从共享的JsonPath文档读取，原生XML管道从StAX读取结果中取值
+     */
+    @FunctionalInterface
+    private interface SourceReader {
         
-        return strategy.transform(sourceValue, config);
+        /**
+         * 读取源值，返回的Map/List可能与源数据共享，只能读取
+         */
+        Object readShared(JsonPath jsonPath, String rawPath);
+        
+        /**
+         * 读取源值，Map/List复制一份，可以修改或写入目标
+         */
+        default Object read(JsonPath jsonPath, String rawPath) {
+            return GeneratedTransformerSupport.copyContainer(readShared(jsonPath, rawPath));
+        }
     }
     
+    /**
+     * 使用预编译的JsonPath从共享的源文档读取值
+     * 源文档每条报文只解析一次，所有规则在同一文档上求值；
+     * 返回值与源文档共享，规则通过 {@link SourceReader#read} 读取时复制一份，避免目标结构与源文档共享引用后被后续规则修改
+     */
+    private Object readJsonPath(DocumentContext document, JsonPath jsonPath, String rawPath) {
+        if (jsonPath == null) {
+            return null;
+        }
+        try {
+            return document.read(jsonPath);
+        } catch (Exception e) {
+            log.warn("JsonPath读取失败: 路径={}, 错误={}", rawPath, e.getMessage());
+            if (log.isDebugEnabled()) {
+                // 源数据可能很大，仅在调试级别输出
+                try {
+                    log.debug("JsonPath读取失败时的源数据JSON=\n{}", document.jsonString());
+                } catch (Exception ex) {
+                    log.debug("无法序列化源数据: {}", ex.getMessage());
+                }
+            }
+            return null;
+        }
+    }
 }
 
@@ -0,0 +1,265 @@
+package com.kai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.engine.CompiledRule;
+import com.kai.enums.MappingType;
+import com.kai.metrics.PlanMetrics;
+import com.kai.model.MappingConfig;
+import com.kai.util.CompiledPath;
+import com.kai.util.MessageConverterUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动预热服务
+ * 应用启动后在后台依次执行：
+ * 1. 预加载所有字典和启用的自定义函数
+ * 2. 加载并编译所有当前版本的映射配置（编译时同时编译规则引用的Groovy脚本和自定义函数脚本）
+ * 3. 按每个配置的源路径生成样例报文，反复执行转换，使解析、规则执行和序列化的代码在接收流量前完成JIT编译；
+ *    样例转换不经过结果缓存（开启了cacheResult的配置也每次完整执行），注册表中的计划有生成的转换器时也一并预热
+ *
+ * 预热完成前 {@link com.kai.metrics.WarmupHealthIndicator} 报告OUT_OF_SERVICE（已加入readiness健康组），
+ * k8s滚动更新时新实例在预热完成后才接收流量；单个步骤失败只记录日志，不阻止实例就绪
+ */
+@Slf4j
+@Service
+public class WarmupService {
+    
+    /**
+     * 样例报文中所有字段的值
+     */
+    private static final String SAMPLE_VALUE = "1";
+    
+    @Autowired
+    private DictionaryService dictionaryService;
+    
+    @Autowired
+    private CustomFunctionService customFunctionService;
+    
+    @Autowired
+    private MappingConfigRegistry configRegistry;
+    
+    @Autowired
+    private TransformationEngine transformationEngine;
+    
+    @Value("${transform.warmup.enabled:true}")
+    private boolean enabled;
+    
+    /**
+     * 每个配置执行样例转换的次数
+     */
+    @Value("${transform.warmup.iterations:200}")
+    private int iterations;
+    
+    @Value("${transform.dictionary.preload-on-startup:true}")
+    private boolean preloadDictionaries;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private volatile boolean finished;
+    
+    private volatile String phase = "等待启动";
+    
+    private volatile int warmedConfigs;
+    
+    private volatile long durationMillis;
+    
+    /**
+     * 启动后异步预热
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmupOnStartup() {
+        if (!enabled) {
+            phase = "未启用";
+            finished = true;
+            return;
+        }
+        CompletableFuture.runAsync(this::warmup);
+    }
+    
+    /**
+     * 执行预热（完成后标记为就绪）
+     */
+    public void warmup() {
+        long start = System.nanoTime();
+        try {
+            if (preloadDictionaries) {
+                phase = "预加载字典";
+                runStep("字典预加载", dictionaryService::preloadAll);
+            }
+            phase = "预加载自定义函数";
+            runStep("自定义函数预加载", customFunctionService::preloadAll);
+            
+            phase = "加载映射配置";
+            runStep("映射配置加载", configRegistry::reloadAll);
+            
+            phase = "执行样例转换";
+            List<MappingConfigRegistry.RegisteredConfig> configs = new ArrayList<>(configRegistry.getAll());
+            int warmed = 0;
+            for (MappingConfigRegistry.RegisteredConfig registered : configs) {
+                if (warmupConfig(registered)) {
+                    warmed++;
+                }
+            }
+            warmedConfigs = warmed;
+            phase = "完成";
+        } finally {
+            durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            finished = true;
+            log.info("启动预热完成，已预热配置数: {}, 耗时: {} ms", warmedConfigs, durationMillis);
+        }
+    }
+    
+    /**
+     * 使用样例报文反复执行单个配置（单独编译且不记录指标，不影响该配置的转换统计）
+     * 注册表中的计划有生成的转换器时，再用该计划执行同样次数，使生成的类完成JIT编译（规则级指标会包含这些执行）
+     *
+     * @return 是否完成预热
+     */
+    private boolean warmupConfig(MappingConfigRegistry.RegisteredConfig registered) {
+        String configName = registered.getEntity().getName();
+        try {
+            MappingConfig config = objectMapper.readValue(registered.getEntity().getConfigContent(), MappingConfig.class);
+            CompiledMappingPlan plan = transformationEngine.compile(config, PlanMetrics.NOOP);
+            String sample = samplePayload(plan);
+            if (sample == null) {
+                log.debug("配置没有可生成样例报文的源路径，跳过样例转换: {}", configName);
+                return false;
+            }
+            for (int i = 0; i < iterations; i++) {
+                transformationEngine.transformForWarmup(sample, plan);
+            }
+            CompiledMappingPlan registeredPlan = registered.getPlan();
+            if (registeredPlan.getGeneratedTransformer() != null) {
+                for (int i = 0; i < iterations; i++) {
+                    transformationEngine.transformForWarmup(sample, registeredPlan);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("配置预热失败: {}, 错误: {}", configName, e.getMessage());
+            return false;
+        }
+    }
+    
+    private void runStep(String name, Runnable step) {
+        try {
+            step.run();
+        } catch (Exception e) {
+            log.warn("{}失败，将在访问时按需加载: {}", name, e.getMessage());
+        }
+    }
+    
+    /**
+     * 按映射计划的源路径生成样例报文：每个源路径（含额外源路径、1对多的子字段、数组映射第一个元素的字段）都有值
+     *
+     * @param plan 编译后的映射计划
+     * @return 源协议格式的样例报文，没有可用的源路径时返回null
+     */
+    static String samplePayload(CompiledMappingPlan plan) throws Exception {
+        Map<String, Object> sample = new LinkedHashMap<>();
+        putSamples(sample, "", plan);
+        if (sample.isEmpty()) {
+            return null;
+        }
+        String sourceType = "XML".equalsIgnoreCase(plan.getSourceProtocol()) ? "XML" : "JSON";
+        return MessageConverterUtil.mapToString(sample, sourceType, false);
+    }
+    
+    /**
+     * 写入计划中所有源路径的样例值
+     *
+     * @param prefix 路径前缀（数组映射的元素计划为 "数组路径[0]."，顶层计划为空）
+     */
+    private static void putSamples(Map<String, Object> sample, String prefix, CompiledMappingPlan plan) {
+        for (CompiledRule rule : plan.getRules()) {
+            if (rule.hasSourcePath()) {
+                String path = samplePath(rule.getSourcePath());
+                if (rule.getMappingType() == MappingType.ONE_TO_MANY && path != null) {
+                    for (CompiledRule.SubMapping subMapping : rule.getSubMappings()) {
+                        if (!subMapping.getSourcePath().isEmpty()) {
+                            putSample(sample, join(prefix, path + "." + subMapping.getSourcePath()));
+                        }
+                    }
+                }
+                if (rule.getMappingType() == MappingType.ARRAY && path != null && !path.isEmpty()) {
+                    putSamples(sample, join(prefix, path) + "[0].", rule.getElementPlan());
+                }
+                putSample(sample, join(prefix, path));
+            }
+            for (String additionalSource : rule.getAdditionalSources()) {
+                putSample(sample, join(prefix, samplePath(additionalSource)));
+            }
+        }
+    }
+    
+    /**
+     * 拼接路径前缀，空路径（元素本身）不写入样例
+     */
+    private static String join(String prefix, String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        return prefix + path;
+    }
+    
+    /**
+     * 只在路径上还没有值时写入，已存在的对象不会被覆盖
+     */
+    private static void putSample(Map<String, Object> sample, String path) {
+        if (path == null) {
+            return;
+        }
+        CompiledPath compiledPath = CompiledPath.of(path);
+        if (!compiledPath.isEmpty() && compiledPath.get(sample) == null) {
+            compiledPath.set(sample, SAMPLE_VALUE);
+        }
+    }
+    
+    /**
+     * 将JsonPath源路径转换为字段路径，[*]取第一个元素；含过滤器、通配符、深度扫描的路径返回null
+     */
+    private static String samplePath(String sourcePath) {
+        String path = sourcePath.trim();
+        if (path.startsWith("$")) {
+            path = path.substring(1);
+        }
+        path = path.replace("[*]", "[0]");
+        if (path.contains("..") || path.contains("*") || path.contains("?") || path.contains("(")
+                || path.contains("@") || path.contains("'") || path.contains("\"")) {
+            return null;
+        }
+        return path.startsWith(".") ? path.substring(1) : path;
+    }
+    
+    /**
+     * 预热是否已结束
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+    
+    public String getPhase() {
+        return phase;
+    }
+    
+    public int getWarmedConfigs() {
+        return warmedConfigs;
+    }
+    
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
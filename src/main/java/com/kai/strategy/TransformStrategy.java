@@ -1,6 +1,7 @@
 package com.kai.strategy;
 
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * 转换策略接口
@@ -20,6 +21,18 @@ public interface TransformStrategy {
      */
     Object transform(Object sourceValue, Map<String, Object> ruleConfig);
     
+    /**
+     * 预绑定规则配置，生成可直接执行的转换函数
+     * 在编译映射计划时调用一次，执行阶段不再解析ruleConfig
+     * 默认实现每次委托给 {@link #transform(Object, Map)}，策略可覆盖以预先解析参数
+     * 
+     * @param ruleConfig 规则配置（编译后不再修改）
+     * @return 绑定了规则配置的转换函数
+     */
+    default Function<Object, Object> bind(Map<String, Object> ruleConfig) {
+        return sourceValue -> transform(sourceValue, ruleConfig);
+    }
+    
     /**
      * 获取策略类型名称
      * 用于策略注册和查找
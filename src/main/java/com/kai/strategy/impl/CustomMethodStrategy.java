@@ -4,8 +4,14 @@ import com.kai.strategy.TransformStrategy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * 自定义后端方法策略
@@ -18,11 +24,35 @@ import java.util.Map;
  * - 方法必须是 public static
  * - 方法接受一个 Object 参数（源值）
  * - 方法返回 Object（转换后的值）
+ * 
+ * 方法按 (className, methodName) 只解析一次，缓存为统一签名 (Object)Object 的MethodHandle，
+ * 非静态方法的实例也只创建一次并复用
  */
 @Slf4j
 @Component
 public class CustomMethodStrategy implements TransformStrategy {
     
+    private static final MethodHandle TO_STRING;
+    
+    private static final MethodHandle CONVERT_TYPE;
+    
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TO_STRING = lookup.findStatic(CustomMethodStrategy.class, "toStringOrNull",
+                    MethodType.methodType(String.class, Object.class));
+            CONVERT_TYPE = lookup.findStatic(CustomMethodStrategy.class, "convertType",
+                    MethodType.methodType(Object.class, Object.class, Class.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    /**
+     * 已解析的方法，key为 className#methodName
+     */
+    private final Map<String, MethodInvoker> invokers = new ConcurrentHashMap<>();
+    
     @Override
     public Object transform(Object sourceValue, Map<String, Object> ruleConfig) {
         if (ruleConfig == null) {
@@ -43,84 +73,99 @@ public class CustomMethodStrategy implements TransformStrategy {
             return sourceValue;
         }
         
+        return getInvoker(className, methodName).invoke(sourceValue);
+    }
+    
+    @Override
+    public Function<Object, Object> bind(Map<String, Object> ruleConfig) {
+        String className = (String) ruleConfig.get("className");
+        String methodName = (String) ruleConfig.get("methodName");
+        if (className == null || className.trim().isEmpty() || methodName == null || methodName.trim().isEmpty()) {
+            return sourceValue -> transform(sourceValue, ruleConfig);
+        }
+        
+        // 编译计划时预先解析方法（加载类、查找方法、创建实例），执行时直接调用MethodHandle
+        MethodInvoker invoker = getInvoker(className, methodName);
+        return invoker::invoke;
+    }
+    
+    private MethodInvoker getInvoker(String className, String methodName) {
+        return invokers.computeIfAbsent(className + "#" + methodName, key -> resolve(className, methodName));
+    }
+    
+    /**
+     * 解析方法并适配为 (Object)Object 签名的MethodHandle
+     * 查找顺序：接受 Object 参数、接受 String 参数、无参数；解析失败时返回的调用器直接返回原值
+     */
+    private MethodInvoker resolve(String className, String methodName) {
         try {
             // 加载类
             Class<?> clazz = Class.forName(className);
             
             // 查找方法：优先查找接受 Object 参数的静态方法
-            Method method = null;
-            try {
-                // 尝试查找 public static 方法，接受 Object 参数
-                method = clazz.getMethod(methodName, Object.class);
-            } catch (NoSuchMethodException e) {
-                // 如果找不到，尝试查找接受 String 参数的方法
-                try {
-                    method = clazz.getMethod(methodName, String.class);
-                } catch (NoSuchMethodException e2) {
-                    // 如果还找不到，尝试查找无参数的方法（可能使用实例变量）
-                    try {
-                        method = clazz.getMethod(methodName);
-                    } catch (NoSuchMethodException e3) {
-                        log.error("找不到方法: {}.{}，尝试的参数类型: Object, String, 无参数", className, methodName);
-                        return sourceValue;
-                    }
-                }
+            Method method = findMethod(clazz, methodName);
+            if (method == null) {
+                log.error("找不到方法: {}.{}，尝试的参数类型: Object, String, 无参数", className, methodName);
+                return new MethodInvoker(className, methodName, null);
             }
             
-            // 检查方法是否为静态方法
-            if (!java.lang.reflect.Modifier.isStatic(method.getModifiers())) {
-                log.warn("方法 {}.{} 不是静态方法，尝试创建实例调用", className, methodName);
-                // 如果不是静态方法，创建实例调用
-                Object instance = clazz.getDeclaredConstructor().newInstance();
-                if (method.getParameterCount() == 0) {
-                    return method.invoke(instance);
-                } else if (method.getParameterCount() == 1) {
-                    Class<?> paramType = method.getParameterTypes()[0];
-                    if (paramType == Object.class) {
-                        return method.invoke(instance, sourceValue);
-                    } else if (paramType == String.class) {
-                        return method.invoke(instance, sourceValue != null ? sourceValue.toString() : null);
-                    } else {
-                        // 尝试类型转换
-                        return method.invoke(instance, convertType(sourceValue, paramType));
-                    }
-                } else {
-                    log.error("方法 {}.{} 参数数量不正确，期望0或1个参数", className, methodName);
-                    return sourceValue;
-                }
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+            
+            // 如果不是静态方法，创建实例并绑定（实例在所有调用间复用）
+            if (!Modifier.isStatic(method.getModifiers())) {
+                log.warn("方法 {}.{} 不是静态方法，创建实例调用", className, methodName);
+                handle = handle.bindTo(clazz.getDeclaredConstructor().newInstance());
             }
             
-            // 调用静态方法
             if (method.getParameterCount() == 0) {
-                return method.invoke(null);
-            } else if (method.getParameterCount() == 1) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            } else {
                 Class<?> paramType = method.getParameterTypes()[0];
-                if (paramType == Object.class) {
-                    return method.invoke(null, sourceValue);
-                } else if (paramType == String.class) {
-                    return method.invoke(null, sourceValue != null ? sourceValue.toString() : null);
-                } else {
+                if (paramType == String.class) {
+                    handle = MethodHandles.filterArguments(handle, 0, TO_STRING);
+                } else if (paramType != Object.class) {
                     // 尝试类型转换
-                    return method.invoke(null, convertType(sourceValue, paramType));
+                    MethodHandle converter = MethodHandles.insertArguments(CONVERT_TYPE, 1, paramType);
+                    handle = MethodHandles.filterArguments(handle.asType(handle.type().changeParameterType(0, Object.class)),
+                            0, converter);
                 }
-            } else {
-                log.error("方法 {}.{} 参数数量不正确，期望0或1个参数", className, methodName);
-                return sourceValue;
             }
-            
+            return new MethodInvoker(className, methodName, handle.asType(MethodType.methodType(Object.class, Object.class)));
         } catch (ClassNotFoundException e) {
             log.error("找不到类: {}, 错误: {}", className, e.getMessage());
-            return sourceValue;
         } catch (Exception e) {
-            log.error("调用方法 {}.{} 失败: {}", className, methodName, e.getMessage(), e);
-            return sourceValue;
+            log.error("解析方法 {}.{} 失败: {}", className, methodName, e.getMessage(), e);
+        }
+        return new MethodInvoker(className, methodName, null);
+    }
+    
+    private static Method findMethod(Class<?> clazz, String methodName) {
+        try {
+            // 尝试查找 public 方法，接受 Object 参数
+            return clazz.getMethod(methodName, Object.class);
+        } catch (NoSuchMethodException e) {
+            // 如果找不到，尝试查找接受 String 参数的方法
+        }
+        try {
+            return clazz.getMethod(methodName, String.class);
+        } catch (NoSuchMethodException e) {
+            // 如果还找不到，尝试查找无参数的方法（可能使用实例变量）
         }
+        try {
+            return clazz.getMethod(methodName);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+    
+    private static String toStringOrNull(Object value) {
+        return value != null ? value.toString() : null;
     }
     
     /**
      * 类型转换辅助方法
      */
-    private Object convertType(Object value, Class<?> targetType) {
+    private static Object convertType(Object value, Class<?> targetType) {
         if (value == null) {
             return null;
         }
@@ -177,6 +222,35 @@ public class CustomMethodStrategy implements TransformStrategy {
         return className != null && !className.trim().isEmpty() 
             && methodName != null && !methodName.trim().isEmpty();
     }
+    
+    /**
+     * 已解析的方法调用器
+     * handle为null表示解析失败，调用时直接返回原值
+     */
+    private static final class MethodInvoker {
+        
+        private final String className;
+        
+        private final String methodName;
+        
+        private final MethodHandle handle;
+        
+        MethodInvoker(String className, String methodName, MethodHandle handle) {
+            this.className = className;
+            this.methodName = methodName;
+            this.handle = handle;
+        }
+        
+        Object invoke(Object sourceValue) {
+            if (handle == null) {
+                return sourceValue;
+            }
+            try {
+                return (Object) handle.invokeExact(sourceValue);
+            } catch (Throwable e) {
+                log.error("调用方法 {}.{} 失败: {}", className, methodName, e.getMessage(), e);
+                return sourceValue;
+            }
+        }
+    }
 }
-
-
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * 字典映射策略
@@ -33,32 +34,60 @@ public class DictionaryStrategy implements TransformStrategy {
                     ? (Boolean) ruleConfig.get("dictionaryDirection") 
                     : false;
             
-            try {
-                Map<String, String> dictionary = dictionaryService.getDictionaryMap(dictionaryId, reverse);
-                if (dictionary == null || dictionary.isEmpty()) {
-                    log.warn("字典ID {} 不存在或为空，返回原值", dictionaryId);
-                    return sourceValue;
-                }
-                
-                String sourceKey = sourceValue.toString();
-                String mappedValue = dictionary.get(sourceKey);
-                
-                // 如果字典中没有找到映射，返回原值
-                if (mappedValue == null) {
-                    log.warn("字典中未找到键: {}, 返回原值", sourceKey);
-                    return sourceValue;
-                }
-                
-                return mappedValue;
-            } catch (Exception e) {
-                log.error("使用字典ID {} 转换失败: {}", dictionaryId, e.getMessage(), e);
-                return sourceValue;
-            }
+            return translateById(sourceValue, dictionaryId, reverse);
         }
         
         // 兼容旧方式：直接使用dictionary配置（向后兼容）
         @SuppressWarnings("unchecked")
         Map<String, String> dictionary = (Map<String, String>) ruleConfig.get("dictionary");
+        return translate(sourceValue, dictionary);
+    }
+    
+    @Override
+    public Function<Object, Object> bind(Map<String, Object> ruleConfig) {
+        if (ruleConfig.containsKey("dictionaryId")) {
+            // 预先解析字典ID和方向，执行时只做查找
+            Long dictionaryId = ((Number) ruleConfig.get("dictionaryId")).longValue();
+            boolean reverse = Boolean.TRUE.equals(ruleConfig.get("dictionaryDirection"));
+            return sourceValue -> sourceValue == null ? null : translateById(sourceValue, dictionaryId, reverse);
+        }
+        
+        @SuppressWarnings("unchecked")
+        Map<String, String> dictionary = (Map<String, String>) ruleConfig.get("dictionary");
+        return sourceValue -> sourceValue == null ? null : translate(sourceValue, dictionary);
+    }
+    
+    /**
+     * 使用字典ID引用的字典进行转换
+     */
+    private Object translateById(Object sourceValue, Long dictionaryId, boolean reverse) {
+        try {
+            Map<String, String> dictionary = dictionaryService.getDictionaryMap(dictionaryId, reverse);
+            if (dictionary == null || dictionary.isEmpty()) {
+                log.warn("字典ID {} 不存在或为空，返回原值", dictionaryId);
+                return sourceValue;
+            }
+            
+            String sourceKey = sourceValue.toString();
+            String mappedValue = dictionary.get(sourceKey);
+            
+            // 如果字典中没有找到映射，返回原值
+            if (mappedValue == null) {
+                log.warn("字典中未找到键: {}, 返回原值", sourceKey);
+                return sourceValue;
+            }
+            
+            return mappedValue;
+        } catch (Exception e) {
+            log.error("使用字典ID {} 转换失败: {}", dictionaryId, e.getMessage(), e);
+            return sourceValue;
+        }
+    }
+    
+    /**
+     * 使用规则中内联的字典进行转换
+     */
+    private Object translate(Object sourceValue, Map<String, String> dictionary) {
         if (dictionary == null || dictionary.isEmpty()) {
             log.warn("字典配置为空，返回原值");
             return sourceValue;
@@ -4,6 +4,7 @@ import com.kai.strategy.TransformStrategy;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * 直接赋值策略
@@ -18,6 +19,11 @@ public class DirectStrategy implements TransformStrategy {
         return sourceValue;
     }
     
+    @Override
+    public Function<Object, Object> bind(Map<String, Object> ruleConfig) {
+        return Function.identity();
+    }
+    
     @Override
     public String getType() {
         return "DIRECT";
@@ -0,0 +1,116 @@
+package com.kai.strategy.impl;
+
+import com.kai.script.GroovySandbox;
+import com.kai.strategy.TransformStrategy;
+import com.kai.util.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.mvel2.MVEL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 表达式策略
+ * 使用MVEL执行单行表达式，如 inputs[0] + '-' + inputs[1]、input.substring(0, 4)、input == 'Y' ? '1' : '0'
+ * 表达式编译一次后反复执行，没有Groovy脚本类加载和实例化的开销，适合简单的拼接、截取和条件判断
+ *
+ * 变量与Groovy脚本一致：input为源值，源值是List（多对1映射）时还可以通过inputs访问
+ * MVEL表达式可以包含循环和任意Java方法调用，与Groovy脚本一样通过 {@link GroovySandbox} 执行，受超时、并发限制和熔断保护，
+ * 并发和熔断状态按绑定的规则区分
+ * 表达式编译或执行失败、超时或熔断时返回原值
+ */
+@Slf4j
+@Component
+public class ExpressionStrategy implements TransformStrategy {
+    
+    /**
+     * 未预绑定调用时按表达式文本缓存的编译结果数量上限
+     */
+    private static final int CACHE_SIZE = 500;
+    
+    private final LruCache<String, Serializable> compiledExpressions = new LruCache<>(CACHE_SIZE);
+    
+    private final GroovySandbox sandbox;
+    
+    @Autowired
+    public ExpressionStrategy(GroovySandbox sandbox) {
+        this.sandbox = sandbox;
+    }
+    
+    @Override
+    public Object transform(Object sourceValue, Map<String, Object> ruleConfig) {
+        String expression = (String) ruleConfig.get("expression");
+        if (expression == null || expression.trim().isEmpty()) {
+            log.warn("表达式为空，返回原值");
+            return sourceValue;
+        }
+        
+        Serializable compiled = compiledExpressions.get(expression);
+        if (compiled == null) {
+            compiled = compile(expression);
+            if (compiled == null) {
+                return sourceValue;
+            }
+            compiledExpressions.put(expression, compiled);
+        }
+        return execute(sandbox.newGuard(), compiled, expression, sourceValue);
+    }
+    
+    @Override
+    public Function<Object, Object> bind(Map<String, Object> ruleConfig) {
+        String expression = (String) ruleConfig.get("expression");
+        if (expression == null || expression.trim().isEmpty()) {
+            return sourceValue -> transform(sourceValue, ruleConfig);
+        }
+        
+        // 编译计划时编译表达式，编译失败的规则执行时直接返回原值
+        Serializable compiled = compile(expression);
+        if (compiled == null) {
+            return sourceValue -> sourceValue;
+        }
+        GroovySandbox.Guard guard = sandbox.newGuard();
+        return sourceValue -> execute(guard, compiled, expression, sourceValue);
+    }
+    
+    private static Serializable compile(String expression) {
+        try {
+            return MVEL.compileExpression(expression);
+        } catch (Exception e) {
+            log.error("表达式编译失败: {}, 错误: {}", expression, e.getMessage());
+            return null;
+        }
+    }
+    
+    private Object execute(GroovySandbox.Guard guard, Serializable compiled, String expression, Object sourceValue) {
+        try {
+            Map<String, Object> variables = new HashMap<>(4);
+            variables.put("input", sourceValue);
+            if (sourceValue instanceof List) {
+                variables.put("inputs", sourceValue);
+            }
+            return sandbox.run(guard, expression, () -> MVEL.executeExpression(compiled, variables), sourceValue);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("表达式执行被中断: {}", expression);
+            return sourceValue;
+        } catch (Exception e) {
+            log.error("表达式执行失败: {}, 错误: {}", expression, e.getMessage());
+            return sourceValue;
+        }
+    }
+    
+    @Override
+    public String getType() {
+        return "EXPRESSION";
+    }
+    
+    @Override
+    public boolean validateConfig(Map<String, Object> ruleConfig) {
+        return ruleConfig != null && ruleConfig.containsKey("expression");
+    }
+}
@@ -4,6 +4,7 @@ import com.kai.strategy.TransformStrategy;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * 固定值策略
@@ -18,6 +19,12 @@ public class FixedStrategy implements TransformStrategy {
         return ruleConfig.get("fixedValue");
     }
     
+    @Override
+    public Function<Object, Object> bind(Map<String, Object> ruleConfig) {
+        Object fixedValue = ruleConfig.get("fixedValue");
+        return sourceValue -> fixedValue;
+    }
+    
     @Override
     public String getType() {
         return "FIXED";
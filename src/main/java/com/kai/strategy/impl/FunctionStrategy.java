@@ -1,10 +1,11 @@
 package com.kai.strategy.impl;
 
 import com.kai.model.CustomFunction;
+import com.kai.script.GroovySandbox;
+import com.kai.script.GroovyScriptCache;
 import com.kai.service.CustomFunctionService;
 import com.kai.strategy.TransformStrategy;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -28,6 +29,12 @@ public class FunctionStrategy implements TransformStrategy {
     @Autowired
     private CustomFunctionService customFunctionService;
     
+    @Autowired
+    private GroovyScriptCache groovyScriptCache;
+    
+    @Autowired
+    private GroovySandbox groovySandbox;
+    
     public FunctionStrategy() {
         initDefaultFunctions();
     }
@@ -94,6 +101,13 @@ public class FunctionStrategy implements TransformStrategy {
     
     @Override
     public Object transform(Object sourceValue, Map<String, Object> ruleConfig) {
+        return transform(sourceValue, ruleConfig, null);
+    }
+    
+    /**
+     * @param guard 规则的脚本并发和熔断状态，为null时自定义函数脚本只受超时限制
+     */
+    private Object transform(Object sourceValue, Map<String, Object> ruleConfig, GroovySandbox.Guard guard) {
         String functionName = (String) ruleConfig.get("function");
         if (functionName == null || functionName.isEmpty()) {
             log.warn("函数名称为空，返回原值");
@@ -111,11 +125,11 @@ public class FunctionStrategy implements TransformStrategy {
             }
         }
         
-        // 如果不是系统函数，尝试从数据库加载自定义函数
+        // 如果不是系统函数，尝试加载自定义函数（按编码缓存）
         try {
-            CustomFunction customFunction = customFunctionService.getByCode(functionName);
+            CustomFunction customFunction = customFunctionService.getCachedByCode(functionName);
             if (customFunction != null && customFunction.getEnabled() && customFunction.getScript() != null) {
-                // 使用Groovy执行自定义函数脚本
+                // 使用Groovy执行自定义函数脚本（编译结果按脚本文本缓存，函数脚本修改后自动使用新脚本）
                 Binding binding = new Binding();
                 binding.setVariable("input", sourceValue);
                 
@@ -123,9 +137,8 @@ public class FunctionStrategy implements TransformStrategy {
                     binding.setVariable("inputs", sourceValue);
                 }
                 
-                GroovyShell shell = new GroovyShell(binding);
-                Object result = shell.evaluate(customFunction.getScript());
-                return result;
+                return guard != null ? groovySandbox.run(guard, customFunction.getScript(), binding, sourceValue)
+                        : groovySandbox.run(customFunction.getScript(), binding, sourceValue);
             }
         } catch (Exception e) {
             log.error("自定义函数执行失败: {}, 错误: {}", functionName, e.getMessage(), e);
@@ -136,6 +149,41 @@ public class FunctionStrategy implements TransformStrategy {
         return sourceValue;
     }
     
+    @Override
+    public Function<Object, Object> bind(Map<String, Object> ruleConfig) {
+        String functionName = (String) ruleConfig.get("function");
+        Function<Object, Object> function = functionName != null ? functions.get(functionName) : null;
+        if (function == null) {
+            // 自定义函数或无效函数名，仍按原逻辑逐次处理（函数修改后自动使用新脚本）；编译计划时预先编译当前脚本
+            precompileCustomFunction(functionName);
+            GroovySandbox.Guard guard = groovySandbox != null ? groovySandbox.newGuard() : null;
+            return sourceValue -> transform(sourceValue, ruleConfig, guard);
+        }
+        // 系统预置函数直接绑定，执行时无需再查找
+        return sourceValue -> {
+            try {
+                return function.apply(sourceValue);
+            } catch (Exception e) {
+                log.error("函数执行失败: {}", e.getMessage(), e);
+                return sourceValue;
+            }
+        };
+    }
+    
+    private void precompileCustomFunction(String functionName) {
+        if (functionName == null || functionName.isEmpty()) {
+            return;
+        }
+        try {
+            CustomFunction customFunction = customFunctionService.getCachedByCode(functionName);
+            if (customFunction != null && customFunction.getScript() != null) {
+                groovyScriptCache.get(customFunction.getScript());
+            }
+        } catch (Exception e) {
+            log.warn("自定义函数预编译失败: {}, 错误: {}", functionName, e.getMessage());
+        }
+    }
+    
     @Override
     public String getType() {
         return "FUNCTION";
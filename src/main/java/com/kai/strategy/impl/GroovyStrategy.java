@@ -1,22 +1,47 @@
 package com.kai.strategy.impl;
 
+import com.kai.script.GroovySandbox;
+import com.kai.script.GroovyScriptCache;
+import com.kai.script.SimpleGroovyExpression;
 import com.kai.strategy.TransformStrategy;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Groovy脚本策略
  * 通过Groovy脚本动态执行转换逻辑
  * 支持接收单个值或List<Object>作为输入
+ * 脚本编译结果由 {@link GroovyScriptCache} 缓存，同一脚本只编译一次；
+ * 执行由 {@link GroovySandbox} 限制耗时和并发，并发和熔断状态按绑定的规则区分，超时或熔断时返回原值；
+ * 拼接、截取、三元判断之类的单行脚本由 {@link SimpleGroovyExpression} 直接求值，不创建脚本实例
  */
 @Slf4j
 @Component
 public class GroovyStrategy implements TransformStrategy {
     
+    private final GroovyScriptCache scriptCache;
+    
+    private final GroovySandbox sandbox;
+    
+    /**
+     * 是否对简单脚本直接求值
+     */
+    private final boolean simpleExpressions;
+    
+    @Autowired
+    public GroovyStrategy(GroovyScriptCache scriptCache, GroovySandbox sandbox,
+                          @Value("${transform.groovy.simple-expressions:true}") boolean simpleExpressions) {
+        this.scriptCache = scriptCache;
+        this.sandbox = sandbox;
+        this.simpleExpressions = simpleExpressions;
+    }
+    
     @Override
     public Object transform(Object sourceValue, Map<String, Object> ruleConfig) {
         String script = (String) ruleConfig.get("groovyScript");
@@ -25,6 +50,36 @@ public class GroovyStrategy implements TransformStrategy {
             return sourceValue;
         }
         
+        return execute(sandbox.newGuard(), script, sourceValue);
+    }
+    
+    @Override
+    public Function<Object, Object> bind(Map<String, Object> ruleConfig) {
+        String script = (String) ruleConfig.get("groovyScript");
+        if (script == null || script.trim().isEmpty()) {
+            return sourceValue -> transform(sourceValue, ruleConfig);
+        }
+        
+        SimpleGroovyExpression expression = simpleExpressions ? SimpleGroovyExpression.parse(script) : null;
+        if (expression != null) {
+            log.debug("Groovy脚本按简单表达式执行: {}", script);
+            return sourceValue -> evaluate(expression, script, sourceValue);
+        }
+        
+        // 编译计划时预先编译脚本，首个请求无需再编译
+        try {
+            scriptCache.get(script);
+        } catch (Exception e) {
+            log.error("Groovy脚本预编译失败: {}", e.getMessage());
+        }
+        GroovySandbox.Guard guard = sandbox.newGuard();
+        return sourceValue -> execute(guard, script, sourceValue);
+    }
+    
+    /**
+     * 使用缓存的脚本类执行，每次执行使用独立的Binding
+     */
+    private Object execute(GroovySandbox.Guard guard, String script, Object sourceValue) {
         try {
             // 创建绑定，传入变量
             Binding binding = new Binding();
@@ -35,10 +90,7 @@ public class GroovyStrategy implements TransformStrategy {
                 binding.setVariable("inputs", sourceValue);
             }
             
-            // 使用Binding创建GroovyShell并执行脚本
-            GroovyShell shell = new GroovyShell(binding);
-            Object result = shell.evaluate(script);
-            return result;
+            return sandbox.run(guard, script, binding, sourceValue);
             
         } catch (Exception e) {
             log.error("Groovy脚本执行失败: {}", e.getMessage(), e);
@@ -47,6 +99,18 @@ public class GroovyStrategy implements TransformStrategy {
         }
     }
     
+    /**
+     * 简单表达式求值，失败时与脚本执行一样返回原值
+     */
+    private Object evaluate(SimpleGroovyExpression expression, String script, Object sourceValue) {
+        try {
+            return expression.evaluate(sourceValue);
+        } catch (Exception e) {
+            log.error("Groovy脚本执行失败: {}, 脚本: {}", e.getMessage(), script);
+            return sourceValue;
+        }
+    }
+    
     @Override
     public String getType() {
         return "GROOVY";
@@ -0,0 +1,210 @@
+package com.kai.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * 紧凑的只读Map，用于保存解析后的源报文
+ * 键序列相同的对象共享同一个 {@link Shape}（键数组和键索引），每个对象只保存自己的值数组；
+ * 交易明细这类成千上万行结构相同的记录，每行只占一个Map对象和一个值数组，没有LinkedHashMap的哈希表和逐个Entry对象
+ *
+ * 遍历顺序与解析时的键顺序一致，值可以为null；不支持修改（源数据只读，引擎读取到的Map/List会复制后再使用）
+ * JsonPath和Jackson都按Map接口访问，求值和序列化不需要转换
+ */
+public final class CompactMap extends AbstractMap<String, Object> {
+    
+    private final Shape shape;
+    
+    private final Object[] values;
+    
+    private CompactMap(Shape shape, Object[] values) {
+        this.shape = shape;
+        this.values = values;
+    }
+    
+    /**
+     * @param shape 键序列
+     * @param values 与键一一对应的值，长度等于键数量
+     */
+    static CompactMap of(Shape shape, Object[] values) {
+        return new CompactMap(shape, values);
+    }
+    
+    @Override
+    public int size() {
+        return values.length;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return shape.indexOf(key) >= 0;
+    }
+    
+    @Override
+    public Object get(Object key) {
+        int index = shape.indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+    
+    @Override
+    public Set<String> keySet() {
+        return shape.keySet;
+    }
+    
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        for (int i = 0; i < values.length; i++) {
+            action.accept(shape.keys[i], values[i]);
+        }
+    }
+    
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+                    
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+                    
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (next >= values.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(shape.keys[i], values[i]);
+                    }
+                };
+            }
+            
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+    
+    /**
+     * 对象的键序列
+     * 从同一个根出发按键逐个转移，键序列相同的对象得到同一个Shape实例；
+     * 转移表在构建时由单个线程修改（一次解析使用一个根），构建完成后只读
+     */
+    public static final class Shape {
+        
+        /**
+         * 键数量超过该值时建立哈希索引，否则顺序比较
+         */
+        private static final int LINEAR_SEARCH_LIMIT = 8;
+        
+        private final String[] keys;
+        
+        private final Map<String, Integer> index;
+        
+        private final Set<String> keySet;
+        
+        private Map<String, Shape> transitions;
+        
+        private Shape(String[] keys) {
+            this.keys = keys;
+            if (keys.length > LINEAR_SEARCH_LIMIT) {
+                index = new HashMap<>(keys.length * 2);
+                for (int i = 0; i < keys.length; i++) {
+                    index.put(keys[i], i);
+                }
+            } else {
+                index = null;
+            }
+            this.keySet = new KeySet();
+        }
+        
+        /**
+         * 新的根（没有键）
+         */
+        public static Shape root() {
+            return new Shape(new String[0]);
+        }
+        
+        /**
+         * 在末尾追加一个键后的Shape
+         */
+        Shape with(String key) {
+            if (transitions == null) {
+                transitions = new HashMap<>(4);
+            }
+            Shape next = transitions.get(key);
+            if (next == null) {
+                String[] nextKeys = new String[keys.length + 1];
+                System.arraycopy(keys, 0, nextKeys, 0, keys.length);
+                nextKeys[keys.length] = key;
+                next = new Shape(nextKeys);
+                transitions.put(key, next);
+            }
+            return next;
+        }
+        
+        /**
+         * 键的位置，不存在时返回-1
+         */
+        int indexOf(Object key) {
+            if (index != null) {
+                Integer i = index.get(key);
+                return i != null ? i : -1;
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        private final class KeySet extends AbstractSet<String> {
+            
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    private int next;
+                    
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+                    
+                    @Override
+                    public String next() {
+                        if (next >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        return keys[next++];
+                    }
+                };
+            }
+            
+            @Override
+            public boolean contains(Object key) {
+                return indexOf(key) >= 0;
+            }
+            
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.kai.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonTokenId;
+import com.fasterxml.jackson.core.StreamReadCapability;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.std.UntypedObjectDeserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把源报文解析为紧凑树的无类型反序列化器
+ * 替换Jackson默认的Object反序列化器，标量和数组仍由Jackson读取（数值类型等不变），对象直接读取为 {@link CompactMap}：
+ * - 同一报文中键序列相同的对象共享键数组，不创建LinkedHashMap及其Entry
+ * - 与Jackson默认行为一致：XML中重复的元素合并为List，JSON中重复的键保留最后一个值（位置不变）
+ * - List收缩到实际长度
+ * - 不超过 {@link #CANONICAL_STRING_LENGTH} 个字符的字符串值在同一报文内去重（明细中的币种、状态、日期等大量重复）
+ */
+public class CompactTreeDeserializer extends UntypedObjectDeserializer {
+    
+    private static final int CANONICAL_STRING_LENGTH = 16;
+    
+    private static final int INITIAL_CAPACITY = 8;
+    
+    private static final Object[] NO_VALUES = new Object[0];
+    
+    /**
+     * 单次解析的状态在DeserializationContext中的属性键
+     */
+    private static final Object STATE_KEY = ParseState.class;
+    
+    public CompactTreeDeserializer() {
+        super(null, null);
+    }
+    
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) {
+        return this;
+    }
+    
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (p.currentTokenId()) {
+            case JsonTokenId.ID_START_OBJECT:
+                p.nextToken();
+                return readObject(p, ctxt);
+            case JsonTokenId.ID_FIELD_NAME:
+            case JsonTokenId.ID_END_OBJECT:
+                return readObject(p, ctxt);
+            case JsonTokenId.ID_STRING:
+                String text = p.getText();
+                return text.length() <= CANONICAL_STRING_LENGTH ? state(ctxt).canonical(text) : text;
+            default:
+                return super.deserialize(p, ctxt);
+        }
+    }
+    
+    @Override
+    protected Object mapArray(JsonParser p, DeserializationContext ctxt) throws IOException {
+        Object value = super.mapArray(p, ctxt);
+        if (value instanceof ArrayList) {
+            ((ArrayList<?>) value).trimToSize();
+        }
+        return value;
+    }
+    
+    /**
+     * 读取对象的字段，当前token为第一个FIELD_NAME（空对象时为END_OBJECT）
+     */
+    @SuppressWarnings("unchecked")
+    private CompactMap readObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+        ParseState state = state(ctxt);
+        boolean squashDups = ctxt.isEnabled(StreamReadCapability.DUPLICATE_PROPERTIES);
+        CompactMap.Shape shape = state.root;
+        Object[] values = null;
+        int size = 0;
+        boolean squashed = false;
+        
+        String key = p.hasToken(JsonToken.FIELD_NAME) ? p.currentName() : null;
+        while (key != null) {
+            p.nextToken();
+            Object value = deserialize(p, ctxt);
+            int existing = shape.indexOf(key);
+            if (existing < 0) {
+                if (values == null) {
+                    values = new Object[INITIAL_CAPACITY];
+                } else if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size++] = value;
+                shape = shape.with(key);
+            } else if (squashDups && values[existing] != null) {
+                // 重复的XML元素：第一次重复时与原值组成List，之后追加
+                Object oldValue = values[existing];
+                if (oldValue instanceof List) {
+                    ((List<Object>) oldValue).add(value);
+                } else {
+                    List<Object> list = new ArrayList<>();
+                    list.add(oldValue);
+                    list.add(value);
+                    values[existing] = list;
+                }
+                squashed = true;
+            } else {
+                values[existing] = value;
+            }
+            key = p.nextFieldName();
+        }
+        
+        if (values == null) {
+            return CompactMap.of(shape, NO_VALUES);
+        }
+        if (squashed) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] instanceof ArrayList) {
+                    ((ArrayList<?>) values[i]).trimToSize();
+                }
+            }
+        }
+        return CompactMap.of(shape, size == values.length ? values : Arrays.copyOf(values, size));
+    }
+    
+    private static ParseState state(DeserializationContext ctxt) {
+        ParseState state = (ParseState) ctxt.getAttribute(STATE_KEY);
+        if (state == null) {
+            state = new ParseState();
+            ctxt.setAttribute(STATE_KEY, state);
+        }
+        return state;
+    }
+    
+    /**
+     * 单次解析的Shape根和字符串去重表
+     */
+    private static final class ParseState {
+        
+        private final CompactMap.Shape root = CompactMap.Shape.root();
+        
+        private final Map<String, String> strings = new HashMap<>();
+        
+        private String canonical(String text) {
+            String existing = strings.putIfAbsent(text, text);
+            return existing != null ? existing : text;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.kai.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预解析的字段路径
+ * 路径只解析一次，读写时直接按片段遍历，除了需要新建的中间容器外不产生其他对象
+ *
+ * 路径语法：点号分隔的字段名，字段名后可跟数组下标，如：
+ * - user.address.city
+ * - items[0].name
+ * - matrix[1][2]
+ *
+ * 字段名在解析时intern，同一字段名在所有路径中共享同一个字符串实例
+ * 写入时新建的中间对象为LinkedHashMap，字段按写入顺序输出；可通过 {@link #withMapSizes(int[])} 指定各级对象的预期字段数
+ * 实例不可变，可在多线程间共享
+ */
+public final class CompiledPath {
+    
+    /**
+     * 按路径字符串缓存的解析结果上限，超出后不再缓存（防止动态路径无限增长）
+     */
+    private static final int CACHE_LIMIT = 10000;
+    
+    private static final Map<String, CompiledPath> CACHE = new ConcurrentHashMap<>();
+    
+    private static final CompiledPath EMPTY = new CompiledPath("", new String[0], new int[0], null);
+    
+    /**
+     * 原始路径
+     */
+    private final String path;
+    
+    /**
+     * 各片段的字段名，下标片段为null
+     */
+    private final String[] keys;
+    
+    /**
+     * 各片段的数组下标，字段名片段为-1
+     */
+    private final int[] indexes;
+    
+    /**
+     * 各片段新建中间对象时的预期字段数，为null时使用默认大小
+     */
+    private final int[] mapSizes;
+    
+    private CompiledPath(String path, String[] keys, int[] indexes, int[] mapSizes) {
+        this.path = path;
+        this.keys = keys;
+        this.indexes = indexes;
+        this.mapSizes = mapSizes;
+    }
+    
+    /**
+     * 获取路径的解析结果（按路径字符串缓存）
+     *
+     * @param path 路径字符串，为空时返回空路径
+     * @return 解析后的路径
+     */
+    public static CompiledPath of(String path) {
+        if (path == null || path.isEmpty()) {
+            return EMPTY;
+        }
+        CompiledPath compiled = CACHE.get(path);
+        if (compiled == null) {
+            compiled = compile(path);
+            if (CACHE.size() < CACHE_LIMIT) {
+                CACHE.putIfAbsent(path, compiled);
+            }
+        }
+        return compiled;
+    }
+    
+    /**
+     * 解析路径（不使用缓存）
+     * 忽略首尾空格和空片段（如连续的点号）；格式不正确的下标（如 [x]、缺少']'）以及路径开头的下标按普通字符处理
+     *
+     * @param path 路径字符串
+     * @return 解析后的路径
+     */
+    public static CompiledPath compile(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            return EMPTY;
+        }
+        String trimmed = path.trim();
+        List<String> keyList = new ArrayList<>();
+        List<Integer> indexList = new ArrayList<>();
+        
+        int length = trimmed.length();
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? trimmed.charAt(i) : '.';
+            if (c == '[') {
+                int end = trimmed.indexOf(']', i);
+                int index = end > 0 ? parseIndex(trimmed, i + 1, end) : -1;
+                if (index < 0 || (keyList.isEmpty() && i == start)) {
+                    continue;
+                }
+                if (i > start) {
+                    keyList.add(trimmed.substring(start, i).intern());
+                    indexList.add(-1);
+                }
+                keyList.add(null);
+                indexList.add(index);
+                i = end;
+                start = i + 1;
+            } else if (c == '.') {
+                if (i > start) {
+                    keyList.add(trimmed.substring(start, i).intern());
+                    indexList.add(-1);
+                }
+                start = i + 1;
+            }
+        }
+        
+        int[] indexes = new int[indexList.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = indexList.get(i);
+        }
+        return new CompiledPath(trimmed, keyList.toArray(new String[0]), indexes, null);
+    }
+    
+    /**
+     * 返回指定了中间对象预期字段数的路径副本
+     *
+     * @param sizes 第i个元素为第i个片段新建的对象（其后为字段名片段时）的预期字段数，长度与片段数量一致
+     * @return 新的路径
+     */
+    public CompiledPath withMapSizes(int[] sizes) {
+        if (sizes.length != keys.length) {
+            throw new IllegalArgumentException("预期字段数与路径片段数量不一致: " + path);
+        }
+        return new CompiledPath(path, keys, indexes, sizes.clone());
+    }
+    
+    /**
+     * 创建容纳指定数量字段时不需要扩容的LinkedHashMap
+     *
+     * @param expectedSize 预期字段数
+     * @return 空的LinkedHashMap
+     */
+    public static <V> Map<String, V> newMap(int expectedSize) {
+        return new LinkedHashMap<>(expectedSize < 3 ? expectedSize + 1 : (int) (expectedSize / 0.75f) + 1);
+    }
+    
+    /**
+     * 解析方括号中的非负整数下标，格式不正确时返回-1
+     */
+    private static int parseIndex(String path, int from, int to) {
+        if (to <= from || to - from > 9) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = from; i < to; i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+    
+    /**
+     * 按路径读取值
+     *
+     * @param root 根对象（Map或List）
+     * @return 值，路径不存在时返回null；空路径返回根对象
+     */
+    @SuppressWarnings("unchecked")
+    public Object get(Object root) {
+        Object current = root;
+        for (int i = 0; i < keys.length; i++) {
+            if (current == null) {
+                return null;
+            }
+            if (keys[i] != null) {
+                if (!(current instanceof Map)) {
+                    return null;
+                }
+                current = ((Map<String, Object>) current).get(keys[i]);
+            } else {
+                if (!(current instanceof List)) {
+                    return null;
+                }
+                List<Object> list = (List<Object>) current;
+                int index = indexes[i];
+                current = index < list.size() ? list.get(index) : null;
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * 按路径设置值
+     * 路径不存在时自动创建中间节点（字段名创建LinkedHashMap，数组下标创建List并用null补齐），
+     * 类型不匹配的中间节点会被替换；空路径时如果值是Map则合并到根Map
+     *
+     * @param root 根Map
+     * @param value 要设置的值
+     */
+    @SuppressWarnings("unchecked")
+    public void set(Map<String, Object> root, Object value) {
+        if (keys.length == 0) {
+            if (value instanceof Map) {
+                root.putAll((Map<String, Object>) value);
+            }
+            return;
+        }
+        
+        Object current = root;
+        int last = keys.length - 1;
+        for (int i = 0; i < last; i++) {
+            boolean nextIsIndex = keys[i + 1] == null;
+            Object next = child(current, i);
+            if (nextIsIndex ? !(next instanceof List) : !(next instanceof Map)) {
+                next = nextIsIndex ? new ArrayList<>() : mapSizes != null ? newMap(mapSizes[i]) : new LinkedHashMap<String, Object>();
+                setChild(current, i, next);
+            }
+            current = next;
+        }
+        setChild(current, last, value);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Object child(Object container, int segment) {
+        if (keys[segment] != null) {
+            return ((Map<String, Object>) container).get(keys[segment]);
+        }
+        List<Object> list = (List<Object>) container;
+        int index = indexes[segment];
+        return index < list.size() ? list.get(index) : null;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void setChild(Object container, int segment, Object value) {
+        if (keys[segment] != null) {
+            ((Map<String, Object>) container).put(keys[segment], value);
+            return;
+        }
+        List<Object> list = (List<Object>) container;
+        int index = indexes[segment];
+        while (list.size() <= index) {
+            list.add(null);
+        }
+        list.set(index, value);
+    }
+    
+    /**
+     * 片段数量
+     */
+    public int size() {
+        return keys.length;
+    }
+    
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+    
+    /**
+     * 是否只包含字段名（不含数组下标）
+     */
+    public boolean isSimple() {
+        for (String key : keys) {
+            if (key == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 第i个片段的字段名，数组下标片段返回null
+     */
+    public String getKey(int i) {
+        return keys[i];
+    }
+    
+    /**
+     * 第i个片段的数组下标，字段名片段返回-1
+     */
+    public int getIndex(int i) {
+        return indexes[i];
+    }
+    
+    /**
+     * 所有片段的字段名（仅对 {@link #isSimple()} 的路径有意义）
+     */
+    public String[] keys() {
+        return keys.clone();
+    }
+    
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -1,6 +1,7 @@
 package com.kai.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
 import java.util.Map;
@@ -48,6 +49,17 @@ public class JsonUtil {
         return xmlMapper.writeValueAsString(map);
     }
 
+    /**
+     * Map转XML字符串，使用指定的根元素名称（不指定时为Map的类名）
+     */
+    public static String mapToXml(Map<String, Object> map, boolean prettyPrint, String rootName) throws Exception {
+        ObjectWriter writer = xmlMapper.writer().withRootName(rootName);
+        if (prettyPrint) {
+            writer = writer.withDefaultPrettyPrinter();
+        }
+        return writer.writeValueAsString(map);
+    }
+
     /**
      * 获取ObjectMapper实例
      */
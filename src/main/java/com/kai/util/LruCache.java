@@ -0,0 +1,112 @@
+package com.kai.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * 简单的线程安全LRU缓存
+ * 基于访问顺序的LinkedHashMap，超过容量时淘汰最久未使用的条目
+ * 可选的淘汰监听器用于释放条目持有的资源（如脚本类加载器）
+ * 使用ReentrantLock而不是synchronized，请求运行在虚拟线程上时持锁不会固定（pin）载体线程
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class LruCache<K, V> {
+    
+    private final LinkedHashMap<K, V> map;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    public LruCache(int maxSize) {
+        this(maxSize, null);
+    }
+    
+    /**
+     * @param maxSize 最大条目数
+     * @param evictionListener 条目因容量不足被淘汰时的回调（在缓存锁内调用，应尽量轻量），可为null
+     */
+    public LruCache(int maxSize, BiConsumer<K, V> evictionListener) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0");
+        }
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > maxSize) {
+                    if (evictionListener != null) {
+                        evictionListener.accept(eldest.getKey(), eldest.getValue());
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    public V get(K key) {
+        lock.lock();
+        try {
+            return map.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            map.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 键不存在时放入
+     * 
+     * @return 已存在的值；不存在时放入新值并返回null
+     */
+    public V putIfAbsent(K key, V value) {
+        lock.lock();
+        try {
+            V existing = map.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            map.put(key, value);
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public V remove(K key) {
+        lock.lock();
+        try {
+            return map.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.lock();
+        try {
+            map.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
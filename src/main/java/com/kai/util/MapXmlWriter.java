@@ -0,0 +1,201 @@
+package com.kai.util;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 通过XMLStreamWriter直接把目标Map写成XML
+ * 输出与 {@link MessageConverterUtil#mapToString(Map, String, boolean, String, boolean)} 逐字节一致
+ * （包括根元素名称的处理），但不经过Jackson序列化
+ *
+ * 只支持Map、List、String、Boolean、常见数字类型和null；
+ * 遇到其他类型的值时返回null，由调用方改用MessageConverterUtil
+ */
+public class MapXmlWriter {
+    
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+    
+    private static final byte[] XML_DECLARATION_BYTES = XML_DECLARATION.getBytes(StandardCharsets.UTF_8);
+    
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    
+    private static final byte[] LINE_SEPARATOR_BYTES = LINE_SEPARATOR.getBytes(StandardCharsets.UTF_8);
+    
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    
+    private final XMLStreamWriter writer;
+    
+    private final boolean prettyPrint;
+    
+    /**
+     * 已写出的元素数量
+     */
+    private int elementCount;
+    
+    private MapXmlWriter(XMLStreamWriter writer, boolean prettyPrint) {
+        this.writer = writer;
+        this.prettyPrint = prettyPrint;
+    }
+    
+    /**
+     * 将Map写为XML字符串
+     *
+     * @param targetMap 目标Map
+     * @param prettyPrint 是否格式化输出
+     * @param xmlRootElementName XML根元素名称
+     * @param includeXmlDeclaration 是否包含XML声明
+     * @return XML字符串，无法保证与MessageConverterUtil输出一致时返回null
+     */
+    public static String write(Map<String, Object> targetMap, boolean prettyPrint, String xmlRootElementName,
+                               boolean includeXmlDeclaration) throws XMLStreamException {
+        StringWriter output = new StringWriter();
+        if (includeXmlDeclaration) {
+            output.write(XML_DECLARATION);
+        }
+        if (!write(outputFactory().createXMLStreamWriter(output), targetMap, prettyPrint, xmlRootElementName)) {
+            return null;
+        }
+        if (prettyPrint) {
+            output.write(LINE_SEPARATOR);
+        }
+        return output.toString();
+    }
+    
+    /**
+     * 将Map写为UTF-8编码的XML字节，不生成中间字符串
+     *
+     * @param targetMap 目标Map
+     * @param prettyPrint 是否格式化输出
+     * @param xmlRootElementName XML根元素名称
+     * @param includeXmlDeclaration 是否包含XML声明
+     * @return XML字节，无法保证与MessageConverterUtil输出一致时返回null
+     */
+    public static byte[] writeBytes(Map<String, Object> targetMap, boolean prettyPrint, String xmlRootElementName,
+                                    boolean includeXmlDeclaration) throws XMLStreamException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        if (includeXmlDeclaration) {
+            output.writeBytes(XML_DECLARATION_BYTES);
+        }
+        XMLStreamWriter writer = outputFactory().createXMLStreamWriter(output, StandardCharsets.UTF_8.name());
+        if (!write(writer, targetMap, prettyPrint, xmlRootElementName)) {
+            return null;
+        }
+        if (prettyPrint) {
+            output.writeBytes(LINE_SEPARATOR_BYTES);
+        }
+        return output.toByteArray();
+    }
+    
+    private static XMLOutputFactory outputFactory() {
+        return MessageConverterUtil.getXmlMapper().getFactory().getXMLOutputFactory();
+    }
+    
+    /**
+     * 按MessageConverterUtil的规则确定根元素并写出整个文档
+     *
+     * @return false表示遇到不支持的值
+     */
+    private static boolean write(XMLStreamWriter writer, Map<String, Object> targetMap, boolean prettyPrint,
+                                 String xmlRootElementName) throws XMLStreamException {
+        String rootName = MessageConverterUtil.DEFAULT_XML_ROOT_ELEMENT;
+        Object rootValue = targetMap;
+        boolean hasRootName = xmlRootElementName != null && !xmlRootElementName.trim().isEmpty();
+        if (hasRootName) {
+            // 与MessageConverterUtil一致：Map只有一个与根元素同名的键时不再包装
+            rootName = xmlRootElementName.trim();
+            if (!(targetMap.size() == 1 && targetMap.containsKey(rootName))) {
+                rootValue = Map.of(rootName, targetMap);
+            }
+        }
+        
+        try {
+            if (!new MapXmlWriter(writer, prettyPrint).writeElement(rootName, rootValue, 0)) {
+                return false;
+            }
+            writer.flush();
+            return true;
+        } finally {
+            writer.close();
+        }
+    }
+    
+    /**
+     * 写出一个字段：List按同名元素重复写出（嵌套List展开，空List不输出）
+     *
+     * @return false表示遇到不支持的值
+     */
+    private boolean writeElement(String name, Object value, int depth) throws XMLStreamException {
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (!writeElement(name, item, depth)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (prettyPrint && depth > 0) {
+            indent(depth);
+        }
+        elementCount++;
+        if (value == null || (value instanceof Map && ((Map<?, ?>) value).isEmpty())) {
+            writer.writeEmptyElement(name);
+            return true;
+        }
+        if (value instanceof Map) {
+            writer.writeStartElement(name);
+            int before = elementCount;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!(entry.getKey() instanceof String) || !writeElement((String) entry.getKey(), entry.getValue(), depth + 1)) {
+                    return false;
+                }
+            }
+            // 没有写出任何子元素时（如只有空List），与Jackson一样输出为空元素
+            if (prettyPrint && elementCount > before) {
+                indent(depth);
+            }
+            writer.writeEndElement();
+            return true;
+        }
+        
+        String text = toText(value);
+        if (text == null) {
+            return false;
+        }
+        writer.writeStartElement(name);
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+        return true;
+    }
+    
+    /**
+     * 标量值的文本，不支持的类型返回null
+     */
+    private static String toText(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof Double || value instanceof Float || value instanceof BigInteger
+                || value instanceof BigDecimal || value instanceof Boolean) {
+            return value.toString();
+        }
+        return null;
+    }
+    
+    private void indent(int depth) throws XMLStreamException {
+        StringBuilder indent = new StringBuilder(LINE_SEPARATOR.length() + depth * 2);
+        indent.append(LINE_SEPARATOR);
+        for (int i = 0; i < depth; i++) {
+            indent.append("  ");
+        }
+        writer.writeCharacters(indent.toString());
+    }
+}
@@ -1,11 +1,16 @@
 package com.kai.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 消息转换工具类
@@ -16,6 +21,8 @@ import java.util.Map;
  * 2. Map -> XML字符串（引擎输出）
  * 3. JSON字符串 -> Map（供引擎处理）
  * 4. Map -> JSON字符串（引擎输出）
+ * 5. Map -> UTF-8字节（引擎直接输出到响应体）
+ * 6. JSON/XML字符串 -> 紧凑只读树（引擎的源数据，见 {@link CompactMap}）
  */
 @Slf4j
 public class MessageConverterUtil {
@@ -23,6 +30,37 @@ public class MessageConverterUtil {
     private static final ObjectMapper jsonMapper = new ObjectMapper();
     private static final XmlMapper xmlMapper = new XmlMapper();
     
+    /**
+     * 解析为紧凑树的Mapper：对象为 {@link CompactMap}，其他规则与上面的Mapper相同
+     */
+    private static final ObjectMapper compactJsonMapper = jsonMapper.copy().registerModule(compactTreeModule());
+    private static final ObjectMapper compactXmlMapper = xmlMapper.copy().registerModule(compactTreeModule());
+    
+    /**
+     * 未指定XML根元素名称时使用的根元素名称
+     * 历史上由目标HashMap的类名得到，目标Map改为按规则顺序输出的LinkedHashMap后保持不变
+     */
+    public static final String DEFAULT_XML_ROOT_ELEMENT = "HashMap";
+    
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+    
+    private static final byte[] XML_DECLARATION_BYTES = XML_DECLARATION.getBytes(StandardCharsets.UTF_8);
+    
+    /**
+     * 预先创建、所有调用共用的ObjectWriter（ObjectWriter不可变，线程安全；格式化输出时每次调用自动创建新的PrettyPrinter实例）
+     */
+    private static final ObjectWriter jsonWriter = jsonMapper.writer();
+    private static final ObjectWriter jsonPrettyWriter = jsonMapper.writerWithDefaultPrettyPrinter();
+    private static final ObjectWriter xmlWriter = xmlMapper.writer().withRootName(DEFAULT_XML_ROOT_ELEMENT);
+    private static final ObjectWriter xmlPrettyWriter = xmlWriter.withDefaultPrettyPrinter();
+    
+    /**
+     * 按根元素名称缓存的XML ObjectWriter，数量上限防止根元素名称无限增长
+     */
+    private static final int ROOT_WRITER_CACHE_LIMIT = 1000;
+    private static final Map<String, ObjectWriter> xmlRootWriters = new ConcurrentHashMap<>();
+    private static final Map<String, ObjectWriter> xmlPrettyRootWriters = new ConcurrentHashMap<>();
+    
     /**
      * 将源数据字符串转换为Map（根据协议类型自动识别）
      * 
@@ -31,21 +69,42 @@ public class MessageConverterUtil {
      * @return Map对象
      * @throws Exception 转换失败时抛出异常
      */
-    @SuppressWarnings("unchecked")
     public static Map<String, Object> parseToMap(String sourceData, String sourceType) throws Exception {
         if (sourceData == null || sourceData.trim().isEmpty()) {
             throw new IllegalArgumentException("源数据不能为空");
         }
         
+        return parse(sourceData, sourceType, jsonMapper, xmlMapper);
+    }
+    
+    /**
+     * 将源数据字符串解析为紧凑的只读树，供转换引擎读取
+     * 根对象为普通Map，其下的对象为 {@link CompactMap}（同结构的对象共享键数组），List收缩到实际长度，短字符串值在报文内去重；
+     * 值与 {@link #parseToMap(String, String)} 的结果相等（equals），大批量明细报文的堆占用明显减少
+     * 
+     * @param sourceData 源数据字符串（JSON或XML）
+     * @param sourceType 源数据类型："JSON" 或 "XML"
+     * @return 只读Map（根对象以外的对象不可修改）
+     * @throws Exception 转换失败时抛出异常
+     */
+    public static Map<String, Object> parseToCompactMap(String sourceData, String sourceType) throws Exception {
+        if (sourceData == null || sourceData.trim().isEmpty()) {
+            throw new IllegalArgumentException("源数据不能为空");
+        }
+        return parse(sourceData, sourceType, compactJsonMapper, compactXmlMapper);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> parse(String sourceData, String sourceType, ObjectMapper json, ObjectMapper xml) throws Exception {
         String type = sourceType != null ? sourceType.toUpperCase() : "JSON";
         
         try {
             switch (type) {
                 case "XML":
-                    return xmlMapper.readValue(sourceData, Map.class);
+                    return xml.readValue(sourceData, Map.class);
                 case "JSON":
                 default:
-                    return jsonMapper.readValue(sourceData, Map.class);
+                    return json.readValue(sourceData, Map.class);
             }
         } catch (Exception e) {
             log.error("解析{}数据失败: {}", type, e.getMessage(), e);
@@ -53,6 +112,12 @@ public class MessageConverterUtil {
         }
     }
     
+    private static SimpleModule compactTreeModule() {
+        SimpleModule module = new SimpleModule("CompactTree");
+        module.addDeserializer(Object.class, new CompactTreeDeserializer());
+        return module;
+    }
+    
     /**
      * 将Map转换为目标格式字符串
      * 
@@ -101,55 +166,55 @@ public class MessageConverterUtil {
         try {
             switch (type) {
                 case "XML":
-                    Map<String, Object> xmlMap = targetMap;
-                    // 如果指定了XML根元素名称，需要决定如何处理
-                    if (xmlRootElementName != null && !xmlRootElementName.trim().isEmpty()) {
-                        String rootName = xmlRootElementName.trim();
-                        
-                        // 检查targetMap是否只有一个键值对，且键名就是我们要的根元素名
-                        // 如果是，就不需要再包装了（已经是正确的结构）
-                        if (targetMap.size() == 1 && targetMap.containsKey(rootName)) {
-                            // 已经是正确的结构，直接使用
-                            log.debug("targetMap已包含根元素{}，无需包装", rootName);
-                            xmlMap = targetMap;
-                        } else {
-                            // 需要包装：将整个targetMap包装在指定的根元素中
-                            log.debug("包装targetMap到根元素{}中，targetMap大小: {}", rootName, targetMap.size());
-                            Map<String, Object> wrappedMap = new LinkedHashMap<>(1);
-                            wrappedMap.put(rootName, targetMap);
-                            xmlMap = wrappedMap;
-                        }
-                    }
-                    String xmlString;
-                    if (prettyPrint) {
-                        xmlString = xmlMapper.writerWithDefaultPrettyPrinter().writeValueAsString(xmlMap);
-                    } else {
-                        xmlString = xmlMapper.writeValueAsString(xmlMap);
-                    }
-                    
-                    // 如果生成的XML以<HashMap>、<LinkedHashMap>等开头，替换为指定的根元素名
-                    if (xmlRootElementName != null && !xmlRootElementName.trim().isEmpty()) {
-                        String rootName = xmlRootElementName.trim();
-                        // 替换各种可能的Map类型标签
-                        xmlString = xmlString.replaceFirst("<HashMap>", "<" + rootName + ">");
-                        xmlString = xmlString.replaceFirst("</HashMap>", "</" + rootName + ">");
-                        xmlString = xmlString.replaceFirst("<LinkedHashMap>", "<" + rootName + ">");
-                        xmlString = xmlString.replaceFirst("</LinkedHashMap>", "</" + rootName + ">");
-                        xmlString = xmlString.replaceFirst("<TreeMap>", "<" + rootName + ">");
-                        xmlString = xmlString.replaceFirst("</TreeMap>", "</" + rootName + ">");
-                    }
-                    
+                    String xmlString = xmlWriter(xmlRootElementName, prettyPrint)
+                            .writeValueAsString(wrapXmlRoot(targetMap, xmlRootElementName));
                     // 如果需要包含XML声明，手动添加到开头
-                    if (includeXmlDeclaration && (xmlString == null || !xmlString.trim().startsWith("<?xml"))) {
-                        xmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + xmlString;
-                    }
-                    return xmlString;
+                    return includeXmlDeclaration ? XML_DECLARATION + xmlString : xmlString;
                 case "JSON":
                 default:
-                    if (prettyPrint) {
-                        return jsonMapper.writerWithDefaultPrettyPrinter().writeValueAsString(targetMap);
+                    return (prettyPrint ? jsonPrettyWriter : jsonWriter).writeValueAsString(targetMap);
+            }
+        } catch (Exception e) {
+            log.error("转换为{}格式失败: {}", type, e.getMessage(), e);
+            throw new Exception("转换为" + type + "格式失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 将Map转换为目标格式的UTF-8字节
+     * 与 {@link #mapToString(Map, String, boolean, String, boolean)} 输出相同的内容，
+     * 但直接写入Jackson的字节缓冲区，不生成中间字符串
+     * 
+     * @param targetMap 目标Map
+     * @param targetType 目标类型："JSON" 或 "XML"
+     * @param prettyPrint 是否格式化输出
+     * @param xmlRootElementName XML根元素名称
+     * @param includeXmlDeclaration 是否包含XML声明
+     * @return UTF-8编码的字节
+     * @throws Exception 转换失败时抛出异常
+     */
+    public static byte[] mapToBytes(Map<String, Object> targetMap, String targetType, boolean prettyPrint, String xmlRootElementName, boolean includeXmlDeclaration) throws Exception {
+        if (targetMap == null) {
+            throw new IllegalArgumentException("目标Map不能为空");
+        }
+        
+        String type = targetType != null ? targetType.toUpperCase() : "JSON";
+        
+        try {
+            switch (type) {
+                case "XML":
+                    ObjectWriter writer = xmlWriter(xmlRootElementName, prettyPrint);
+                    Object xmlValue = wrapXmlRoot(targetMap, xmlRootElementName);
+                    if (!includeXmlDeclaration) {
+                        return writer.writeValueAsBytes(xmlValue);
                     }
-                    return jsonMapper.writeValueAsString(targetMap);
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    output.writeBytes(XML_DECLARATION_BYTES);
+                    writer.writeValue(output, xmlValue);
+                    return output.toByteArray();
+                case "JSON":
+                default:
+                    return (prettyPrint ? jsonPrettyWriter : jsonWriter).writeValueAsBytes(targetMap);
             }
         } catch (Exception e) {
             log.error("转换为{}格式失败: {}", type, e.getMessage(), e);
@@ -157,6 +222,44 @@ public class MessageConverterUtil {
         }
     }
     
+    /**
+     * 确定XML根元素下的内容
+     * 指定了根元素名称时：如果targetMap只有一个键且键名就是根元素名，说明已经是正确的结构，直接使用；
+     * 否则将整个targetMap包装在同名元素中（根元素本身由ObjectWriter的根名称输出）
+     */
+    private static Object wrapXmlRoot(Map<String, Object> targetMap, String xmlRootElementName) {
+        if (xmlRootElementName == null || xmlRootElementName.trim().isEmpty()) {
+            return targetMap;
+        }
+        String rootName = xmlRootElementName.trim();
+        if (targetMap.size() == 1 && targetMap.containsKey(rootName)) {
+            log.debug("targetMap已包含根元素{}，无需包装", rootName);
+            return targetMap;
+        }
+        log.debug("包装targetMap到根元素{}中，targetMap大小: {}", rootName, targetMap.size());
+        Map<String, Object> wrappedMap = new LinkedHashMap<>(2);
+        wrappedMap.put(rootName, targetMap);
+        return wrappedMap;
+    }
+    
+    /**
+     * 获取输出指定根元素名称的XML ObjectWriter（按根元素名称缓存复用）
+     */
+    private static ObjectWriter xmlWriter(String xmlRootElementName, boolean prettyPrint) {
+        if (xmlRootElementName == null || xmlRootElementName.trim().isEmpty()) {
+            return prettyPrint ? xmlPrettyWriter : xmlWriter;
+        }
+        Map<String, ObjectWriter> writers = prettyPrint ? xmlPrettyRootWriters : xmlRootWriters;
+        ObjectWriter writer = writers.get(xmlRootElementName);
+        if (writer == null) {
+            writer = (prettyPrint ? xmlPrettyWriter : xmlWriter).withRootName(xmlRootElementName.trim());
+            if (writers.size() < ROOT_WRITER_CACHE_LIMIT) {
+                writers.put(xmlRootElementName, writer);
+            }
+        }
+        return writer;
+    }
+    
     /**
      * 检测字符串是否为XML格式
      * 
@@ -178,6 +281,13 @@ public class MessageConverterUtil {
         return jsonMapper;
     }
     
+    /**
+     * 解析为紧凑树的ObjectMapper（JSON）
+     */
+    static ObjectMapper getCompactJsonMapper() {
+        return compactJsonMapper;
+    }
+    
     /**
      * 获取XmlMapper实例（XML）
      */
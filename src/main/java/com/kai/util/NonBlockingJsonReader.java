@@ -0,0 +1,82 @@
+package com.kai.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 基于Jackson非阻塞解析器的JSON读取器
+ * 数据按块到达时调用 {@link #feed(byte[], int, int)}，每块立即解析为token并暂存在TokenBuffer中，
+ * 不需要线程阻塞等待后续数据，也不需要先拼接完整的报文字符串；数据结束后由 {@link #finish()} 得到Map
+ *
+ * 解析结果与 {@link MessageConverterUtil#parseToCompactMap(String, String)} 解析JSON的结果一致（紧凑只读树）
+ * 实例只能用于一条报文，非线程安全（调用方需保证同一时间只有一个线程调用）
+ */
+public class NonBlockingJsonReader {
+    
+    private final JsonParser parser;
+    
+    private final ByteArrayFeeder feeder;
+    
+    private final TokenBuffer tokens;
+    
+    private boolean empty = true;
+    
+    public NonBlockingJsonReader() throws IOException {
+        this.parser = MessageConverterUtil.getJsonMapper().getFactory().createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.tokens = new TokenBuffer(parser);
+    }
+    
+    /**
+     * 解析一块数据
+     * 数据在方法返回前已全部解析，调用方可以复用data数组
+     *
+     * @param data 数据缓冲区
+     * @param offset 起始位置
+     * @param length 长度
+     * @throws IOException JSON格式错误时抛出
+     */
+    public void feed(byte[] data, int offset, int length) throws IOException {
+        feeder.feedInput(data, offset, offset + length);
+        drain();
+    }
+    
+    /**
+     * 数据结束，返回解析结果
+     *
+     * @return 解析后的Map
+     * @throws Exception 数据为空、格式错误或根节点不是对象时抛出
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> finish() throws Exception {
+        try {
+            feeder.endOfInput();
+            drain();
+            if (empty) {
+                throw new IllegalArgumentException("源数据不能为空");
+            }
+            try (JsonParser bufferedParser = tokens.asParser(MessageConverterUtil.getJsonMapper())) {
+                return MessageConverterUtil.getCompactJsonMapper().readValue(bufferedParser, Map.class);
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new Exception("解析JSON数据失败: " + e.getMessage(), e);
+        } finally {
+            parser.close();
+        }
+    }
+    
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            tokens.copyCurrentEvent(parser);
+            empty = false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.kai.util;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -12,99 +13,56 @@ public class PathUtil {
     
     /**
      * 根据深度路径设置值
-     * 如果路径不存在，会自动创建中间节点
+     * 如果路径不存在，会自动创建中间节点；路径为空时如果值是Map则合并到目标Map（而不是创建空键）
+     * 路径按字符串缓存解析结果，支持数组下标，如 "items[0].name"
      * 
      * @param targetMap 目标Map
      * @param path 路径，使用点号分隔，如 "user.address.city"
      * @param value 要设置的值
      */
-    @SuppressWarnings("unchecked")
     public static void setDeepValue(Map<String, Object> targetMap, String path, Object value) {
-        if (path == null || path.isEmpty() || path.trim().isEmpty()) {
-            // 如果路径为空，直接将值合并到目标Map（而不是创建空键）
-            if (value instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> valueMap = (Map<String, Object>) value;
-                targetMap.putAll(valueMap);
-            } else {
-                // 如果值不是Map，无法合并，直接返回
-                return;
-            }
-            return;
-        }
-        
-        String trimmedPath = path.trim();
-        String[] parts = trimmedPath.split("\\.");
-        
-        // 过滤掉空的部分（防止路径中有连续的点号或前后空格）
-        parts = java.util.Arrays.stream(parts)
-            .filter(part -> part != null && !part.isEmpty())
-            .toArray(String[]::new);
-        
-        if (parts.length == 0) {
-            // 如果过滤后没有有效部分，按空路径处理
-            if (value instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> valueMap = (Map<String, Object>) value;
-                targetMap.putAll(valueMap);
-            }
-            return;
+        CompiledPath.of(path).set(targetMap, value);
+    }
+    
+    /**
+     * 将点号分隔的路径拆分为片段
+     * 过滤掉空的部分（防止路径中有连续的点号或前后空格）
+     * 
+     * @param path 路径，如 "user.address.city"
+     * @return 路径片段，路径为空时返回空数组
+     */
+    public static String[] parsePath(String path) {
+        if (path == null) {
+            return new String[0];
         }
-        
-        Map<String, Object> current = targetMap;
-        
-        // 创建嵌套路径，除了最后一个
-        for (int i = 0; i < parts.length - 1; i++) {
-            String part = parts[i];
-            if (part == null || part.isEmpty()) {
-                continue; // 跳过空的部分
+        String trimmed = path.trim();
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= trimmed.length(); i++) {
+            if (i == trimmed.length() || trimmed.charAt(i) == '.') {
+                if (i > start) {
+                    parts.add(trimmed.substring(start, i));
+                }
+                start = i + 1;
             }
-            Object next = current.get(part);
-            
-            if (next == null || !(next instanceof Map)) {
-                next = new HashMap<>();
-                current.put(part, next);
-            }
-            
-            current = (Map<String, Object>) next;
-        }
-        
-        // 设置最后的值
-        String lastPart = parts[parts.length - 1];
-        if (lastPart != null && !lastPart.isEmpty()) {
-            current.put(lastPart, value);
         }
+        return parts.toArray(new String[0]);
     }
     
     /**
      * 根据深度路径获取值
+     * 路径按字符串缓存解析结果，支持数组下标，如 "items[0].name"
      * 
      * @param sourceMap 源Map
      * @param path 路径，使用点号分隔
      * @return 值，如果路径不存在返回null
      */
-    @SuppressWarnings("unchecked")
     public static Object getDeepValue(Map<String, Object> sourceMap, String path) {
         if (path == null || path.isEmpty()) {
             return sourceMap;
         }
         
-        String[] parts = path.split("\\.");
-        Object current = sourceMap;
-        
-        for (String part : parts) {
-            if (current == null) {
-                return null;
-            }
-            
-            if (current instanceof Map) {
-                current = ((Map<String, Object>) current).get(part);
-            } else {
-                return null;
-            }
-        }
-        
-        return current;
+        return CompiledPath.of(path).get(sourceMap);
     }
     
     /**
@@ -114,6 +72,51 @@ public class PathUtil {
         return getDeepValue(sourceMap, path) != null;
     }
     
+    /**
+     * 将类XPath的源路径转换为JsonPath表达式
+     * 例如：/Root/Header/TxnCode -> $.Header.TxnCode，Header/@id -> $.Header.id
+     * 绝对路径的第一段为XML根元素（解析为Map时根元素名不保留，转换时去掉）；
+     * 属性与子元素在解析后的Map中同为字段，@前缀直接去掉；命名空间前缀去掉（与解析时一致只保留本地名）
+     * 不含'/'或以'$'开头的路径、以及包含谓词、通配符、'//'等的路径原样返回
+     *
+     * @param path 源路径
+     * @return JsonPath表达式
+     */
+    public static String xpathToJsonPath(String path) {
+        if (path == null) {
+            return null;
+        }
+        String trimmed = path.trim();
+        if (trimmed.startsWith("$") || trimmed.indexOf('/') < 0 || trimmed.contains("//")) {
+            return path;
+        }
+        
+        StringBuilder jsonPath = new StringBuilder("$");
+        boolean skipRoot = trimmed.startsWith("/");
+        int start = skipRoot ? 1 : 0;
+        for (int i = start; i <= trimmed.length(); i++) {
+            if (i < trimmed.length() && trimmed.charAt(i) != '/') {
+                continue;
+            }
+            String segment = trimmed.substring(start, i);
+            start = i + 1;
+            if (skipRoot) {
+                skipRoot = false;
+                continue;
+            }
+            if (segment.startsWith("@")) {
+                segment = segment.substring(1);
+            }
+            segment = segment.substring(segment.indexOf(':') + 1);
+            if (segment.isEmpty() || segment.indexOf('[') >= 0 || segment.indexOf('(') >= 0
+                    || segment.indexOf('*') >= 0 || segment.indexOf('.') >= 0) {
+                return path;
+            }
+            jsonPath.append('.').append(segment);
+        }
+        return jsonPath.toString();
+    }
+    
     /**
      * 将JsonPath表达式转换为普通路径（简单处理）
      * 例如：$.user.name -> user.name
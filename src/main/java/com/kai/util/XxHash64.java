@@ -0,0 +1,115 @@
+package com.kai.util;
+
+/**
+ * XXH64哈希
+ * 直接对字符串的UTF-16代码单元计算（等价于对UTF-16LE编码后的字节计算标准XXH64），
+ * 不需要先把字符串编码为字节数组；每次读取4个字符（8字节）作为一个64位分量
+ *
+ * 用于结果缓存等需要快速指纹的场景，不是加密哈希，不能防止刻意构造的碰撞，命中后仍需比较原文
+ */
+public final class XxHash64 {
+    
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    
+    private XxHash64() {
+    }
+    
+    /**
+     * 计算字符串的哈希（种子为0）
+     */
+    public static long hash(CharSequence text) {
+        return hash(text, 0L);
+    }
+    
+    /**
+     * 计算字符串的哈希
+     *
+     * @param text 字符串
+     * @param seed 种子
+     * @return 64位哈希值
+     */
+    public static long hash(CharSequence text, long seed) {
+        int length = text.length();
+        int pos = 0;
+        long hash;
+        if (length >= 16) {
+            // 每轮32字节（16个字符），4个累加器各处理8字节
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = length - 16;
+            do {
+                v1 = round(v1, lane(text, pos));
+                v2 = round(v2, lane(text, pos + 4));
+                v3 = round(v3, lane(text, pos + 8));
+                v4 = round(v4, lane(text, pos + 12));
+                pos += 16;
+            } while (pos <= limit);
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        hash += (long) length * 2;
+        
+        while (pos + 4 <= length) {
+            hash ^= round(0, lane(text, pos));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+            pos += 4;
+        }
+        if (pos + 2 <= length) {
+            long half = (text.charAt(pos) & 0xFFFFL) | (long) (text.charAt(pos + 1) & 0xFFFF) << 16;
+            hash ^= half * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            pos += 2;
+        }
+        if (pos < length) {
+            // 最后一个字符的低字节和高字节
+            char c = text.charAt(pos);
+            hash ^= (c & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+            hash ^= ((c >>> 8) & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+        
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+    
+    /**
+     * 从pos开始的4个字符按小端组成64位分量
+     */
+    private static long lane(CharSequence text, int pos) {
+        return (text.charAt(pos) & 0xFFFFL)
+                | (long) text.charAt(pos + 1) << 16
+                | (long) text.charAt(pos + 2) << 32
+                | (long) text.charAt(pos + 3) << 48;
+    }
+    
+    private static long round(long acc, long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+    
+    private static long merge(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME1 + PRIME4;
+    }
+}
@@ -0,0 +1,321 @@
+package com.kai.controller;
+
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.enums.TransformType;
+import com.kai.model.MappingConfig;
+import com.kai.model.MappingConfigV2;
+import com.kai.model.MappingRule;
+import com.kai.service.MappingConfigRegistry;
+import com.kai.service.TransformationEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * 非阻塞转换接口测试类
+ * 通过Socket直接发送HTTP请求，控制请求体分块到达的时机，覆盖ReadListener/WriteListener的各条路径
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "transform.non-blocking.max-body-size=1024",
+        "transform.non-blocking.timeout-ms=1000"
+})
+class TransformV3ControllerTest {
+    
+    private static final String CONFIG_NAME = "v3_user";
+    
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    
+    @LocalServerPort
+    private int port;
+    
+    @Autowired
+    private TransformationEngine transformationEngine;
+    
+    @MockitoBean
+    private MappingConfigRegistry configRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        MappingConfig config = new MappingConfig();
+        config.setTargetProtocol("JSON");
+        MappingRule nameRule = new MappingRule();
+        nameRule.setSourcePath("$.user.name");
+        nameRule.setTargetPath("name");
+        nameRule.setTransformType(TransformType.DIRECT);
+        config.setRules(List.of(nameRule));
+        CompiledMappingPlan plan = transformationEngine.compile(config);
+        
+        MappingConfigV2 entity = new MappingConfigV2();
+        entity.setName(CONFIG_NAME);
+        when(configRegistry.getByName(CONFIG_NAME)).thenReturn(new MappingConfigRegistry.RegisteredConfig(entity, plan));
+    }
+    
+    @Test
+    void testPartialReads() throws IOException {
+        // 请求体分多块、间隔到达，切分点落在字符串和多字节字符中间
+        byte[] body = "{\"user\":{\"name\":\"张三\",\"age\":25}}".getBytes(StandardCharsets.UTF_8);
+        Response response = sendChunked("/api/v3/transform/" + CONFIG_NAME, "Content-Type: application/json\r\n", 100, true,
+                slice(body, 0, 5), slice(body, 5, 18), slice(body, 18, 19), slice(body, 19, body.length));
+        
+        assertEquals(200, response.status, response.body);
+        assertEquals("{\"name\":\"张三\"}", response.body);
+    }
+    
+    @Test
+    void testContentLengthOverLimit() throws IOException {
+        Response response = send("/api/v3/transform/" + CONFIG_NAME,
+                "Content-Type: application/json\r\nContent-Length: 2048\r\n", new byte[0]);
+        
+        assertEquals(413, response.status);
+        assertTrue(response.body.contains("请求体超过上限"), response.body);
+    }
+    
+    @Test
+    void testChunkedBodyOverLimit() throws IOException {
+        // 未给出Content-Length时按实际读取的字节数判断
+        byte[] padding = new byte[600];
+        Arrays.fill(padding, (byte) ' ');
+        Response response = sendChunked("/api/v3/transform/" + CONFIG_NAME, "Content-Type: application/json\r\n", 50, false,
+                "{\"user\":".getBytes(StandardCharsets.UTF_8), padding, padding);
+        
+        assertEquals(413, response.status);
+        assertTrue(response.body.contains("请求体超过上限"), response.body);
+    }
+    
+    @Test
+    void testTimeoutWhileWaitingForBody() throws IOException {
+        // 只发送部分请求体后停止，超时后返回503
+        long start = System.nanoTime();
+        Response response = sendChunked("/api/v3/transform/" + CONFIG_NAME, "Content-Type: application/json\r\n", 0, false,
+                "{\"user\":{\"name\":".getBytes(StandardCharsets.UTF_8));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        assertEquals(503, response.status);
+        assertTrue(response.body.contains("转换超时"), response.body);
+        assertTrue(elapsedMillis >= 900, "elapsed: " + elapsedMillis);
+    }
+    
+    @Test
+    void testMalformedJsonMidStream() throws IOException {
+        // 格式错误在读取过程中即返回，不等待剩余的请求体
+        Response response = sendChunked("/api/v3/transform/" + CONFIG_NAME, "Content-Type: application/json\r\n", 50, false,
+                "{\"user\":{\"name\":\"张三\"".getBytes(StandardCharsets.UTF_8), "}]".getBytes(StandardCharsets.UTF_8));
+        
+        assertEquals(400, response.status);
+        assertTrue(response.body.contains("解析JSON数据失败"), response.body);
+    }
+    
+    @Test
+    void testJsonBodyWithConfigNameHeader() throws IOException {
+        Response response = send("/api/v3/transform", headers("application/json", CONFIG_NAME),
+                "{\"user\":{\"name\":\"张三\"}}".getBytes(StandardCharsets.UTF_8));
+        
+        assertEquals(200, response.status, response.body);
+        assertEquals("{\"name\":\"张三\"}", response.body);
+    }
+    
+    @Test
+    void testXmlBodyDetectedFromTextPlain() throws IOException {
+        Response response = send("/api/v3/transform", headers("text/plain", CONFIG_NAME),
+                "<request><user><name>张三</name></user></request>".getBytes(StandardCharsets.UTF_8));
+        
+        assertEquals(200, response.status, response.body);
+        assertEquals("{\"name\":\"张三\"}", response.body);
+    }
+    
+    @Test
+    void testLeadingWhitespaceAndBomSplitAcrossReads() throws IOException {
+        // BOM的3个字节分在两次读取中，之后是空白和XML
+        byte[] rest = " \r\n\t<request><user><name>张三</name></user></request>".getBytes(StandardCharsets.UTF_8);
+        byte[] second = new byte[2 + rest.length];
+        second[0] = (byte) 0xBB;
+        second[1] = (byte) 0xBF;
+        System.arraycopy(rest, 0, second, 2, rest.length);
+        Response response = sendChunked("/api/v3/transform", "Content-Type: text/plain\r\nX-Config-Name: " + CONFIG_NAME + "\r\n",
+                100, true, new byte[]{(byte) 0xEF}, second);
+        
+        assertEquals(200, response.status, response.body);
+        assertEquals("{\"name\":\"张三\"}", response.body);
+    }
+    
+    @Test
+    void testBomRemovedWhenSourceTypeKnown() throws IOException {
+        byte[] json = "{\"user\":{\"name\":\"张三\"}}".getBytes(StandardCharsets.UTF_8);
+        byte[] body = new byte[UTF8_BOM.length + json.length];
+        System.arraycopy(UTF8_BOM, 0, body, 0, UTF8_BOM.length);
+        System.arraycopy(json, 0, body, UTF8_BOM.length, json.length);
+        Response response = send("/api/v3/transform", headers("application/json", CONFIG_NAME), body);
+        
+        assertEquals(200, response.status, response.body);
+        assertEquals("{\"name\":\"张三\"}", response.body);
+    }
+    
+    @Test
+    void testBomBytesOutsideLeadingBomAreNotSkipped() throws IOException {
+        // 开头单独的0xBB、空白之后的0xBF都不是BOM，不再跳过，按JSON解析失败
+        byte[] json = "{\"user\":{\"name\":\"张三\"}}".getBytes(StandardCharsets.UTF_8);
+        byte[] strayByte = new byte[1 + json.length];
+        strayByte[0] = (byte) 0xBB;
+        System.arraycopy(json, 0, strayByte, 1, json.length);
+        Response response = send("/api/v3/transform", headers("text/plain", CONFIG_NAME), strayByte);
+        assertEquals(400, response.status, response.body);
+        
+        byte[] afterWhitespace = new byte[2 + json.length];
+        afterWhitespace[0] = ' ';
+        afterWhitespace[1] = (byte) 0xBF;
+        System.arraycopy(json, 0, afterWhitespace, 2, json.length);
+        response = send("/api/v3/transform", headers("text/plain", CONFIG_NAME), afterWhitespace);
+        assertEquals(400, response.status, response.body);
+    }
+    
+    @Test
+    void testEmptyBody() throws IOException {
+        Response response = send("/api/v3/transform", headers("text/plain", CONFIG_NAME), new byte[0]);
+        
+        assertEquals(400, response.status, response.body);
+        assertTrue(response.body.contains("\"success\":false"), response.body);
+    }
+    
+    @Test
+    void testUnknownOrMissingConfigNameHeader() throws IOException {
+        byte[] body = "{\"user\":{\"name\":\"张三\"}}".getBytes(StandardCharsets.UTF_8);
+        Response response = send("/api/v3/transform", headers("application/json", "no_such_config"), body);
+        assertEquals(400, response.status);
+        assertTrue(response.body.contains("配置不存在: no_such_config"), response.body);
+        
+        response = send("/api/v3/transform", headers("application/json", null), body);
+        assertEquals(400, response.status);
+        assertTrue(response.body.contains("X-Config-Name"), response.body);
+    }
+    
+    @Test
+    void testOversizedBodyWithConfigNameHeader() throws IOException {
+        byte[] padding = new byte[2048];
+        Arrays.fill(padding, (byte) ' ');
+        Response response = sendChunked("/api/v3/transform", "Content-Type: text/plain\r\nX-Config-Name: " + CONFIG_NAME + "\r\n",
+                0, false, padding);
+        
+        assertEquals(413, response.status);
+        assertTrue(response.body.contains("请求体超过上限"), response.body);
+    }
+    
+    /**
+     * Content-Type和X-Config-Name（为null时不发送）请求头
+     */
+    private static String headers(String contentType, String configName) {
+        return "Content-Type: " + contentType + "\r\n" + (configName != null ? "X-Config-Name: " + configName + "\r\n" : "");
+    }
+    
+    /**
+     * 分块发送请求体
+     *
+     * @param pauseMillis 每块之间的间隔
+     * @param finish 是否发送结束块；不发送时请求体保持未完成，直接等待响应
+     */
+    private Response sendChunked(String path, String headers, long pauseMillis, boolean finish, byte[]... chunks)
+            throws IOException {
+        try (Socket socket = open()) {
+            OutputStream output = socket.getOutputStream();
+            output.write(requestHead(path, headers + "Transfer-Encoding: chunked\r\n"));
+            output.flush();
+            for (byte[] chunk : chunks) {
+                pause(pauseMillis);
+                output.write((Integer.toHexString(chunk.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                output.write(chunk);
+                output.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+                output.flush();
+            }
+            if (finish) {
+                output.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                output.flush();
+            }
+            return readResponse(socket.getInputStream());
+        }
+    }
+    
+    /**
+     * 一次发送请求，headers中没有Content-Length时按body长度补上
+     */
+    private Response send(String path, String headers, byte[] body) throws IOException {
+        if (!headers.contains("Content-Length")) {
+            headers += "Content-Length: " + body.length + "\r\n";
+        }
+        try (Socket socket = open()) {
+            OutputStream output = socket.getOutputStream();
+            output.write(requestHead(path, headers));
+            output.write(body);
+            output.flush();
+            return readResponse(socket.getInputStream());
+        }
+    }
+    
+    private Socket open() throws IOException {
+        Socket socket = new Socket("localhost", port);
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+    
+    private byte[] requestHead(String path, String headers) {
+        return ("POST " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n" + headers + "\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 读取响应（服务端按Content-Length写出，读到连接关闭为止）
+     */
+    private static Response readResponse(InputStream input) throws IOException {
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = input.read(buffer)) != -1) {
+            received.write(buffer, 0, length);
+        }
+        String text = received.toString(StandardCharsets.UTF_8);
+        int headerEnd = text.indexOf("\r\n\r\n");
+        assertTrue(headerEnd > 0, text);
+        int status = Integer.parseInt(text.substring(9, 12));
+        return new Response(status, text.substring(headerEnd + 4));
+    }
+    
+    private static byte[] slice(byte[] data, int from, int to) {
+        return Arrays.copyOfRange(data, from, to);
+    }
+    
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static final class Response {
+        
+        private final int status;
+        
+        private final String body;
+        
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.kai.script;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 脚本执行环境测试类
+ * 单规则并发上限为1，用不响应中断的任务占住许可，检查并发状态按规则区分以及等待时间不超过超时时间
+ */
+class GroovySandboxTest {
+    
+    private static final long TIMEOUT_MILLIS = 500;
+    
+    private static final String SCRIPT = "input.toUpperCase()";
+    
+    private MeterRegistry meterRegistry;
+    
+    private GroovySandbox sandbox;
+    
+    /**
+     * 释放占住许可的任务
+     */
+    private CountDownLatch release;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sandbox = new GroovySandbox();
+        ReflectionTestUtils.setField(sandbox, "scriptCache", new GroovyScriptCache(meterRegistry, 500, 1000));
+        ReflectionTestUtils.setField(sandbox, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(sandbox, "isolated", true);
+        ReflectionTestUtils.setField(sandbox, "timeoutMillis", TIMEOUT_MILLIS);
+        ReflectionTestUtils.setField(sandbox, "poolSize", 4);
+        ReflectionTestUtils.setField(sandbox, "queueCapacity", 100);
+        ReflectionTestUtils.setField(sandbox, "maxConcurrentPerRule", 1);
+        ReflectionTestUtils.setField(sandbox, "failureThreshold", 0);
+        ReflectionTestUtils.setField(sandbox, "openSeconds", 30L);
+        sandbox.init();
+        release = new CountDownLatch(1);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        sandbox.shutdown();
+    }
+    
+    @Test
+    void testGuardsAreIndependentPerRule() throws Exception {
+        // 一条规则的许可被占满时，使用相同脚本的另一条规则照常执行
+        GroovySandbox.Guard busy = sandbox.newGuard();
+        assertEquals("fallback", sandbox.run(busy, SCRIPT, this::holdUntilReleased, "fallback"));
+        
+        GroovySandbox.Guard other = sandbox.newGuard();
+        assertEquals("ABC", sandbox.run(other, SCRIPT, () -> "ABC", "fallback"));
+        assertEquals("fallback", sandbox.run(busy, SCRIPT, () -> "ABC", "fallback"));
+        assertEquals(1, meterRegistry.counter("transform.groovy.sandbox.fallbacks", "reason", "concurrency").count());
+    }
+    
+    @Test
+    void testPermitWaitCountsTowardsTimeout() throws Exception {
+        // 等到许可后只剩余下的时间等待结果，总等待不超过一个超时时间
+        GroovySandbox.Guard guard = sandbox.newGuard();
+        CompletableFuture<Object> holder = CompletableFuture.supplyAsync(() -> {
+            try {
+                return sandbox.run(guard, SCRIPT, () -> {
+                    Thread.sleep(TIMEOUT_MILLIS / 2);
+                    return "first";
+                }, "fallback");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        
+        long start = System.nanoTime();
+        Object result = sandbox.run(guard, SCRIPT, this::holdUntilReleased, "fallback");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertEquals("fallback", result);
+        assertEquals("first", holder.get(5, TimeUnit.SECONDS));
+        assertTrue(elapsedMillis < TIMEOUT_MILLIS + TIMEOUT_MILLIS / 4,
+                "等待许可和结果应共用超时时间，实际耗时: " + elapsedMillis + "ms");
+        assertEquals(1, meterRegistry.counter("transform.groovy.sandbox.fallbacks", "reason", "timeout").count());
+    }
+    
+    /**
+     * 不响应中断，直到测试结束才返回，超时后仍占住许可
+     */
+    private Object holdUntilReleased() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                release.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return "held";
+    }
+}
@@ -0,0 +1,167 @@
+package com.kai.service;
+
+import com.kai.mapper.DictionaryItemMapper;
+import com.kai.model.Dictionary;
+import com.kai.model.DictionaryItem;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 字典缓存测试类
+ * 字典表和字典项表用Mock代替，按字典项查询次数判断是否命中缓存
+ */
+class DictionaryServiceTest {
+    
+    private static final Long DICTIONARY_ID = 1L;
+    
+    private DictionaryItemMapper dictionaryItemMapper;
+    
+    private MeterRegistry meterRegistry;
+    
+    private DictionaryService dictionaryService;
+    
+    /**
+     * 字典项表中当前的数据
+     */
+    private List<DictionaryItem> storedItems;
+    
+    @BeforeEach
+    void setUp() {
+        storedItems = new ArrayList<>(List.of(item("1", "男"), item("2", "女")));
+        dictionaryItemMapper = mock(DictionaryItemMapper.class);
+        when(dictionaryItemMapper.selectList(any())).thenAnswer(invocation -> new ArrayList<>(storedItems));
+        meterRegistry = new SimpleMeterRegistry();
+        
+        DictionaryService service = new DictionaryService();
+        ReflectionTestUtils.setField(service, "dictionaryItemMapper", dictionaryItemMapper);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "cacheTtlSeconds", 300L);
+        service.initMetrics();
+        
+        // 字典表的读写不涉及缓存，直接打桩
+        dictionaryService = spy(service);
+        Dictionary dictionary = new Dictionary();
+        dictionary.setId(DICTIONARY_ID);
+        dictionary.setName("性别");
+        dictionary.setCode("gender");
+        doReturn(dictionary).when(dictionaryService).getById(DICTIONARY_ID);
+        doReturn(true).when(dictionaryService).updateById(any(Dictionary.class));
+        doReturn(true).when(dictionaryService).removeById(DICTIONARY_ID);
+        doReturn(List.of(dictionary)).when(dictionaryService).list();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    @Test
+    void testCacheHit() {
+        assertEquals("男", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        // 正向和反向Map一次加载，后续读取都命中缓存
+        assertEquals("2", dictionaryService.getDictionaryMap(DICTIONARY_ID, true).get("女"));
+        assertEquals("女", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("2"));
+        
+        verify(dictionaryItemMapper, times(1)).selectList(any());
+        assertEquals(2.0, cacheRequests("hit"));
+        assertEquals(1.0, cacheRequests("miss"));
+    }
+    
+    @Test
+    void testPreloadFillsCache() {
+        assertEquals(1, dictionaryService.preloadAll());
+        
+        assertEquals("男", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        verify(dictionaryItemMapper, times(1)).selectList(any());
+        assertEquals(1.0, cacheRequests("hit"));
+        assertEquals(0.0, cacheRequests("miss"));
+    }
+    
+    @Test
+    void testSaveInvalidatesCache() {
+        assertEquals("男", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        
+        storedItems = new ArrayList<>(List.of(item("1", "男性"), item("2", "女性")));
+        dictionaryService.saveDictionary(DICTIONARY_ID, "性别", "gender", null,
+                List.of(new DictionaryService.DictionaryItemDTO("1", "男性"),
+                        new DictionaryService.DictionaryItemDTO("2", "女性")));
+        
+        assertEquals("男性", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        verify(dictionaryItemMapper, times(2)).selectList(any());
+    }
+    
+    @Test
+    void testDeleteInvalidatesCache() {
+        assertEquals("男", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        
+        storedItems.clear();
+        assertTrue(dictionaryService.deleteDictionary(DICTIONARY_ID));
+        
+        assertTrue(dictionaryService.getDictionaryMap(DICTIONARY_ID, false).isEmpty());
+        verify(dictionaryItemMapper, times(2)).selectList(any());
+    }
+    
+    @Test
+    void testSaveInvalidatesCacheAgainAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals("男", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        
+        dictionaryService.saveDictionary(DICTIONARY_ID, "性别", "gender", null,
+                List.of(new DictionaryService.DictionaryItemDTO("1", "男性")));
+        // 提交前其他请求读到的仍是旧数据，重新加载进缓存
+        assertEquals("男", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        
+        // 提交后新数据可见，缓存再次失效
+        storedItems = new ArrayList<>(List.of(item("1", "男性")));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertFalse(synchronizations.isEmpty());
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        
+        assertEquals("男性", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        verify(dictionaryItemMapper, times(3)).selectList(any());
+    }
+    
+    @Test
+    void testReloadAfterTtlExpires() throws InterruptedException {
+        ReflectionTestUtils.setField(dictionaryService, "cacheTtlSeconds", 1L);
+        assertEquals("男", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        assertEquals("男", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        verify(dictionaryItemMapper, times(1)).selectList(any());
+        
+        // 数据库中直接修改的字典项，缓存过期后重新加载
+        storedItems = new ArrayList<>(List.of(item("1", "男性")));
+        Thread.sleep(1100);
+        
+        assertEquals("男性", dictionaryService.getDictionaryMap(DICTIONARY_ID, false).get("1"));
+        verify(dictionaryItemMapper, times(2)).selectList(any());
+        assertEquals(2.0, cacheRequests("miss"));
+    }
+    
+    private double cacheRequests(String result) {
+        return meterRegistry.get("transform.dictionary.cache.requests").tag("result", result).counter().count();
+    }
+    
+    private static DictionaryItem item(String key, String value) {
+        DictionaryItem item = new DictionaryItem();
+        item.setDictionaryId(DICTIONARY_ID);
+        item.setDictKey(key);
+        item.setDictValue(value);
+        return item;
+    }
+}
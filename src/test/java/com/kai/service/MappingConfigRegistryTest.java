@@ -0,0 +1,180 @@
+package com.kai.service;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.kai.engine.CompiledMappingPlan;
+import com.kai.metrics.TransformMetrics;
+import com.kai.model.MappingConfig;
+import com.kai.model.MappingConfigV2;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 配置注册表测试类
+ * 数据库和编译用Mock代替，按配置版本号区分注册的是哪个版本；编译出的计划带有真实的指标，用于检查旧版本指标的移除
+ */
+class MappingConfigRegistryTest {
+    
+    private static final Long TRANSACTION_TYPE_ID = 10L;
+    
+    private static final LocalDateTime UPDATE_TIME = LocalDateTime.of(2024, 1, 1, 0, 0);
+    
+    private MappingConfigV2Service configService;
+    
+    private MeterRegistry meterRegistry;
+    
+    private MappingConfigRegistry registry;
+    
+    @BeforeEach
+    void setUp() {
+        configService = mock(MappingConfigV2Service.class);
+        meterRegistry = new SimpleMeterRegistry();
+        TransformMetrics transformMetrics = new TransformMetrics(meterRegistry, true);
+        TransformationEngine transformationEngine = mock(TransformationEngine.class);
+        when(transformationEngine.compile(any(MappingConfig.class), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    CompiledMappingPlan plan = mock(CompiledMappingPlan.class);
+                    when(plan.getMetrics()).thenReturn(transformMetrics.forConfig(
+                            invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+                    return plan;
+                });
+        
+        registry = new MappingConfigRegistry();
+        ReflectionTestUtils.setField(registry, "configService", configService);
+        ReflectionTestUtils.setField(registry, "transformationEngine", transformationEngine);
+        ReflectionTestUtils.setField(registry, "transactionTypeService", mock(TransactionTypeService.class));
+        ReflectionTestUtils.setField(registry, "bankInfoService", mock(BankInfoService.class));
+        ReflectionTestUtils.setField(registry, "negativeTtlMillis", 5000L);
+    }
+    
+    @Test
+    void testGetByNameLoadsOnceThenHits() {
+        when(configService.getOne(any(Wrapper.class))).thenReturn(entity(1L, "order_request", "v1"));
+        
+        MappingConfigRegistry.RegisteredConfig first = registry.getByName("order_request");
+        assertNotNull(first);
+        assertSame(first, registry.getByName("order_request"));
+        assertSame(first, registry.getCurrent(TRANSACTION_TYPE_ID, "REQUEST"));
+        assertEquals(1, registry.getAll().size());
+        verify(configService, times(1)).getOne(any(Wrapper.class));
+    }
+    
+    @Test
+    void testUnknownNameIsCachedUntilNegativeTtlExpires() throws InterruptedException {
+        ReflectionTestUtils.setField(registry, "negativeTtlMillis", 200L);
+        when(configService.getOne(any(Wrapper.class))).thenReturn(null);
+        
+        assertNull(registry.getByName("missing"));
+        assertNull(registry.getByName("missing"));
+        verify(configService, times(1)).getOne(any(Wrapper.class));
+        
+        Thread.sleep(300);
+        assertNull(registry.getByName("missing"));
+        verify(configService, times(2)).getOne(any(Wrapper.class));
+    }
+    
+    @Test
+    void testConfigChangedAfterCommitReplacesConfig() {
+        when(configService.getOne(any(Wrapper.class))).thenReturn(entity(1L, "order_request", "v1"), (MappingConfigV2) null);
+        assertEquals("v1", registry.getByName("order_request").getEntity().getVersion());
+        // 不存在的名称进入短期缓存
+        assertNull(registry.getByName("order_response"));
+        
+        // 事务提交后的刷新：新版本替换旧版本，新建的配置立即可见
+        when(configService.list(any(Wrapper.class))).thenReturn(List.of(
+                entity(2L, "order_request", "v2"), entity(3L, "order_response", "v1", "RESPONSE")));
+        registry.onConfigChanged(new MappingConfigChangedEvent(this, TRANSACTION_TYPE_ID));
+        
+        assertEquals("v2", registry.getByName("order_request").getEntity().getVersion());
+        assertNotNull(registry.getByName("order_response"));
+        assertEquals(2, registry.getAll().size());
+        verify(configService, times(2)).getOne(any(Wrapper.class));
+    }
+    
+    @Test
+    void testLazyLoadDoesNotOverwriteConcurrentRefresh() {
+        when(configService.list(any(Wrapper.class))).thenReturn(List.of(entity(2L, "order_request", "v2")));
+        // 按需加载查到旧版本后、注册前，配置变更的刷新已完成
+        when(configService.getOne(any(Wrapper.class))).thenAnswer(invocation -> {
+            registry.refresh(TRANSACTION_TYPE_ID);
+            return entity(1L, "order_request", "v1");
+        });
+        
+        assertEquals("v1", registry.getByName("order_request").getEntity().getVersion());
+        assertEquals("v2", registry.getByName("order_request").getEntity().getVersion());
+        assertEquals("v2", registry.getCurrent(TRANSACTION_TYPE_ID, "REQUEST").getEntity().getVersion());
+    }
+    
+    @Test
+    void testReloadAllReusesUnchangedPlansAndDropsRemovedConfigs() {
+        when(configService.list(any(Wrapper.class))).thenReturn(List.of(entity(1L, "order_request", "v1"), entity(3L, "order_response", "v1", "RESPONSE")));
+        assertEquals(2, registry.reloadAll());
+        CompiledMappingPlan plan = registry.getByName("order_request").getPlan();
+        
+        when(configService.list(any(Wrapper.class))).thenReturn(List.of(entity(1L, "order_request", "v1")));
+        when(configService.getOne(any(Wrapper.class))).thenReturn(null);
+        assertEquals(1, registry.reloadAll());
+        
+        assertSame(plan, registry.getByName("order_request").getPlan());
+        assertNull(registry.getByName("order_response"));
+        assertEquals(1, registry.getAll().size());
+    }
+    
+    @Test
+    void testReloadAllKeepsConfigRefreshedDuringReload() {
+        // 全量对账查到旧版本后、替换前，配置变更的刷新已完成
+        when(configService.list(any(Wrapper.class))).thenAnswer(invocation -> {
+            when(configService.list(any(Wrapper.class))).thenReturn(List.of(entity(2L, "order_request", "v2")));
+            registry.refresh(TRANSACTION_TYPE_ID);
+            return List.of(entity(1L, "order_request", "v1"));
+        });
+        
+        assertEquals(1, registry.reloadAll());
+        assertEquals("v2", registry.getByName("order_request").getEntity().getVersion());
+    }
+    
+    @Test
+    void testReplacedPlanMetricsAreRemoved() {
+        when(configService.list(any(Wrapper.class))).thenReturn(List.of(entity(1L, "order_request", "v1")));
+        registry.reloadAll();
+        assertNotNull(meterRegistry.find("transform.requests").tag("version", "v1").timer());
+        
+        // 同一版本重新编译时新计划与旧计划共用指标，不移除
+        registry.refresh(TRANSACTION_TYPE_ID);
+        assertNotNull(meterRegistry.find("transform.requests").tag("version", "v1").timer());
+        
+        when(configService.list(any(Wrapper.class))).thenReturn(List.of(entity(2L, "order_request", "v2")));
+        registry.refresh(TRANSACTION_TYPE_ID);
+        assertTrue(meterRegistry.find("transform.requests").tag("version", "v1").meters().isEmpty());
+        assertNotNull(meterRegistry.find("transform.requests").tag("version", "v2").timer());
+        
+        registry.evict(TRANSACTION_TYPE_ID);
+        assertTrue(meterRegistry.find("transform.requests").tag("config", "order_request").meters().isEmpty());
+    }
+    
+    private static MappingConfigV2 entity(Long id, String name, String version) {
+        return entity(id, name, version, "REQUEST");
+    }
+    
+    private static MappingConfigV2 entity(Long id, String name, String version, String configType) {
+        MappingConfigV2 entity = new MappingConfigV2();
+        entity.setId(id);
+        entity.setTransactionTypeId(TRANSACTION_TYPE_ID);
+        entity.setConfigType(configType);
+        entity.setName(name);
+        entity.setVersion(version);
+        entity.setConfigContent("{}");
+        entity.setIsCurrent(true);
+        entity.setUpdateTime(UPDATE_TIME);
+        return entity;
+    }
+}
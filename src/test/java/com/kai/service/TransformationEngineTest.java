@@ -1,27 +1,55 @@
 package com.kai.service;
 
+import com.kai.dto.BatchTransformResponse;
+import com.kai.engine.CompiledMappingPlan;
 import com.kai.enums.MappingType;
 import com.kai.enums.TransformType;
+import com.kai.metrics.PlanMetrics;
 import com.kai.model.MappingConfig;
 import com.kai.model.MappingRule;
+import com.kai.strategy.TransformStrategy;
+import com.kai.util.MessageConverterUtil;
+import com.kai.util.NonBlockingJsonReader;
+import com.kai.util.XxHash64;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * 转换引擎测试类
  */
-@SpringBootTest
+@SpringBootTest(properties = "transform.array.parallelism=4")
 class TransformationEngineTest {
     
     @Autowired
     private TransformationEngine transformationEngine;
     
+    @Autowired
+    private StreamingTransformationEngine streamingEngine;
+    
+    @Autowired
+    private BatchTransformService batchTransformService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private List<TransformStrategy> strategies;
+    
     private String sourceJson;
     
     @BeforeEach
@@ -197,6 +225,44 @@ class TransformationEngineTest {
         assertTrue(result.contains("2024-01-01 00:00:00"));
     }
     
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCustomMethodTransform() throws Exception {
+        // 测试自定义方法：方法只解析一次，多次执行结果一致
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        
+        MappingRule upper = new MappingRule();
+        upper.setSourcePath("$.user.email");
+        upper.setTargetPath("user.email");
+        upper.setTransformType(TransformType.CUSTOM_METHOD);
+        upper.setTransformConfig(Map.of("className", "com.kai.util.StringUtil", "methodName", "toUpperCase"));
+        
+        MappingRule random = new MappingRule();
+        random.setSourcePath("$.user.age");
+        random.setTargetPath("user.token");
+        random.setTransformType(TransformType.CUSTOM_METHOD);
+        random.setTransformConfig(Map.of("className", "com.kai.util.StringUtil", "methodName", "generateRandom8Digits"));
+        
+        MappingRule missing = new MappingRule();
+        missing.setSourcePath("$.user.name");
+        missing.setTargetPath("user.name");
+        missing.setTransformType(TransformType.CUSTOM_METHOD);
+        missing.setTransformConfig(Map.of("className", "com.kai.util.StringUtil", "methodName", "noSuchMethod"));
+        config.setRules(List.of(upper, random, missing));
+        
+        CompiledMappingPlan plan = transformationEngine.compile(config);
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> user = (Map<String, Object>) MessageConverterUtil
+                    .parseToMap(transformationEngine.transform(sourceJson, plan), "JSON").get("user");
+            assertEquals("ZHANGSAN@EXAMPLE.COM", user.get("email"));
+            assertEquals(8, user.get("token").toString().length());
+            // 找不到方法时返回原值
+            assertEquals("张三", user.get("name"));
+        }
+    }
+    
     @Test
     void testComplexTransform() throws Exception {
         // 测试复合转换（包含多种转换类型）
@@ -249,5 +315,876 @@ class TransformationEngineTest {
         assertNotNull(result);
         assertTrue(result.contains("customer"));
     }
+    
+    @Test
+    void testCompiledPlanReuse() throws Exception {
+        // 测试编译后的映射计划可被多次转换复用
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        
+        List<MappingRule> rules = new ArrayList<>();
+        
+        MappingRule rule1 = new MappingRule();
+        rule1.setSourcePath("$.user.name");
+        rule1.setTargetPath("customer.userName");
+        rule1.setTransformType(TransformType.DIRECT);
+        rules.add(rule1);
+        
+        MappingRule rule2 = new MappingRule();
+        rule2.setSourcePath("$.user.email");
+        rule2.setTargetPath("customer.email");
+        rule2.setTransformType(TransformType.IGNORE);
+        rules.add(rule2);
+        
+        config.setRules(rules);
+        
+        CompiledMappingPlan plan = transformationEngine.compile(config);
+        assertEquals(1, plan.getRules().size());
+        
+        String first = transformationEngine.transform(sourceJson, plan);
+        String second = transformationEngine.transform("{\"user\":{\"name\":\"李四\"}}", plan);
+        System.out.println("编译计划复用结果:\n" + first + "\n" + second);
+        
+        assertTrue(first.contains("张三"));
+        assertFalse(first.contains("email"));
+        assertTrue(second.contains("李四"));
+    }
+    
+    @Test
+    void testNativeXmlTransformMatchesEngine() throws Exception {
+        // 测试XML到XML的原生管道：类XPath源路径、属性读取，输出与常规管道逐字节一致
+        List<MappingRule> rules = new ArrayList<>();
+        MappingRule code = new MappingRule();
+        code.setSourcePath("/Request/Header/TxnCode");
+        code.setTargetPath("Head.code");
+        code.setTransformType(TransformType.DIRECT);
+        rules.add(code);
+        
+        MappingRule version = new MappingRule();
+        version.setSourcePath("Header/@version");
+        version.setTargetPath("Head.version");
+        version.setTransformType(TransformType.DIRECT);
+        rules.add(version);
+        
+        MappingRule name = new MappingRule();
+        name.setSourcePath("$.Body.Name");
+        name.setTargetPath("Body.name");
+        name.setTransformType(TransformType.DIRECT);
+        rules.add(name);
+        
+        String sourceXml = "<Request><Header version=\"2\"><TxnCode>T01</TxnCode></Header>"
+                + "<Body><Name>a &amp; b</Name><Item>1</Item><Item>2</Item></Body></Request>";
+        
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("XML");
+        config.setTargetProtocol("XML");
+        config.setXmlRootElementName("Response");
+        config.setPrettyPrint(true);
+        config.setRules(rules);
+        CompiledMappingPlan plan = transformationEngine.compile(config);
+        assertNotNull(plan.getXmlPlan());
+        assertNotNull(plan.getXmlPlan().read(sourceXml));
+        
+        // 源协议为空时自动检测，走常规管道
+        MappingConfig genericConfig = new MappingConfig();
+        genericConfig.setTargetProtocol("XML");
+        genericConfig.setXmlRootElementName("Response");
+        genericConfig.setPrettyPrint(true);
+        genericConfig.setRules(rules);
+        
+        String result = transformationEngine.transform(sourceXml, plan);
+        assertEquals(transformationEngine.transform(sourceXml, genericConfig), result);
+        assertTrue(result.contains("<code>T01</code>"));
+        assertTrue(result.contains("<version>2</version>"));
+        assertTrue(result.contains("<name>a &amp; b</name>"));
+        
+        // 路径上的元素重复出现时回退到常规管道
+        String repeated = sourceXml.replace("<Name>a &amp; b</Name>", "<Name>a</Name><Name>b</Name>");
+        assertNull(plan.getXmlPlan().read(repeated));
+        assertEquals(transformationEngine.transform(repeated, genericConfig), transformationEngine.transform(repeated, plan));
+    }
+    
+    @Test
+    void testStreamingTransformMatchesEngine() throws Exception {
+        // 测试流式转换与常规转换结果一致（包含重复组）
+        String source = """
+            <Response>
+              <Header><TranCode>Q001</TranCode><Status>OK</Status></Header>
+              <Body>
+                <Records>
+                  <Record><Account>6222001</Account><Amount>100.50</Amount></Record>
+                  <Record><Account>6222002</Account><Amount>200.00</Amount></Record>
+                  <Record><Account>6222003</Account><Amount>300.25</Amount></Record>
+                </Records>
+                <Total>3</Total>
+              </Body>
+            </Response>
+            """;
+        
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("XML");
+        config.setTargetProtocol("XML");
+        config.setXmlRootElementName("Result");
+        
+        List<MappingRule> rules = new ArrayList<>();
+        
+        MappingRule codeRule = new MappingRule();
+        codeRule.setSourcePath("$.Header.TranCode");
+        codeRule.setTargetPath("head.code");
+        codeRule.setTransformType(TransformType.DIRECT);
+        rules.add(codeRule);
+        
+        MappingRule listRule = new MappingRule();
+        listRule.setSourcePath("$.Body.Records.Record[*]");
+        listRule.setTargetPath("data.list");
+        listRule.setTransformType(TransformType.DIRECT);
+        rules.add(listRule);
+        
+        MappingRule totalRule = new MappingRule();
+        totalRule.setSourcePath("$.Body.Total");
+        totalRule.setTargetPath("data.total");
+        totalRule.setTransformType(TransformType.DIRECT);
+        rules.add(totalRule);
+        
+        MappingRule fixedRule = new MappingRule();
+        fixedRule.setTargetPath("head.channel");
+        fixedRule.setTransformType(TransformType.FIXED);
+        fixedRule.setTransformConfig(Map.of("fixedValue", "STREAM"));
+        rules.add(fixedRule);
+        
+        config.setRules(rules);
+        
+        CompiledMappingPlan plan = transformationEngine.compile(config);
+        assertTrue(streamingEngine.supports(plan));
+        
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        streamingEngine.transform(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)), output, plan, "XML");
+        String streamed = output.toString(StandardCharsets.UTF_8);
+        String expected = transformationEngine.transform(source, plan);
+        System.out.println("流式转换结果:\n" + streamed);
+        
+        assertTrue(streamed.startsWith("<Result><Result>"));
+        assertEquals(MessageConverterUtil.parseToMap(expected, "XML"), MessageConverterUtil.parseToMap(streamed, "XML"));
+        
+        // 多对1规则不满足流式条件，自动回退到常规转换
+        MappingRule mergeRule = new MappingRule();
+        mergeRule.setMappingType(MappingType.MANY_TO_ONE);
+        mergeRule.setSourcePath("$.Header.TranCode");
+        mergeRule.setAdditionalSources(List.of("$.Header.Status"));
+        mergeRule.setTargetPath("head.summary");
+        mergeRule.setTransformType(TransformType.GROOVY);
+        mergeRule.setTransformConfig(Map.of("groovyScript", "(input as List).join('-')"));
+        rules.add(mergeRule);
+        CompiledMappingPlan fallbackPlan = transformationEngine.compile(config);
+        assertFalse(streamingEngine.supports(fallbackPlan));
+        
+        output.reset();
+        streamingEngine.transform(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)), output, fallbackPlan, "XML");
+        assertEquals(transformationEngine.transform(source, fallbackPlan), output.toString(StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    void testTargetFieldOrderFollowsRules() throws Exception {
+        // 测试输出字段顺序与规则顺序一致（每级对象按字段首次写入的顺序）
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        
+        List<MappingRule> rules = new ArrayList<>();
+        String[][] paths = {{"$.user.status", "zeta"}, {"$.user.name", "alpha.name"}, {"$.order.status", "mid"},
+                {"$.user.email", "alpha.email"}, {"$.user.age", "alpha.age"}};
+        for (String[] path : paths) {
+            MappingRule rule = new MappingRule();
+            rule.setSourcePath(path[0]);
+            rule.setTargetPath(path[1]);
+            rule.setTransformType(TransformType.DIRECT);
+            rules.add(rule);
+        }
+        config.setRules(rules);
+        
+        String result = transformationEngine.transform(sourceJson, config);
+        
+        assertEquals("{\"zeta\":\"active\",\"alpha\":{\"name\":\"张三\",\"email\":\"zhangsan@example.com\",\"age\":25},"
+                + "\"mid\":\"pending\"}", result);
+    }
+    
+    @Test
+    void testIndexedTargetPath() throws Exception {
+        // 测试目标路径中的数组下标：自动创建列表并用null补齐
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        
+        MappingRule first = new MappingRule();
+        first.setSourcePath("$.first");
+        first.setTargetPath("items[0].name");
+        first.setTransformType(TransformType.DIRECT);
+        
+        MappingRule third = new MappingRule();
+        third.setSourcePath("$.third");
+        third.setTargetPath("items[2].name");
+        third.setTransformType(TransformType.DIRECT);
+        config.setRules(List.of(first, third));
+        
+        String result = transformationEngine.transform("{\"first\":\"a\",\"third\":\"c\"}", config);
+        
+        assertEquals("{\"items\":[{\"name\":\"a\"},null,{\"name\":\"c\"}]}", result);
+    }
+    
+    @Test
+    void testBatchTransformKeepsOrder() throws Exception {
+        // 测试批量转换按请求顺序返回结果，单条失败不影响其他报文
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        
+        MappingRule rule = new MappingRule();
+        rule.setSourcePath("$.id");
+        rule.setTargetPath("result.id");
+        rule.setTransformType(TransformType.DIRECT);
+        config.setRules(List.of(rule));
+        
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            messages.add(i == 100 ? "{not json" : "{\"id\":" + i + "}");
+        }
+        
+        BatchTransformResponse response = batchTransformService.transformBatch(transformationEngine.compile(config), messages);
+        
+        assertEquals(200, response.getTotal());
+        assertEquals(199, response.getSuccessCount());
+        assertEquals(1, response.getFailureCount());
+        assertFalse(response.getResults().get(100).getSuccess());
+        for (int i = 0; i < 200; i++) {
+            BatchTransformResponse.Item item = response.getResults().get(i);
+            assertEquals(i, item.getIndex());
+            if (i != 100) {
+                assertEquals("{\"result\":{\"id\":" + i + "}}", item.getTransformedData());
+            }
+        }
+    }
+    
+    @Test
+    void testTransformMetricsRecorded() throws Exception {
+        // 测试按配置名称、版本和银行记录转换指标
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        
+        MappingRule rule = new MappingRule();
+        rule.setSourcePath("$.user.name");
+        rule.setTargetPath("customer.userName");
+        rule.setTransformType(TransformType.DIRECT);
+        config.setRules(List.of(rule));
+        
+        CompiledMappingPlan plan = transformationEngine.compile(config, "metrics_test", "v1", "TESTBANK");
+        transformationEngine.transform(sourceJson, plan);
+        assertThrows(Exception.class, () -> transformationEngine.transform("{broken", plan));
+        
+        assertEquals(1, meterRegistry.get("transform.requests")
+                .tags("config", "metrics_test", "version", "v1", "bank", "TESTBANK", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("transform.stage")
+                .tags("config", "metrics_test", "stage", "serialize").timer().count());
+        assertEquals(1.0, meterRegistry.get("transform.errors")
+                .tags("config", "metrics_test", "stage", "parse").counter().count());
+        assertEquals(1, meterRegistry.get("transform.strategy")
+                .tags("config", "metrics_test", "type", "DIRECT").timer().count());
+    }
+    
+    @Test
+    void testTransformToBytesMatchesString() throws Exception {
+        // 测试字节输出与字符串输出一致（JSON/XML、格式化、根元素名称、XML声明）
+        MappingRule name = new MappingRule();
+        name.setSourcePath("$.user.name");
+        name.setTargetPath("customer.userName");
+        name.setTransformType(TransformType.DIRECT);
+        
+        MappingRule age = new MappingRule();
+        age.setSourcePath("$.user.age");
+        age.setTargetPath("customer.age");
+        age.setTransformType(TransformType.DIRECT);
+        
+        for (String targetProtocol : new String[]{"JSON", "XML"}) {
+            for (String rootName : new String[]{null, "Document", "customer"}) {
+                for (boolean flag : new boolean[]{false, true}) {
+                    MappingConfig config = new MappingConfig();
+                    config.setSourceProtocol("JSON");
+                    config.setTargetProtocol(targetProtocol);
+                    config.setPrettyPrint(flag);
+                    config.setXmlRootElementName(rootName);
+                    config.setIncludeXmlDeclaration(flag);
+                    config.setRules(List.of(name, age));
+                    
+                    CompiledMappingPlan plan = transformationEngine.compile(config);
+                    String result = transformationEngine.transform(sourceJson, plan);
+                    
+                    assertArrayEquals(result.getBytes(StandardCharsets.UTF_8), transformationEngine.transformToBytes(sourceJson, plan));
+                }
+            }
+        }
+        
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("XML");
+        config.setXmlRootElementName("Document");
+        config.setRules(List.of(name));
+        assertEquals("<Document><Document><customer><userName>张三</userName></customer></Document></Document>",
+                transformationEngine.transform(sourceJson, config));
+    }
+    
+    @Test
+    void testConcurrentGroovyTransforms() throws Exception {
+        // 测试大量请求线程同时编译、执行Groovy脚本时结果正确（脚本缓存加锁）
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 256; i++) {
+                int variant = i % 8;
+                futures.add(executor.submit(() -> {
+                    MappingRule rule = new MappingRule();
+                    rule.setSourcePath("$.user.name");
+                    rule.setTargetPath("customer.tag");
+                    rule.setTransformType(TransformType.GROOVY);
+                    rule.setTransformConfig(Map.of("groovyScript", "input + '-" + variant + "'"));
+                    
+                    MappingConfig config = new MappingConfig();
+                    config.setSourceProtocol("JSON");
+                    config.setTargetProtocol("JSON");
+                    config.setRules(List.of(rule));
+                    return transformationEngine.transform(sourceJson, config);
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals("{\"customer\":{\"tag\":\"张三-" + (i % 8) + "\"}}", futures.get(i).get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void testNonBlockingJsonReaderMatchesEngine() throws Exception {
+        // 测试非阻塞解析器逐字节读取（多字节字符被拆开）后的转换结果与常规转换一致
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("XML");
+        
+        MappingRule name = new MappingRule();
+        name.setSourcePath("$.user.name");
+        name.setTargetPath("customer.userName");
+        name.setTransformType(TransformType.DIRECT);
+        
+        MappingRule age = new MappingRule();
+        age.setSourcePath("$.user.age");
+        age.setTargetPath("customer.age");
+        age.setTransformType(TransformType.DIRECT);
+        config.setRules(List.of(name, age));
+        CompiledMappingPlan plan = transformationEngine.compile(config);
+        
+        NonBlockingJsonReader reader = new NonBlockingJsonReader();
+        byte[] source = sourceJson.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < source.length; i++) {
+            reader.feed(source, i, 1);
+        }
+        
+        assertArrayEquals(transformationEngine.transformToBytes(sourceJson, plan),
+                transformationEngine.transformToBytes(reader.finish(), "JSON", plan));
+        
+        NonBlockingJsonReader broken = new NonBlockingJsonReader();
+        assertThrows(IOException.class, () -> broken.feed("{broken".getBytes(StandardCharsets.UTF_8), 0, 7));
+        assertThrows(IllegalArgumentException.class, () -> new NonBlockingJsonReader().finish());
+    }
+    
+    @Test
+    void testWarmupSamplePayloadCoversSourcePaths() throws Exception {
+        // 测试预热样例报文包含每条规则的源路径（含额外源路径、数组元素），XML源生成XML报文
+        MappingRule name = new MappingRule();
+        name.setSourcePath("$.user.name");
+        name.setTargetPath("customer.userName");
+        name.setTransformType(TransformType.DIRECT);
+        
+        MappingRule merge = new MappingRule();
+        merge.setSourcePath("$.user.firstName");
+        merge.setAdditionalSources(List.of("$.user.lastName"));
+        merge.setTargetPath("customer.fullName");
+        merge.setMappingType(MappingType.MANY_TO_ONE);
+        merge.setTransformType(TransformType.DIRECT);
+        
+        MappingRule item = new MappingRule();
+        item.setSourcePath("$.items[*].amount");
+        item.setTargetPath("amounts");
+        item.setTransformType(TransformType.DIRECT);
+        
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        config.setRules(List.of(name, merge, item));
+        
+        String sample = WarmupService.samplePayload(transformationEngine.compile(config));
+        assertEquals("{\"user\":{\"name\":\"1\",\"firstName\":\"1\",\"lastName\":\"1\"},\"items\":[{\"amount\":\"1\"}]}", sample);
+        
+        config.setSourceProtocol("XML");
+        config.setRules(List.of(name));
+        assertEquals("<HashMap><user><name>1</name></user></HashMap>", WarmupService.samplePayload(transformationEngine.compile(config)));
+    }
+    
+    @Test
+    void testTransformChainMatchesSequentialTransforms() throws Exception {
+        // 测试链式转换结果与逐个配置转换（中间结果为JSON）一致
+        MappingRule normalize = new MappingRule();
+        normalize.setSourcePath("$.user.name");
+        normalize.setTargetPath("customer.name");
+        normalize.setTransformType(TransformType.DIRECT);
+        
+        MappingRule age = new MappingRule();
+        age.setSourcePath("$.user.age");
+        age.setTargetPath("customer.age");
+        age.setTransformType(TransformType.DIRECT);
+        
+        MappingConfig first = new MappingConfig();
+        first.setSourceProtocol("JSON");
+        first.setTargetProtocol("JSON");
+        first.setRules(List.of(normalize, age));
+        
+        MappingRule enrich = new MappingRule();
+        enrich.setSourcePath("$.customer.name");
+        enrich.setTargetPath("Body.CustName");
+        enrich.setTransformType(TransformType.FUNCTION);
+        enrich.setTransformConfig(Map.of("function", "upperCase"));
+        
+        MappingRule copyAge = new MappingRule();
+        copyAge.setSourcePath("$.customer.age");
+        copyAge.setTargetPath("Body.Age");
+        copyAge.setTransformType(TransformType.DIRECT);
+        
+        MappingConfig second = new MappingConfig();
+        second.setSourceProtocol("JSON");
+        second.setTargetProtocol("XML");
+        second.setXmlRootElementName("Request");
+        second.setRules(List.of(enrich, copyAge));
+        
+        CompiledMappingPlan firstPlan = transformationEngine.compile(first);
+        CompiledMappingPlan secondPlan = transformationEngine.compile(second);
+        String sequential = transformationEngine.transform(transformationEngine.transform(sourceJson, firstPlan), secondPlan);
+        
+        assertEquals(sequential, transformationEngine.transformChain(sourceJson, List.of(firstPlan, secondPlan)));
+        assertEquals("<Request><Request><Body><CustName>张三</CustName><Age>25</Age></Body></Request></Request>", sequential);
+    }
+    
+    @Test
+    void testRunawayGroovyScriptTimesOut() throws Exception {
+        // 死循环的脚本应在超时后被终止，字段返回源值，其他规则不受影响
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        
+        MappingRule loopRule = new MappingRule();
+        loopRule.setSourcePath("$.user.name");
+        loopRule.setTargetPath("name");
+        loopRule.setMappingType(MappingType.ONE_TO_ONE);
+        loopRule.setTransformType(TransformType.GROOVY);
+        loopRule.setTransformConfig(Map.of("groovyScript", "def i = 0\nwhile (true) { i++ }\nreturn input"));
+        
+        MappingRule normalRule = new MappingRule();
+        normalRule.setSourcePath("$.user.email");
+        normalRule.setTargetPath("email");
+        normalRule.setMappingType(MappingType.ONE_TO_ONE);
+        normalRule.setTransformType(TransformType.GROOVY);
+        normalRule.setTransformConfig(Map.of("groovyScript", "input.toUpperCase()"));
+        config.setRules(List.of(loopRule, normalRule));
+        
+        double before = meterRegistry.counter("transform.groovy.sandbox.fallbacks", "reason", "timeout").count();
+        long start = System.nanoTime();
+        String result = transformationEngine.transform(sourceJson, config);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        Map<String, Object> resultMap = MessageConverterUtil.parseToMap(result, "JSON");
+        assertEquals("张三", resultMap.get("name"));
+        assertEquals("ZHANGSAN@EXAMPLE.COM", resultMap.get("email"));
+        assertTrue(elapsedMillis < 10000, "脚本应在超时后终止，实际耗时: " + elapsedMillis + "ms");
+        assertEquals(before + 1,
+                meterRegistry.counter("transform.groovy.sandbox.fallbacks", "reason", "timeout").count());
+    }
+    
+    @Test
+    void testExpressionAndSimpleGroovyMatchScript() throws Exception {
+        // EXPRESSION规则、按简单表达式执行的Groovy规则与完整Groovy脚本的结果一致
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        
+        MappingRule expressionRule = new MappingRule();
+        expressionRule.setSourcePath("$.user.firstName");
+        expressionRule.setTargetPath("customer.byExpression");
+        expressionRule.setMappingType(MappingType.MANY_TO_ONE);
+        expressionRule.setAdditionalSources(List.of("$.user.lastName"));
+        expressionRule.setTransformType(TransformType.EXPRESSION);
+        expressionRule.setTransformConfig(Map.of("expression", "inputs[0] + '-' + inputs[1]"));
+        
+        MappingRule simpleRule = new MappingRule();
+        simpleRule.setSourcePath("$.user.firstName");
+        simpleRule.setTargetPath("customer.bySimpleGroovy");
+        simpleRule.setMappingType(MappingType.MANY_TO_ONE);
+        simpleRule.setAdditionalSources(List.of("$.user.lastName"));
+        simpleRule.setTransformType(TransformType.GROOVY);
+        simpleRule.setTransformConfig(Map.of("groovyScript", "inputs[0] + '-' + inputs[1]"));
+        
+        MappingRule scriptRule = new MappingRule();
+        scriptRule.setSourcePath("$.user.firstName");
+        scriptRule.setTargetPath("customer.byScript");
+        scriptRule.setMappingType(MappingType.MANY_TO_ONE);
+        scriptRule.setAdditionalSources(List.of("$.user.lastName"));
+        scriptRule.setTransformType(TransformType.GROOVY);
+        scriptRule.setTransformConfig(Map.of("groovyScript", "def parts = inputs\nreturn parts[0] + '-' + parts[1]"));
+        
+        MappingRule ternaryRule = new MappingRule();
+        ternaryRule.setSourcePath("$.user.status");
+        ternaryRule.setTargetPath("customer.active");
+        ternaryRule.setTransformType(TransformType.GROOVY);
+        ternaryRule.setTransformConfig(Map.of("groovyScript", "input == 'active' ? 'Y' : 'N'"));
+        config.setRules(List.of(expressionRule, simpleRule, scriptRule, ternaryRule));
+        
+        Map<String, Object> resultMap = MessageConverterUtil.parseToMap(transformationEngine.transform(sourceJson, config), "JSON");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> customer = (Map<String, Object>) resultMap.get("customer");
+        assertEquals("张-三", customer.get("byScript"));
+        assertEquals(customer.get("byScript"), customer.get("byExpression"));
+        assertEquals(customer.get("byScript"), customer.get("bySimpleGroovy"));
+        assertEquals("Y", customer.get("active"));
+    }
+    
+    @Test
+    void testGeneratedTransformerMatchesInterpreter() throws Exception {
+        // 生成的转换器与解释执行的结果一致，包括缺失路径、数组下标、多对1和执行失败的规则
+        Map<String, TransformStrategy> strategyMap = new HashMap<>();
+        for (TransformStrategy strategy : strategies) {
+            strategyMap.put(strategy.getType(), strategy);
+        }
+        
+        List<MappingRule> rules = new ArrayList<>();
+        String[][] simpleRules = {
+            {"$.user.name", "customer.name", "DIRECT"},
+            {"$.user.email", "customer.email", "FUNCTION"},
+            {"$.user.age", "customer.age", "FUNCTION"},
+            {"$.user.missing.field", "customer.missing", "DIRECT"},
+            {"user.status", "customer.status", null},
+            {"$.order", "order", "DIRECT"},
+            {null, "customer.channel", "FIXED"}
+        };
+        for (String[] simpleRule : simpleRules) {
+            MappingRule rule = new MappingRule();
+            rule.setSourcePath(simpleRule[0]);
+            rule.setTargetPath(simpleRule[1]);
+            if (simpleRule[2] != null) {
+                rule.setTransformType(TransformType.valueOf(simpleRule[2]));
+            }
+            if ("FUNCTION".equals(simpleRule[2])) {
+                rule.setTransformConfig(Map.of("function", "upperCase"));
+            } else if ("FIXED".equals(simpleRule[2])) {
+                rule.setTransformConfig(Map.of("fixedValue", "WEB"));
+            }
+            rules.add(rule);
+        }
+        MappingRule manyRule = new MappingRule();
+        manyRule.setSourcePath("$.user.firstName");
+        manyRule.setTargetPath("customer.fullName");
+        manyRule.setMappingType(MappingType.MANY_TO_ONE);
+        manyRule.setAdditionalSources(List.of("$.user.lastName", "$.user.nothing"));
+        manyRule.setTransformType(TransformType.FUNCTION);
+        manyRule.setTransformConfig(Map.of("function", "concat"));
+        rules.add(manyRule);
+        
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        config.setRules(rules);
+        
+        CompiledMappingPlan interpreted = CompiledMappingPlan.compile(config, strategyMap, PlanMetrics.NOOP, false);
+        CompiledMappingPlan generated = CompiledMappingPlan.compile(config, strategyMap, PlanMetrics.NOOP, true);
+        assertNull(interpreted.getGeneratedTransformer());
+        assertNotNull(generated.getGeneratedTransformer());
+        assertEquals(transformationEngine.transform(sourceJson, interpreted), transformationEngine.transform(sourceJson, generated));
+        
+        // 不支持的源路径（通配符）不生成转换器，继续解释执行
+        MappingRule wildcardRule = new MappingRule();
+        wildcardRule.setSourcePath("$.user.*");
+        wildcardRule.setTargetPath("values");
+        config.setRules(List.of(wildcardRule));
+        assertNull(CompiledMappingPlan.compile(config, strategyMap, PlanMetrics.NOOP, true).getGeneratedTransformer());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCompactSourceTreeMatchesParsedMap() throws Exception {
+        // 紧凑树与普通解析结果相等：键顺序、数值类型、XML重复元素合并为List、JSON重复键取最后一个值
+        String json = "{\"body\":{\"details\":[{\"serialNo\":\"1\",\"amount\":10.5,\"ccy\":\"CNY\"},"
+                + "{\"serialNo\":\"2\",\"amount\":3,\"ccy\":\"CNY\"}],\"total\":2,\"total\":3,\"empty\":{}}}";
+        String xml = "<Response><body><details><serialNo>1</serialNo><ccy>CNY</ccy></details>"
+                + "<details><serialNo>2</serialNo><ccy>CNY</ccy></details><flag/></body></Response>";
+        for (String[] source : new String[][]{{json, "JSON"}, {xml, "XML"}}) {
+            Map<String, Object> expected = MessageConverterUtil.parseToMap(source[0], source[1]);
+            Map<String, Object> compact = MessageConverterUtil.parseToCompactMap(source[0], source[1]);
+            assertEquals(expected, compact);
+            assertEquals(expected.toString(), compact.toString());
+            assertEquals(MessageConverterUtil.mapToString(expected, "JSON", false),
+                    MessageConverterUtil.mapToString(compact, "JSON", false));
+            
+            Map<?, ?> body = (Map<?, ?>) compact.get("body");
+            List<?> details = (List<?>) body.get("details");
+            assertEquals(2, details.size());
+            // 源数据只读
+            assertThrows(UnsupportedOperationException.class, () -> ((Map<String, Object>) details.get(0)).put("x", "y"));
+        }
+        
+        // 引擎读取到的容器是可修改的副本
+        MappingRule rule = new MappingRule();
+        rule.setSourcePath("$.body.details[0]");
+        rule.setTargetPath("first");
+        rule.setTransformType(TransformType.GROOVY);
+        rule.setTransformConfig(Map.of("groovyScript", "input.put('checked', 'Y'); return input"));
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        config.setRules(List.of(rule));
+        String result = transformationEngine.transform(json, config);
+        assertTrue(result.contains("\"checked\":\"Y\""));
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testArrayMappingAppliesSubRulesPerElement() throws Exception {
+        // 明细数组逐个元素按子规则映射，超过并行阈值时并行执行，输出顺序与源数组一致
+        MappingRule idRule = new MappingRule();
+        idRule.setSourcePath("$.serialNo");
+        idRule.setTargetPath("id");
+        MappingRule amountRule = new MappingRule();
+        amountRule.setSourcePath("$.amount");
+        amountRule.setTargetPath("money.amt");
+        amountRule.setTransformType(TransformType.FUNCTION);
+        amountRule.setTransformConfig(Map.of("function", "toString"));
+        MappingRule tagRule = new MappingRule();
+        tagRule.setSourcePath("$.tags");
+        tagRule.setTargetPath("labels[]");
+        tagRule.setMappingType(MappingType.ARRAY);
+        MappingRule tagNameRule = new MappingRule();
+        tagNameRule.setSourcePath("$.name");
+        tagNameRule.setTargetPath("name");
+        tagRule.setSubRules(List.of(tagNameRule));
+        
+        MappingRule arrayRule = new MappingRule();
+        arrayRule.setSourcePath("$.body.details[*]");
+        arrayRule.setTargetPath("records");
+        arrayRule.setMappingType(MappingType.ARRAY);
+        arrayRule.setSubRules(List.of(idRule, amountRule, tagRule));
+        MappingRule countRule = new MappingRule();
+        countRule.setSourcePath("$.body.total");
+        countRule.setTargetPath("count");
+        
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        config.setRules(List.of(arrayRule, countRule));
+        
+        int rows = 5000;
+        StringBuilder source = new StringBuilder("{\"body\":{\"total\":").append(rows).append(",\"details\":[");
+        for (int i = 0; i < rows; i++) {
+            source.append(i > 0 ? "," : "").append("{\"serialNo\":\"S").append(i).append("\",\"amount\":").append(i)
+                    .append(i % 2 == 0 ? ",\"tags\":[{\"name\":\"a\"},{\"name\":\"b\"}]}" : "}");
+        }
+        source.append("]}}");
+        
+        Map<String, Object> result = MessageConverterUtil.parseToMap(transformationEngine.transform(source.toString(), config), "JSON");
+        assertEquals(rows, result.get("count"));
+        List<Map<String, Object>> records = (List<Map<String, Object>>) result.get("records");
+        assertEquals(rows, records.size());
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> record = records.get(i);
+            assertEquals("S" + i, record.get("id"));
+            assertEquals(String.valueOf(i), ((Map<String, Object>) record.get("money")).get("amt"));
+            if (i % 2 == 0) {
+                assertEquals(List.of(Map.of("name", "a"), Map.of("name", "b")), record.get("labels"));
+            } else {
+                assertFalse(record.containsKey("labels"));
+            }
+        }
+        
+        // 生成转换器的元素计划结果一致
+        Map<String, TransformStrategy> strategyMap = new HashMap<>();
+        for (TransformStrategy strategy : strategies) {
+            strategyMap.put(strategy.getType(), strategy);
+        }
+        CompiledMappingPlan generated = CompiledMappingPlan.compile(config, strategyMap, PlanMetrics.NOOP, true);
+        assertNotNull(generated.getRules().get(0).getElementPlan().getRules().get(2).getElementPlan().getGeneratedTransformer());
+        assertEquals(transformationEngine.transform(source.toString(), config),
+                transformationEngine.transform(source.toString(), generated));
+        
+        // 只出现一次的XML元素按单个元素处理
+        config.setSourceProtocol("XML");
+        String xml = "<Response><body><total>1</total><details><serialNo>S0</serialNo><amount>5</amount></details></body></Response>";
+        Map<String, Object> xmlResult = MessageConverterUtil.parseToMap(transformationEngine.transform(xml, config), "JSON");
+        assertEquals(List.of(Map.of("id", "S0", "money", Map.of("amt", "5"))), xmlResult.get("records"));
+    }
+    
+    @Test
+    void testResultCacheHitsAndBypassesNonDeterministicRules() throws Exception {
+        // 测试结果缓存：相同源报文命中缓存，规则含不确定转换时不缓存
+        assertEquals(0xEF46DB3751D8E999L, XxHash64.hash(""));
+        assertEquals(0xAFF0F2A2F8B32731L, XxHash64.hash("abc"));
+        
+        MappingRule name = new MappingRule();
+        name.setSourcePath("$.user.name");
+        name.setTargetPath("customer.userName");
+        name.setTransformType(TransformType.DIRECT);
+        MappingRule age = new MappingRule();
+        age.setSourcePath("$.user.age");
+        age.setTargetPath("customer.age");
+        age.setTransformType(TransformType.FUNCTION);
+        age.setTransformConfig(Map.of("function", "toString"));
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        config.setCacheResult(true);
+        config.setRules(List.of(name, age));
+        
+        CompiledMappingPlan plan = transformationEngine.compile(config, "cache_test", "v1", "TESTBANK");
+        assertTrue(plan.isResultCacheable());
+        String first = transformationEngine.transform(sourceJson, plan);
+        assertEquals(first, transformationEngine.transform(sourceJson, plan));
+        assertNotEquals(first, transformationEngine.transform(sourceJson.replace("张三", "李四"), plan));
+        byte[] bytes = transformationEngine.transformToBytes(sourceJson, plan);
+        bytes[0] = 0;
+        assertEquals(first, new String(transformationEngine.transformToBytes(sourceJson, plan), StandardCharsets.UTF_8));
+        assertEquals(2.0, meterRegistry.get("transform.result.cache")
+                .tags("config", "cache_test", "result", "hit").counter().count());
+        assertEquals(3.0, meterRegistry.get("transform.result.cache")
+                .tags("config", "cache_test", "result", "miss").counter().count());
+        assertEquals(3, meterRegistry.get("transform.requests")
+                .tags("config", "cache_test", "outcome", "success").timer().count());
+        
+        // 当前时间、随机数（含数组映射子规则中的）不缓存
+        MappingRule now = new MappingRule();
+        now.setTargetPath("meta.time");
+        now.setTransformType(TransformType.FUNCTION);
+        now.setTransformConfig(Map.of("function", "currentDate"));
+        MappingRule random = new MappingRule();
+        random.setTargetPath("meta.nonce");
+        random.setTransformType(TransformType.CUSTOM_METHOD);
+        random.setTransformConfig(Map.of("className", "com.kai.util.StringUtil", "methodName", "generateRandom8Chars"));
+        MappingRule uuid = new MappingRule();
+        uuid.setTargetPath("id");
+        uuid.setTransformType(TransformType.GROOVY);
+        uuid.setTransformConfig(Map.of("groovyScript", "UUID.randomUUID().toString()"));
+        MappingRule items = new MappingRule();
+        items.setSourcePath("$.items");
+        items.setTargetPath("items");
+        items.setMappingType(MappingType.ARRAY);
+        items.setSubRules(List.of(uuid));
+        for (MappingRule rule : List.of(now, random, items)) {
+            config.setRules(List.of(name, rule));
+            CompiledMappingPlan nonDeterministic = transformationEngine.compile(config, "cache_bypass_" + rule.getTargetPath(), "v1", "TESTBANK");
+            assertTrue(nonDeterministic.isCacheResult());
+            assertFalse(nonDeterministic.isResultCacheable());
+            transformationEngine.transform(sourceJson, nonDeterministic);
+            transformationEngine.transform(sourceJson, nonDeterministic);
+            assertEquals(2.0, meterRegistry.get("transform.result.cache")
+                    .tags("config", "cache_bypass_" + rule.getTargetPath(), "result", "bypass").counter().count());
+        }
+    }
+    
+    @Test
+    void testRunawayExpressionTimesOut() throws Exception {
+        // 测试EXPRESSION规则与Groovy脚本一样在受限环境中执行：阻塞的表达式超时后返回原值
+        MappingRule blockingRule = new MappingRule();
+        blockingRule.setSourcePath("$.user.name");
+        blockingRule.setTargetPath("name");
+        blockingRule.setTransformType(TransformType.EXPRESSION);
+        blockingRule.setTransformConfig(Map.of("expression", "Thread.sleep(60000); input + '!'"));
+        MappingRule normalRule = new MappingRule();
+        normalRule.setSourcePath("$.user.email");
+        normalRule.setTargetPath("email");
+        normalRule.setTransformType(TransformType.EXPRESSION);
+        normalRule.setTransformConfig(Map.of("expression", "input.toUpperCase()"));
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        config.setRules(List.of(blockingRule, normalRule));
+        
+        double before = meterRegistry.counter("transform.groovy.sandbox.fallbacks", "reason", "timeout").count();
+        long start = System.nanoTime();
+        Map<String, Object> resultMap = MessageConverterUtil.parseToMap(transformationEngine.transform(sourceJson, config), "JSON");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertEquals("张三", resultMap.get("name"));
+        assertEquals("ZHANGSAN@EXAMPLE.COM", resultMap.get("email"));
+        assertTrue(elapsedMillis < 10000, "表达式应在超时后放弃，实际耗时: " + elapsedMillis + "ms");
+        assertEquals(before + 1,
+                meterRegistry.counter("transform.groovy.sandbox.fallbacks", "reason", "timeout").count());
+    }
+    
+    @Test
+    void testStreamingFailureLeavesTruncatedOutput() throws Exception {
+        // 测试流式转换中途失败：抛出异常，已写出的重复组元素不撤回，输出是被截断的文档
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        
+        MappingRule listRule = new MappingRule();
+        listRule.setSourcePath("$.body.items[*]");
+        listRule.setTargetPath("data.list");
+        listRule.setTransformType(TransformType.DIRECT);
+        MappingRule totalRule = new MappingRule();
+        totalRule.setSourcePath("$.body.total");
+        totalRule.setTargetPath("data.total");
+        totalRule.setTransformType(TransformType.DIRECT);
+        config.setRules(List.of(listRule, totalRule));
+        
+        CompiledMappingPlan plan = transformationEngine.compile(config);
+        assertTrue(streamingEngine.supports(plan));
+        assertTrue(streamingEngine.supports(plan));
+        
+        String source = "{\"body\":{\"items\":[{\"id\":1},{\"id\":2},{\"id\":";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertThrows(IOException.class, () -> streamingEngine.transform(
+                new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)), output, plan, "JSON"));
+        
+        String truncated = output.toString(StandardCharsets.UTF_8);
+        assertTrue(truncated.startsWith("{\"data\":{\"list\":[{\"id\":1},{\"id\":2}"), truncated);
+        assertThrows(IOException.class, () -> MessageConverterUtil.getJsonMapper().readTree(truncated));
+        
+        // 同一计划的下一次转换不受影响
+        output.reset();
+        streamingEngine.transform(new ByteArrayInputStream(
+                "{\"body\":{\"items\":[{\"id\":1}],\"total\":1}}".getBytes(StandardCharsets.UTF_8)), output, plan, "JSON");
+        assertEquals(Map.of("data", Map.of("list", List.of(Map.of("id", 1)), "total", 1)),
+                MessageConverterUtil.getJsonMapper().readValue(output.toString(StandardCharsets.UTF_8), Map.class));
+    }
+    
+    @Test
+    void testWarmupTransformBypassesResultCache() throws Exception {
+        // 测试预热执行不经过结果缓存，也不记录计划的转换次数
+        MappingRule name = new MappingRule();
+        name.setSourcePath("$.user.name");
+        name.setTargetPath("customer.userName");
+        name.setTransformType(TransformType.DIRECT);
+        MappingConfig config = new MappingConfig();
+        config.setSourceProtocol("JSON");
+        config.setTargetProtocol("JSON");
+        config.setCacheResult(true);
+        config.setRules(List.of(name));
+        
+        CompiledMappingPlan plan = transformationEngine.compile(config, "warmup_cache_test", "v1", "TESTBANK");
+        assertTrue(plan.isResultCacheable());
+        String expected = transformationEngine.transform(sourceJson, plan);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected, transformationEngine.transformForWarmup(sourceJson, plan));
+        }
+        
+        assertEquals(0.0, meterRegistry.get("transform.result.cache")
+                .tags("config", "warmup_cache_test", "result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("transform.result.cache")
+                .tags("config", "warmup_cache_test", "result", "miss").counter().count());
+        assertEquals(1, meterRegistry.get("transform.requests")
+                .tags("config", "warmup_cache_test", "outcome", "success").timer().count());
+    }
 }
-